@@ -8,11 +8,14 @@ import io.swagger.v3.oas.annotations.info.Info;
 import io.swagger.v3.oas.annotations.info.License;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.tags.Tags;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 @OpenAPIDefinition(
 				info = @Info(
 								title = "Spring Boot Rest API Doc",
@@ -43,10 +46,11 @@ public class TjtechyArtifactsOnlineApplication {
 		SpringApplication.run(TjtechyArtifactsOnlineApplication.class, args);
 	}
 
-	//managing IdWorker
+	//managing IdWorker, every node needs its own worker/datacenter id pair
 	@Bean
-	public IdWorker idWorker(){
-		return new IdWorker(1, 1);
+	public IdWorker idWorker(@Value("${artifact.id-worker.worker-id:1}") long workerId,
+													 @Value("${artifact.id-worker.datacenter-id:1}") long datacenterId){
+		return new IdWorker(workerId, datacenterId);
 	}
 
 
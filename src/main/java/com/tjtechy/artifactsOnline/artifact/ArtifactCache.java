@@ -0,0 +1,145 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import com.tjtechy.artifactsOnline.system.cache.CacheConfiguration;
+import com.tjtechy.artifactsOnline.wizard.Wizard;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What GET /artifacts/{artifactId} renders, cached in two parts: the artifact's own columns with its owner's id,
+ * and the owner's fields by wizard id. A wizard write evicts one owner entry instead of every artifact it owns,
+ * and a hit on both parts issues no SQL.
+ * Evictions are applied once the surrounding transaction commits and counted. A reader takes the count before
+ * it reads the database and its put is skipped (or undone) when an eviction happened since, so a row read
+ * before a write committed is never cached after that write's eviction.
+ */
+@Component
+public class ArtifactCache {
+
+  private final Cache artifacts;
+
+  private final Cache owners;
+
+  private final AtomicLong invalidations = new AtomicLong();
+
+  public ArtifactCache(CacheManager cacheManager) {
+    this.artifacts = cacheManager.getCache(CacheConfiguration.ARTIFACT_CACHE);
+    this.owners = cacheManager.getCache(CacheConfiguration.ARTIFACT_OWNER_CACHE);
+  }
+
+  public CachedArtifact findArtifact(String artifactId) {
+
+    return this.artifacts.get(artifactId, CachedArtifact.class);
+  }
+
+  public CachedOwner findOwner(Integer wizardId) {
+
+    return this.owners.get(wizardId, CachedOwner.class);
+  }
+
+  //taken before the database read whose result is put
+  public long invalidations() {
+
+    return this.invalidations.get();
+  }
+
+  //the artifact and its owner, as read after invalidations() returned invalidationsBeforeRead
+  public void put(Artifact artifact, long invalidationsBeforeRead) {
+    this.put(this.artifacts, artifact.getId(), CachedArtifact.of(artifact), invalidationsBeforeRead);
+    if (artifact.getOwner() != null) {
+      this.put(artifact.getOwner(), invalidationsBeforeRead);
+    }
+  }
+
+  public void put(Wizard owner, long invalidationsBeforeRead) {
+
+    this.put(this.owners, owner.getId(), CachedOwner.of(owner), invalidationsBeforeRead);
+  }
+
+  public void evictArtifact(String artifactId) {
+
+    this.afterCommit(() -> this.artifacts.evictIfPresent(artifactId));
+  }
+
+  public void evictOwner(Integer wizardId) {
+
+    this.afterCommit(() -> this.owners.evictIfPresent(wizardId));
+  }
+
+  public void evictAllOwners() {
+
+    this.afterCommit(this.owners::invalidate);
+  }
+
+  //putIfAbsent and evictIfPresent act at once, put would be deferred to a commit that may already be over
+  private void put(Cache cache, Object key, Object value, long invalidationsBeforeRead) {
+    if (this.invalidations.get() != invalidationsBeforeRead) {
+      return;
+    }
+    cache.putIfAbsent(key, value);
+    //an eviction between the check and the put may have missed the value
+    if (this.invalidations.get() != invalidationsBeforeRead) {
+      cache.evictIfPresent(key);
+    }
+  }
+
+  //counted before the entry goes, so a reader that put after the eviction sees the count moved and undoes its put
+  private void afterCommit(Runnable eviction) {
+    Runnable countedEviction = () -> {
+      this.invalidations.incrementAndGet();
+      eviction.run();
+    };
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          countedEviction.run();
+        }
+      });
+    } else {
+      countedEviction.run();
+    }
+  }
+
+  //a copy of the artifact's columns that shares nothing with a persistence context
+  public record CachedArtifact(String id, String name, String description, String imageUrl, Integer ownerId) {
+
+    static CachedArtifact of(Artifact artifact) {
+      Integer ownerId = artifact.getOwner() != null ? artifact.getOwner().getId() : null;
+      return new CachedArtifact(artifact.getId(), artifact.getName(), artifact.getDescription(),
+              artifact.getImageUrl(), ownerId);
+    }
+
+    public Artifact toArtifact(Wizard owner) {
+      Artifact artifact = new Artifact();
+      artifact.setId(this.id);
+      artifact.setName(this.name);
+      artifact.setDescription(this.description);
+      artifact.setImageUrl(this.imageUrl);
+      artifact.setOwner(owner);
+      return artifact;
+    }
+  }
+
+  //the owner fields an artifact renders
+  public record CachedOwner(Integer id, String name, Integer numberOfArtifacts) {
+
+    static CachedOwner of(Wizard wizard) {
+
+      return new CachedOwner(wizard.getId(), wizard.getName(), wizard.getNumberOfArtifacts());
+    }
+
+    public Wizard toWizard() {
+      Wizard wizard = new Wizard();
+      wizard.setId(this.id);
+      wizard.setName(this.name);
+      wizard.setNumberOfArtifacts(this.numberOfArtifacts);
+      return wizard;
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A counter every write that changes what GET /artifacts/summary describes bumps (artifact create, update,
+ * delete and import, wizard rename, delete and assignment), so readers can tell a cached summary is
+ * current without loading the catalog. It is per JVM: writes made on other nodes are picked up when the
+ * summary reaches artifact.summary.max-age.
+ */
+@Component
+public class ArtifactCatalogVersion {
+
+  private final AtomicLong version = new AtomicLong();
+
+  public long current() {
+
+    return this.version.get();
+  }
+
+  //applied once the surrounding transaction commits, a refresh started before that would still read the old rows
+  public void bump() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          ArtifactCatalogVersion.this.version.incrementAndGet();
+        }
+      });
+    } else {
+      this.version.incrementAndGet();
+    }
+  }
+}
@@ -4,24 +4,33 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.tjtechy.artifactsOnline.artifact.converter.ArtifactDtoToArtifactConverter;
 import com.tjtechy.artifactsOnline.artifact.converter.ArtifactToArtifactDtoConverter;
 import com.tjtechy.artifactsOnline.artifact.dto.ArtifactDto;
+import com.tjtechy.artifactsOnline.artifact.dto.ArtifactImportResult;
 import com.tjtechy.artifactsOnline.client.imagestorage.ImageStorageClient;
+import com.tjtechy.artifactsOnline.system.CursorPage;
 import com.tjtechy.artifactsOnline.system.Result;
 import com.tjtechy.artifactsOnline.system.StatusCode;
-import io.micrometer.core.instrument.MeterRegistry;
+import com.tjtechy.artifactsOnline.system.exception.InvalidImageHashException;
+import com.tjtechy.artifactsOnline.system.exception.InvalidImageNameException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.List;
+import java.io.UncheckedIOException;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Tag(
         name = "CRUD REST APIs for artifacts Resource",
@@ -36,21 +45,38 @@ public class ArtifactController {
   private final ArtifactToArtifactDtoConverter artifactToArtifactDtoConverter;
 
   private final ArtifactDtoToArtifactConverter artifactDtoToArtifactConverter;
-  //for metrics collection e.g counter metrics
-  private final MeterRegistry meterRegistry;
+  //tracks the most requested artifacts in fixed memory
+  private final ArtifactPopularityService artifactPopularityService;
   private final ImageStorageClient imageStorageClient;
 
+  private final ArtifactExportService artifactExportService;
+
+  private final ArtifactImportService artifactImportService;
+
+  private final ArtifactSummaryService artifactSummaryService;
+
+  //largest image the streaming upload accepts, multipart uploads are capped by spring.servlet.multipart instead
+  private final DataSize maxImageSize;
+
   public ArtifactController(ArtifactService artifactService,
                             ArtifactToArtifactDtoConverter artifactToArtifactDtoConverter,
                             ArtifactDtoToArtifactConverter artifactDtoToArtifactConverter,
-                            MeterRegistry meterRegistry,
-                            ImageStorageClient imageStorageClient) {
+                            ArtifactPopularityService artifactPopularityService,
+                            ImageStorageClient imageStorageClient,
+                            ArtifactExportService artifactExportService,
+                            ArtifactImportService artifactImportService,
+                            ArtifactSummaryService artifactSummaryService,
+                            @Value("${image-storage.max-image-size:100MB}") DataSize maxImageSize) {
 
     this.artifactService = artifactService;
     this.artifactToArtifactDtoConverter = artifactToArtifactDtoConverter;
     this.artifactDtoToArtifactConverter = artifactDtoToArtifactConverter;
-    this.meterRegistry = meterRegistry;
+    this.artifactPopularityService = artifactPopularityService;
     this.imageStorageClient = imageStorageClient;
+    this.artifactExportService = artifactExportService;
+    this.artifactImportService = artifactImportService;
+    this.artifactSummaryService = artifactSummaryService;
+    this.maxImageSize = maxImageSize;
   }
 
   //find a particular artifact
@@ -66,7 +92,7 @@ public class ArtifactController {
   public Result findArtifactById(@PathVariable String artifactId){
 
     Artifact foundArtifact = this.artifactService.findById(artifactId);
-    meterRegistry.counter("artifact.id." + artifactId).increment();
+    this.artifactPopularityService.recordRequest(artifactId);
     //convert found artifact to dto
     ArtifactDto artifactDto = this.artifactToArtifactDtoConverter.convert(foundArtifact);
 
@@ -76,14 +102,21 @@ public class ArtifactController {
   //find all artifacts
   @Operation(
           summary = "Get all Artifacts REST API",
-          description = "Get all Artifacts is used to retrieve all artifacts in database"
+          description = "Get all Artifacts is used to retrieve all artifacts in database, pass cursor (empty for the first page) for keyset paging"
   )
   @ApiResponse(
           responseCode = "200",
           description = "HTTP Status 200 SUCCESS"
   )
   @GetMapping
-  public Result findAllArtifacts(Pageable pageable){
+  public Result findAllArtifacts(Pageable pageable, @RequestParam(required = false) String cursor){
+
+    //a cursor (empty for the first page) opts in to keyset paging, which skips the count query
+    if(cursor != null){
+      CursorPage<ArtifactDto> artifactDtoCursorPage = this.artifactService.findAll(cursor, pageable.getPageSize())
+              .map(this.artifactToArtifactDtoConverter::convert);
+      return new Result(true, StatusCode.SUCCESS, "Find All Success", artifactDtoCursorPage);
+    }
 
     Page<Artifact> artifactPage = this.artifactService.findAll(pageable);
 
@@ -95,6 +128,22 @@ public class ArtifactController {
     return new Result(true, StatusCode.SUCCESS, "Find All Success", foundArtifactDtoPage);
   }
 
+  //export the whole catalog
+  @Operation(
+          summary = "Export Artifacts REST API",
+          description = "Export Artifacts is used to stream every artifact in database as newline delimited JSON"
+  )
+  @ApiResponse(
+          responseCode = "200",
+          description = "HTTP Status 200 SUCCESS"
+  )
+  @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public void exportArtifacts(HttpServletResponse response) throws IOException {
+    //written straight to the response, one artifactDto per line, nothing is collected in memory
+    response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+    this.artifactExportService.exportAll(response.getOutputStream());
+  }
+
   //create artifact
   @Operation(
           summary = "Add Artifact REST API",
@@ -117,6 +166,22 @@ public class ArtifactController {
     return new Result(true, StatusCode.SUCCESS, "Add Success", savedArtifactDto);
   }
 
+  //bulk import artifacts
+  @Operation(
+          summary = "Import Artifacts REST API",
+          description = "Import Artifacts is used to create many artifacts from a JSON array or newline delimited JSON body"
+  )
+  @ApiResponse(
+          responseCode = "200",
+          description = "HTTP Status 200 SUCCESS"
+  )
+  @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+  public Result importArtifacts(HttpServletRequest request) throws IOException {
+    //the body is parsed while it is read, it is never buffered as a whole
+    ArtifactImportResult importResult = this.artifactImportService.importArtifacts(request.getInputStream());
+    return new Result(true, StatusCode.SUCCESS, "Import Success", importResult);
+  }
+
   //update artifact
   @Operation(
           summary = "Update Artifact REST API",
@@ -166,17 +231,49 @@ public class ArtifactController {
   @GetMapping("/summary")
   public Result summarizeArtifacts() throws JsonProcessingException {
 
-    List<Artifact> foundArtifacts = this.artifactService.findAll();
-
-    //convert found artifacts to a list of artifactDtos
-    List<ArtifactDto> foundArtifactDtos = foundArtifacts.stream()
-            .map(this.artifactToArtifactDtoConverter::convert)
-            .collect(Collectors.toList());
-    String artifactSummary = this.artifactService.summarize(foundArtifactDtos);
+    //cached per catalog version, the AI is only asked again after artifacts or their owners change
+    String artifactSummary = this.artifactSummaryService.summarize();
 
     return new Result(true, StatusCode.SUCCESS, "Summarize Success", artifactSummary);
   }
 
+  //the same summary as server-sent events, a "summary" event per piece as the AI generates it and "done" at the end
+  @Operation(
+          summary = "Stream Artifacts summary REST API",
+          description = "Stream Artifacts summary is used to get the summary of artifacts while it is being generated"
+  )
+  @ApiResponse(
+          responseCode = "200",
+          description = "HTTP Status 200 SUCCESS"
+  )
+  @GetMapping(value = "/summary/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamArtifactSummary(){
+    //times out after spring.mvc.async.request-timeout
+    SseEmitter emitter = new SseEmitter();
+    this.artifactSummaryService.stream(content -> {
+              try {
+                emitter.send(SseEmitter.event().name("summary").data(Map.of("content", content), MediaType.APPLICATION_JSON));
+              } catch (IOException e) {
+                //the client went away, stops reading from the AI as well
+                throw new UncheckedIOException(e);
+              }
+            })
+            .whenComplete((ignored, exception) -> {
+              try {
+                if (exception == null) {
+                  emitter.send(SseEmitter.event().name("done").data(new Result(true, StatusCode.SUCCESS, "Summarize Success"), MediaType.APPLICATION_JSON));
+                } else {
+                  //the response is already committed, so the failure is reported as the last event
+                  emitter.send(SseEmitter.event().name("error").data(new Result(false, StatusCode.INTERNAL_SERVER_ERROR, "Summarize Failed"), MediaType.APPLICATION_JSON));
+                }
+                emitter.complete();
+              } catch (IOException e) {
+                emitter.completeWithError(e);
+              }
+            });
+    return emitter;
+  }
+
   //search by criteria
   @Operation(
           summary = "Search Artifacts REST API",
@@ -187,10 +284,16 @@ public class ArtifactController {
           description = "HTTP Status 200 SUCCESS"
   )
   @PostMapping("/search")
-  public Result findArtifactsByCriteria(@RequestBody Map<String, String> searchCriteria, Pageable pageable){
+  public Result findArtifactsByCriteria(@RequestBody Map<String, String> searchCriteria, Pageable pageable,
+                                        @RequestParam(required = false) String cursor){
 
     //user may provide one or more data to make their search, we use
     // Map to map the request body in terms of key and value
+    if(cursor != null){
+      CursorPage<ArtifactDto> artifactDtoCursorPage = this.artifactService.findByCriteria(searchCriteria, cursor, pageable.getPageSize())
+              .map(this.artifactToArtifactDtoConverter::convert);
+      return new Result(true, StatusCode.SUCCESS, "Search Success", artifactDtoCursorPage);
+    }
 
     Page<Artifact> artifactPage = this.artifactService.findByCriteria(searchCriteria, pageable);
     //convert to dto
@@ -208,15 +311,51 @@ public class ArtifactController {
           description = "HTTP Status 200 SUCCESS"
   )
   @PostMapping("/images")
-  public Result uploadImage(@RequestParam String containerName, @RequestParam MultipartFile file) throws IOException {
+  public Result uploadImage(@RequestParam String containerName, @RequestParam MultipartFile file,
+                            @RequestParam(required = false) String sha256) throws IOException {
+    checkSha256(sha256);
     try (InputStream inputStream = file.getInputStream()){
-      String imageUrl = this.imageStorageClient.uploadImage(containerName, file.getOriginalFilename(), inputStream, file.getSize());
+      String imageUrl = this.imageStorageClient.uploadImage(containerName, file.getOriginalFilename(), inputStream, file.getSize(), sha256);
       return new Result(true, StatusCode.SUCCESS, "Image Upload Success", imageUrl);
     }
 
 
   }
 
+  @Operation(
+          summary = "Stream Artifact image REST API",
+          description = "Stream Artifact image sends the raw request body to azure storage blob as it arrives, without a multipart temp file; with the optional sha256 of the image an image stored before is found without its body being read"
+  )
+  @ApiResponse(
+          responseCode = "200",
+          description = "HTTP Status 200 SUCCESS"
+  )
+  @PostMapping(value = "/images", consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, "image/*"})
+  public Result streamImage(@RequestParam String containerName, @RequestParam String imageName,
+                            @RequestParam(required = false) String sha256, HttpServletRequest request) throws IOException {
+    //the name comes from the query string and lends its extension to the stored image
+    if (ImageStorageClient.extension(imageName).isEmpty()) {
+      throw new InvalidImageNameException(imageName);
+    }
+    //with the image's sha256 a stored image is found without its body being read
+    checkSha256(sha256);
+    //the length is checked before any byte is read, so an oversized image is turned down without being received
+    long contentLength = request.getContentLengthLong();
+    if (contentLength < 0 || contentLength > this.maxImageSize.toBytes()) {
+      throw new MaxUploadSizeExceededException(this.maxImageSize.toBytes());
+    }
+    try (InputStream inputStream = request.getInputStream()){
+      String imageUrl = this.imageStorageClient.uploadImage(containerName, imageName, inputStream, contentLength, sha256);
+      return new Result(true, StatusCode.SUCCESS, "Image Upload Success", imageUrl);
+    }
+  }
+
+  private static void checkSha256(String sha256) {
+    if (sha256 != null && !ImageStorageClient.SHA256.matcher(sha256).matches()) {
+      throw new InvalidImageHashException(sha256);
+    }
+  }
+
 }
 
 
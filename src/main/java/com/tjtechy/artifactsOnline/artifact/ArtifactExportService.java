@@ -0,0 +1,37 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import com.tjtechy.artifactsOnline.artifact.converter.ArtifactToArtifactDtoConverter;
+import com.tjtechy.artifactsOnline.system.NdjsonExporter;
+import jakarta.transaction.Transactional;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+@Service
+@Transactional
+public class ArtifactExportService {
+
+  private final ArtifactRepository artifactRepository;
+
+  private final ArtifactToArtifactDtoConverter artifactToArtifactDtoConverter;
+
+  private final NdjsonExporter ndjsonExporter;
+
+  public ArtifactExportService(ArtifactRepository artifactRepository,
+                               ArtifactToArtifactDtoConverter artifactToArtifactDtoConverter,
+                               NdjsonExporter ndjsonExporter) {
+    this.artifactRepository = artifactRepository;
+    this.artifactToArtifactDtoConverter = artifactToArtifactDtoConverter;
+    this.ndjsonExporter = ndjsonExporter;
+  }
+
+  /**
+   * Writes every artifact as one JSON line (NDJSON) to the output stream and returns the number of lines.
+   * Detached artifacts leave only the (few) owners in the persistence context.
+   */
+  public long exportAll(OutputStream outputStream) throws IOException {
+
+    return this.ndjsonExporter.export(this.artifactRepository.streamAll(), this.artifactToArtifactDtoConverter, outputStream);
+  }
+}
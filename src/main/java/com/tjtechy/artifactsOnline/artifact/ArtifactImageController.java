@@ -0,0 +1,139 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import com.tjtechy.artifactsOnline.client.imagestorage.FileSystemImageStorageClient;
+import com.tjtechy.artifactsOnline.system.exception.ObjectNotFoundException;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+@Tag(
+        name = "REST APIs for artifact images",
+        description = "Get Artifact image stored on the local file system (local-storage profile)"
+)
+@RestController
+@Profile("local-storage")
+@RequestMapping("${api.endpoint.base-url}/artifacts/images")
+public class ArtifactImageController {
+
+  //request attributes through which Tomcat sends a file with sendfile once the servlet returns
+  private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  private final FileSystemImageStorageClient fileSystemImageStorageClient;
+
+  public ArtifactImageController(FileSystemImageStorageClient fileSystemImageStorageClient) {
+    this.fileSystemImageStorageClient = fileSystemImageStorageClient;
+  }
+
+  @Operation(
+          summary = "Get Artifact image REST API",
+          description = "Get Artifact image sends an uploaded image, or the byte range of it asked for"
+  )
+  @ApiResponse(
+          responseCode = "200",
+          description = "HTTP Status 200 SUCCESS"
+  )
+  @GetMapping("/{containerName}/{imageName}")
+  public void findImage(@PathVariable String containerName, @PathVariable String imageName,
+                        HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Path image = this.fileSystemImageStorageClient.findImage(containerName, imageName)
+            .orElseThrow(() -> new ObjectNotFoundException("image", imageName));
+    //the name is the SHA-256 of the content, so it is a strong ETag and the content never changes under it
+    String etag = "\"" + imageName.substring(0, 64) + "\"";
+    response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable().getHeaderValue());
+    response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+    if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+      return;
+    }
+
+    long size = Files.size(image);
+    long start = 0;
+    long end = size - 1;
+    HttpRange range = this.range(request, etag);
+    if (range != null) {
+      try {
+        start = range.getRangeStart(size);
+        end = range.getRangeEnd(size);
+      } catch (IllegalArgumentException e) {
+        start = size;
+      }
+      //HttpRange only checks suffix lengths; a first byte past the end is unsatisfiable too
+      if (start >= size || start > end) {
+        response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+        return;
+      }
+      response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+      response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+    }
+    response.setContentType(MediaTypeFactory.getMediaType(imageName).orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+    response.setContentLengthLong(end - start + 1);
+    this.send(image, start, end, request, response);
+  }
+
+  //one range of a matching (or absent) If-Range; several ranges or an unreadable header get the whole image
+  private HttpRange range(HttpServletRequest request, String etag) {
+    String range = request.getHeader(HttpHeaders.RANGE);
+    String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+    if (range == null || (ifRange != null && !ifRange.equals(etag))) {
+      return null;
+    }
+    try {
+      List<HttpRange> ranges = HttpRange.parseRanges(range);
+      return ranges.size() == 1 ? ranges.get(0) : null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  //Tomcat's sendfile where the connector has it, so the bytes go from the page cache to the socket without
+  //passing through the JVM; FileChannel.transferTo to the response stream otherwise
+  private void send(Path image, long start, long end, HttpServletRequest request, HttpServletResponse response) throws IOException {
+    if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+      request.setAttribute(SENDFILE_FILENAME, image.toAbsolutePath().toString());
+      request.setAttribute(SENDFILE_START, start);
+      //exclusive
+      request.setAttribute(SENDFILE_END, end + 1);
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(image, StandardOpenOption.READ)) {
+      WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+      long position = start;
+      while (position <= end) {
+        long transferred = channel.transferTo(position, end + 1 - position, target);
+        if (transferred <= 0) {
+          break;
+        }
+        position += transferred;
+      }
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tjtechy.artifactsOnline.artifact.converter.ArtifactDtoToArtifactConverter;
+import com.tjtechy.artifactsOnline.artifact.dto.ArtifactDto;
+import com.tjtechy.artifactsOnline.artifact.dto.ArtifactImportResult;
+import com.tjtechy.artifactsOnline.artifact.utils.IdWorker;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class ArtifactImportService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactImportService.class);
+
+  private static final String INSERT_ARTIFACT = "insert into artifact (id, name, description, image_url) values (?, ?, ?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final ObjectMapper objectMapper;
+
+  private final Validator validator;
+
+  private final IdWorker idWorker;
+
+  private final ArtifactDtoToArtifactConverter artifactDtoToArtifactConverter;
+
+  private final ArtifactSearchIndex artifactSearchIndex;
+
+  private final ArtifactCatalogVersion artifactCatalogVersion;
+
+  private final int batchSize;
+
+  private final int maxReportedErrors;
+
+  public ArtifactImportService(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               ObjectMapper objectMapper,
+                               Validator validator,
+                               IdWorker idWorker,
+                               ArtifactDtoToArtifactConverter artifactDtoToArtifactConverter,
+                               ArtifactSearchIndex artifactSearchIndex,
+                               ArtifactCatalogVersion artifactCatalogVersion,
+                               @Value("${artifact.import.batch-size:500}") int batchSize,
+                               @Value("${artifact.import.max-reported-errors:1000}") int maxReportedErrors) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.objectMapper = objectMapper;
+    this.validator = validator;
+    this.idWorker = idWorker;
+    this.artifactDtoToArtifactConverter = artifactDtoToArtifactConverter;
+    this.artifactSearchIndex = artifactSearchIndex;
+    this.artifactCatalogVersion = artifactCatalogVersion;
+    this.batchSize = batchSize;
+    this.maxReportedErrors = maxReportedErrors;
+  }
+
+  /**
+   * Imports artifacts from a JSON array or from newline delimited JSON, reading one artifact at a time.
+   * Every batchSize valid artifacts are inserted with one JDBC batch in their own transaction. When the
+   * database turns a chunk down, it is inserted again row by row, so only the rows it rejects are reported.
+   */
+  public ArtifactImportResult importArtifacts(InputStream body) throws IOException {
+    ImportProgress progress = new ImportProgress();
+    List<Artifact> chunk = new ArrayList<>(this.batchSize);
+    List<Long> chunkRows = new ArrayList<>(this.batchSize);
+    long row = 0;
+
+    //readValues unwraps a top level array, and otherwise reads whitespace separated objects
+    try (MappingIterator<ArtifactDto> artifactDtos = this.objectMapper.readerFor(ArtifactDto.class).readValues(body)) {
+      while (true) {
+        ArtifactDto artifactDto;
+        try {
+          if (!artifactDtos.hasNextValue()) {
+            break;
+          }
+          row++;
+          artifactDto = artifactDtos.nextValue();
+        } catch (JsonProcessingException exception) {
+          //malformed JSON can't be resynchronized, report it and stop reading
+          progress.fail(Math.max(row, 1), "malformed JSON: " + exception.getOriginalMessage());
+          break;
+        }
+
+        if (artifactDto == null) {
+          progress.fail(row, "artifact is required");
+          continue;
+        }
+
+        Set<ConstraintViolation<ArtifactDto>> violations = this.validator.validate(artifactDto);
+        if (!violations.isEmpty()) {
+          progress.fail(row, violations.stream()
+                  .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                  .sorted()
+                  .collect(Collectors.joining(", ")));
+          continue;
+        }
+
+        chunk.add(this.artifactDtoToArtifactConverter.convert(artifactDto));
+        chunkRows.add(row);
+        if (chunk.size() == this.batchSize) {
+          this.insertChunk(chunk, chunkRows, progress);
+          chunk.clear();
+          chunkRows.clear();
+        }
+      }
+    }
+    if (!chunk.isEmpty()) {
+      this.insertChunk(chunk, chunkRows, progress);
+    }
+    return progress.toResult();
+  }
+
+  private void insertChunk(List<Artifact> chunk, List<Long> chunkRows, ImportProgress progress) {
+    //one reservation for the whole chunk instead of one nextId() per artifact
+    long[] ids = this.idWorker.nextIds(chunk.size());
+    for (int i = 0; i < chunk.size(); i++) {
+      chunk.get(i).setId(ids[i] + "");
+    }
+    try {
+      this.insert(chunk);
+      progress.imported += chunk.size();
+    } catch (DataAccessException exception) {
+      LOGGER.warn("Artifact import chunk of {} rows failed, inserting it row by row", chunk.size(), exception);
+      for (int i = 0; i < chunk.size(); i++) {
+        try {
+          this.insert(List.of(chunk.get(i)));
+          progress.imported++;
+        } catch (DataAccessException rowException) {
+          progress.fail(chunkRows.get(i), rowException.getMostSpecificCause().getMessage());
+        }
+      }
+    }
+  }
+
+  //one JDBC batch in its own transaction
+  private void insert(List<Artifact> artifacts) {
+    this.transactionTemplate.executeWithoutResult(status -> {
+      this.jdbcTemplate.batchUpdate(INSERT_ARTIFACT, artifacts, artifacts.size(), (preparedStatement, artifact) -> {
+        preparedStatement.setString(1, artifact.getId());
+        preparedStatement.setString(2, artifact.getName());
+        preparedStatement.setString(3, artifact.getDescription());
+        preparedStatement.setString(4, artifact.getImageUrl());
+      });
+      artifacts.forEach(this.artifactSearchIndex::index);
+      //once per batch, applied when the batch commits
+      this.artifactCatalogVersion.bump();
+    });
+  }
+
+  private class ImportProgress {
+
+    private long imported;
+
+    private long failed;
+
+    private final List<ArtifactImportResult.RowError> errors = new ArrayList<>();
+
+    void fail(long row, String message) {
+      this.failed++;
+      if (this.errors.size() < ArtifactImportService.this.maxReportedErrors) {
+        this.errors.add(new ArtifactImportResult.RowError(row, message));
+      }
+    }
+
+    ArtifactImportResult toResult() {
+
+      return new ArtifactImportResult(this.imported, this.failed, this.errors);
+    }
+  }
+}
+
+/*
+* JdbcTemplate is used instead of artifactRepository.save because save() runs a select (merge) per artifact
+* since the id is assigned by us. For MySQL add rewriteBatchedStatements=true to the datasource url
+* so the driver sends each JDBC batch as a multi-row insert.
+* */
@@ -0,0 +1,59 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import com.tjtechy.artifactsOnline.artifact.utils.HeavyHittersSketch;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class ArtifactPopularityService {
+
+  private final HeavyHittersSketch sketch;
+
+  private final int topN;
+
+  private final MultiGauge topArtifactsGauge;
+
+  public ArtifactPopularityService(MeterRegistry meterRegistry,
+                                   @Value("${artifact.popularity.top-n:10}") int topN,
+                                   @Value("${artifact.popularity.sketch-depth:4}") int sketchDepth,
+                                   @Value("${artifact.popularity.sketch-width:2048}") int sketchWidth) {
+    this.topN = topN;
+    //track a few more candidates than we publish, so the tail of the ranking is stable
+    this.sketch = new HeavyHittersSketch(sketchDepth, sketchWidth, topN * 4);
+    this.topArtifactsGauge = MultiGauge.builder("artifact.requests.top")
+            .description("Estimated request count of the most requested artifacts")
+            .register(meterRegistry);
+  }
+
+  public void recordRequest(String artifactId){
+
+    this.sketch.add(artifactId);
+  }
+
+  //a limit of zero or less (e.g. ?limit=-1 on the actuator endpoint) returns an empty ranking
+  public List<Map.Entry<String, Long>> findTopArtifacts(int limit){
+
+    return this.sketch.top(Math.max(0, Math.min(limit, this.topN)));
+  }
+
+  //only the current top N are published, previous rows that dropped out are removed
+  @Scheduled(fixedRateString = "${artifact.popularity.publish-interval-ms:30000}")
+  public void publishTopArtifacts(){
+    this.topArtifactsGauge.register(this.sketch.top(this.topN).stream()
+            .<MultiGauge.Row<?>>map(entry -> MultiGauge.Row.of(Tags.of("artifactId", entry.getKey()), entry.getValue()))
+            .toList(), true);
+  }
+}
+
+/*
+* This replaces the artifact.id.<artifactId> counters that were created for every requested id.
+* Memory is fixed by the sketch size no matter how many distinct ids are requested,
+* and the prometheus scrape only contains topN series.
+* */
@@ -1,9 +1,38 @@
 package com.tjtechy.artifactsOnline.artifact;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.stream.Stream;
+
 @Repository
 public interface ArtifactRepository extends JpaRepository<Artifact, String>, JpaSpecificationExecutor<Artifact> {
+
+  //list and search pages load their owners in the same select (left join) instead of one select per owner
+  @Override
+  @EntityGraph(attributePaths = "owner")
+  Page<Artifact> findAll(Pageable pageable);
+
+  @Override
+  @EntityGraph(attributePaths = "owner")
+  Page<Artifact> findAll(Specification<Artifact> spec, Pageable pageable);
+
+  //rows are pulled from a JDBC cursor 500 at a time instead of materializing the whole table,
+  //the stream must be consumed (and closed) inside a transaction
+  @QueryHints({
+          @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+          @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  @Query("select a from Artifact a order by a.id")
+  Stream<Artifact> streamAll();
+
 }
@@ -0,0 +1,367 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Optional in-JVM trigram inverted index over artifact name and description.
+ * It answers the same "lower(column) like %text%" question as ArtifactSpecs.containsName and
+ * containsDescription without scanning the artifact table: the rarest trigram of the search text
+ * gives the candidates, and each candidate is verified against its stored lower-cased text.
+ * The index is per JVM and only sees the writes committed on its own node, a search answered from it
+ * misses rows other nodes inserted and matches their renamed or deleted rows by their old text.
+ * Unless artifact.search-index.single-node is set, it is therefore reloaded from the database every
+ * artifact.search-index.refresh-interval-ms, which bounds how long that lasts; only a single node
+ * gets results that are exact. Text the index can't answer exactly (shorter than 3 characters or
+ * containing LIKE wildcards) returns Optional.empty() and the caller falls back to SQL, and so does
+ * every search until the first build has finished.
+ * Builds and compactions fill fresh indexes and swap them in, the changes committed meanwhile are
+ * replayed onto them first, so a row read by a build never overwrites a newer committed change.
+ */
+@Component
+public class ArtifactSearchIndex {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactSearchIndex.class);
+
+  private final ArtifactRepository artifactRepository;
+
+  private final boolean enabled;
+
+  private final int maxCandidates;
+
+  private final boolean singleNode;
+
+  //null until the first build has finished
+  private volatile Indexes indexes;
+
+  //changes committed while a build is running, null when none is
+  private List<Consumer<Indexes>> pendingChanges;
+
+  private final Object changeLock = new Object();
+
+  public ArtifactSearchIndex(ArtifactRepository artifactRepository,
+                             @Value("${artifact.search-index.enabled:false}") boolean enabled,
+                             @Value("${artifact.search-index.max-candidates:1000}") int maxCandidates,
+                             @Value("${artifact.search-index.single-node:false}") boolean singleNode) {
+    this.artifactRepository = artifactRepository;
+    this.enabled = enabled;
+    this.maxCandidates = maxCandidates;
+    this.singleNode = singleNode;
+  }
+
+  public boolean isEnabled() {
+
+    return this.enabled;
+  }
+
+  //ids of artifacts whose name contains the text, ignoring case
+  public Optional<Set<String>> findIdsByName(String name) {
+
+    Indexes current = this.indexes;
+    return this.enabled && current != null ? current.name().search(name, this.maxCandidates) : Optional.empty();
+  }
+
+  //ids of artifacts whose description contains the text, ignoring case
+  public Optional<Set<String>> findIdsByDescription(String description) {
+
+    Indexes current = this.indexes;
+    return this.enabled && current != null ? current.description().search(description, this.maxCandidates) : Optional.empty();
+  }
+
+  //applied once the surrounding transaction commits, so a rollback never leaves the index ahead of the DB
+  public void index(Artifact artifact) {
+    if (!this.enabled) {
+      return;
+    }
+    String id = artifact.getId();
+    String name = artifact.getName();
+    String description = artifact.getDescription();
+    afterCommit(() -> this.apply(indexes -> {
+      indexes.name().put(id, name);
+      indexes.description().put(id, description);
+    }));
+  }
+
+  public void remove(String artifactId) {
+    if (!this.enabled) {
+      return;
+    }
+    afterCommit(() -> this.apply(indexes -> {
+      indexes.name().remove(artifactId);
+      indexes.description().remove(artifactId);
+    }));
+  }
+
+  //loads every artifact in id order, batch by batch, when the application starts
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    if (!this.enabled) {
+      return;
+    }
+    this.swapIn(this::load);
+  }
+
+  //picks up the writes committed on other nodes, a full load because artifacts carry no modification time
+  @Scheduled(fixedDelayString = "${artifact.search-index.refresh-interval-ms:300000}",
+          initialDelayString = "${artifact.search-index.refresh-interval-ms:300000}")
+  public void refresh() {
+    if (!this.enabled || this.singleNode || this.indexes == null) {
+      return;
+    }
+    this.swapIn(this::load);
+  }
+
+  //updates and removals leave stale postings behind, once more than half of them are stale
+  //the live documents are copied into fresh indexes
+  @Scheduled(fixedDelayString = "${artifact.search-index.compaction-interval-ms:60000}",
+          initialDelayString = "${artifact.search-index.compaction-interval-ms:60000}")
+  public synchronized void compactIfNeeded() {
+    Indexes current = this.indexes;
+    if (!this.enabled || current == null
+            || !(current.name().needsCompaction() || current.description().needsCompaction())) {
+      return;
+    }
+    this.swapIn(() -> new Indexes(current.name().compacted(), current.description().compacted()));
+    LOGGER.info("Artifact search index compacted");
+  }
+
+  private synchronized void swapIn(Supplier<Indexes> builder) {
+    synchronized (this.changeLock) {
+      this.pendingChanges = new ArrayList<>();
+    }
+    try {
+      Indexes builtIndexes = builder.get();
+      synchronized (this.changeLock) {
+        this.pendingChanges.forEach(change -> change.accept(builtIndexes));
+        this.indexes = builtIndexes;
+      }
+    } finally {
+      synchronized (this.changeLock) {
+        this.pendingChanges = null;
+      }
+    }
+  }
+
+  private void apply(Consumer<Indexes> change) {
+    synchronized (this.changeLock) {
+      Indexes current = this.indexes;
+      if (current != null) {
+        change.accept(current);
+      }
+      if (this.pendingChanges != null) {
+        this.pendingChanges.add(change);
+      }
+    }
+  }
+
+  private Indexes load() {
+    Indexes loadedIndexes = new Indexes(new TrigramIndex(), new TrigramIndex());
+    int batchSize = 1000;
+    String lastId = null;
+    long count = 0;
+    List<Artifact> batch;
+    do {
+      Specification<Artifact> spec = lastId == null ? Specification.where(null) : ArtifactSpecs.hasIdGreaterThan(lastId);
+      batch = this.artifactRepository.findBy(spec, query -> query
+              .sortBy(Sort.by(Sort.Direction.ASC, "id"))
+              .limit(batchSize)
+              .all());
+      for (Artifact artifact : batch) {
+        loadedIndexes.name().put(artifact.getId(), artifact.getName());
+        loadedIndexes.description().put(artifact.getId(), artifact.getDescription());
+        lastId = artifact.getId();
+      }
+      count += batch.size();
+    } while (batch.size() == batchSize);
+    LOGGER.info("Artifact search index built with {} artifacts", count);
+    return loadedIndexes;
+  }
+
+  private static void afterCommit(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          action.run();
+        }
+      });
+    } else {
+      action.run();
+    }
+  }
+
+  private record Indexes(TrigramIndex name, TrigramIndex description) {
+  }
+
+  /**
+   * Trigram postings for one text column. Artifacts get a dense document number and postings are
+   * plain int arrays. Postings are only ever appended: a stale posting is harmless because every
+   * candidate is verified against the current text, and compacted() drops them.
+   */
+  static class TrigramIndex {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> documentNumbers = new HashMap<>();
+
+    private final List<Document> documents = new ArrayList<>();
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    private long postingCount;
+
+    //postings of removed documents and of trigrams a document no longer contains
+    private long stalePostingCount;
+
+    void put(String id, String text) {
+      String lowerText = text == null ? "" : text.toLowerCase(Locale.ROOT);
+      this.lock.writeLock().lock();
+      try {
+        Integer documentNumber = this.documentNumbers.get(id);
+        Set<Long> knownTrigrams = new HashSet<>();
+        if (documentNumber == null) {
+          documentNumber = this.documents.size();
+          this.documents.add(new Document(id, lowerText));
+          this.documentNumbers.put(id, documentNumber);
+        } else {
+          knownTrigrams = trigrams(this.documents.get(documentNumber).text());
+          this.documents.set(documentNumber, new Document(id, lowerText));
+        }
+        Set<Long> newTrigrams = trigrams(lowerText);
+        for (Long trigram : newTrigrams) {
+          if (!knownTrigrams.remove(trigram)) {
+            this.postings.computeIfAbsent(trigram, key -> new Postings()).add(documentNumber);
+            this.postingCount++;
+          }
+        }
+        //what is left are the trigrams the old text had and the new one doesn't
+        this.stalePostingCount += knownTrigrams.size();
+      } finally {
+        this.lock.writeLock().unlock();
+      }
+    }
+
+    void remove(String id) {
+      this.lock.writeLock().lock();
+      try {
+        Integer documentNumber = this.documentNumbers.remove(id);
+        if (documentNumber != null) {
+          this.stalePostingCount += trigrams(this.documents.get(documentNumber).text()).size();
+          this.documents.set(documentNumber, null);
+        }
+      } finally {
+        this.lock.writeLock().unlock();
+      }
+    }
+
+    boolean needsCompaction() {
+      this.lock.readLock().lock();
+      try {
+        return this.stalePostingCount * 2 > this.postingCount;
+      } finally {
+        this.lock.readLock().unlock();
+      }
+    }
+
+    //a copy holding only the live documents and their current trigrams
+    TrigramIndex compacted() {
+      TrigramIndex compactedIndex = new TrigramIndex();
+      this.lock.readLock().lock();
+      try {
+        for (Document document : this.documents) {
+          if (document != null) {
+            compactedIndex.put(document.id(), document.text());
+          }
+        }
+      } finally {
+        this.lock.readLock().unlock();
+      }
+      return compactedIndex;
+    }
+
+    Optional<Set<String>> search(String text, int maxCandidates) {
+      if (text == null || text.length() < 3 || text.indexOf('%') >= 0 || text.indexOf('_') >= 0 || text.indexOf('\\') >= 0) {
+        return Optional.empty();
+      }
+      String lowerText = text.toLowerCase(Locale.ROOT);
+      this.lock.readLock().lock();
+      try {
+        //the rarest trigram of the text gives the smallest candidate list
+        Postings rarest = null;
+        for (Long trigram : trigrams(lowerText)) {
+          Postings candidatePostings = this.postings.get(trigram);
+          if (candidatePostings == null) {
+            return Optional.of(Set.of());
+          }
+          if (rarest == null || candidatePostings.size < rarest.size) {
+            rarest = candidatePostings;
+          }
+        }
+        Set<String> matchingIds = new LinkedHashSet<>();
+        for (int i = 0; i < rarest.size; i++) {
+          Document document = this.documents.get(rarest.documents[i]);
+          if (document != null && document.text().contains(lowerText)) {
+            matchingIds.add(document.id());
+            if (matchingIds.size() > maxCandidates) {
+              //not selective enough to be worth an IN list, let SQL do it
+              return Optional.empty();
+            }
+          }
+        }
+        return Optional.of(matchingIds);
+      } finally {
+        this.lock.readLock().unlock();
+      }
+    }
+
+    //each trigram is packed into a long, 16 bits per char
+    static Set<Long> trigrams(String text) {
+      Set<Long> trigrams = new HashSet<>();
+      for (int i = 0; i + 3 <= text.length(); i++) {
+        trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+      }
+      return trigrams;
+    }
+  }
+
+  private record Document(String id, String text) {
+  }
+
+  private static class Postings {
+
+    private int[] documents = new int[4];
+
+    private int size;
+
+    void add(int documentNumber) {
+      if (this.size == this.documents.length) {
+        this.documents = Arrays.copyOf(this.documents, this.size * 2);
+      }
+      this.documents[this.size++] = documentNumber;
+    }
+  }
+}
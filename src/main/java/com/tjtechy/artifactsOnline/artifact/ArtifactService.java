@@ -1,25 +1,25 @@
 package com.tjtechy.artifactsOnline.artifact;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tjtechy.artifactsOnline.artifact.dto.ArtifactDto;
 import com.tjtechy.artifactsOnline.artifact.utils.IdWorker;
-import com.tjtechy.artifactsOnline.client.ai.chat.ChatClient;
-import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatRequest;
-import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatResponse;
-import com.tjtechy.artifactsOnline.client.ai.chat.dto.Message;
+import com.tjtechy.artifactsOnline.system.CursorPage;
 import com.tjtechy.artifactsOnline.system.exception.ObjectNotFoundException;
+import com.tjtechy.artifactsOnline.wizard.Wizard;
+import com.tjtechy.artifactsOnline.wizard.WizardRepository;
 import io.micrometer.core.annotation.Timed;
 import io.micrometer.observation.annotation.Observed;
 import jakarta.transaction.Transactional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
 @Transactional
@@ -30,21 +30,57 @@ public class ArtifactService {
 
   private final IdWorker idWorker; //generate the unique Id for artifacts for us
 
-  private final ChatClient chatClient;
+  private final ArtifactSummarizer artifactSummarizer;
 
+  private final ArtifactSearchIndex artifactSearchIndex; //optional trigram index for name/description search
 
-  public ArtifactService(ArtifactRepository artifactRepository, IdWorker idWorker, ChatClient chatClient) {
+  private final ArtifactCatalogVersion artifactCatalogVersion; //tells the cached summary that the catalog changed
+
+  private final WizardRepository wizardRepository; //owners' artifact counts
+
+  private final ArtifactCache artifactCache; //what findById returns
+
+
+  public ArtifactService(ArtifactRepository artifactRepository, IdWorker idWorker, ArtifactSummarizer artifactSummarizer,
+                         ArtifactSearchIndex artifactSearchIndex, ArtifactCatalogVersion artifactCatalogVersion,
+                         WizardRepository wizardRepository, ArtifactCache artifactCache) {
 
     this.artifactRepository = artifactRepository;
     this.idWorker = idWorker;
-    this.chatClient = chatClient;
+    this.artifactSummarizer = artifactSummarizer;
+    this.artifactSearchIndex = artifactSearchIndex;
+    this.artifactCatalogVersion = artifactCatalogVersion;
+    this.wizardRepository = wizardRepository;
+    this.artifactCache = artifactCache;
   }
 
+  //a hit on the cached artifact and its cached owner issues no SQL, see ArtifactCache
   @Observed(name = "artifact", contextualName = "findByIdService")
+  @Transactional(Transactional.TxType.SUPPORTS)
   public Artifact findById(String artifactId){
+    ArtifactCache.CachedArtifact cachedArtifact = this.artifactCache.findArtifact(artifactId);
+    if(cachedArtifact == null){
+      long invalidations = this.artifactCache.invalidations();
+      Artifact foundArtifact = this.artifactRepository.findById(artifactId)
+              .orElseThrow(()-> new ObjectNotFoundException("artifact",artifactId));
+      this.artifactCache.put(foundArtifact, invalidations);
+      return foundArtifact;
+    }
+    if(cachedArtifact.ownerId() == null){
+      return cachedArtifact.toArtifact(null);
+    }
 
-    return this.artifactRepository.findById(artifactId)
-            .orElseThrow(()-> new ObjectNotFoundException("artifact",artifactId));
+    ArtifactCache.CachedOwner cachedOwner = this.artifactCache.findOwner(cachedArtifact.ownerId());
+    if(cachedOwner != null){
+      return cachedArtifact.toArtifact(cachedOwner.toWizard());
+    }
+    long invalidations = this.artifactCache.invalidations();
+    //a deleted owner leaves the artifact unassigned, like the foreign key it nulled
+    Wizard owner = this.wizardRepository.findById(cachedArtifact.ownerId()).orElse(null);
+    if(owner != null){
+      this.artifactCache.put(owner, invalidations);
+    }
+    return cachedArtifact.toArtifact(owner);
   }
 
   @Timed("findAllArtifactsService.time")
@@ -58,7 +94,10 @@ public class ArtifactService {
     //first generate Id and convert to string
     newArtifact.setId(idWorker.nextId() + "");
 
-    return this.artifactRepository.save(newArtifact);
+    Artifact savedArtifact = this.artifactRepository.save(newArtifact);
+    this.artifactSearchIndex.index(savedArtifact);
+    this.artifactCatalogVersion.bump();
+    return savedArtifact;
   }
 
   public Artifact update(String artifactId, Artifact update){
@@ -71,7 +110,11 @@ public class ArtifactService {
               oldArtifact.setDescription(update.getDescription());
               oldArtifact.setImageUrl(update.getImageUrl());
 
-              return this.artifactRepository.save(oldArtifact);
+              Artifact updatedArtifact = this.artifactRepository.save(oldArtifact);
+              this.artifactCache.evictArtifact(artifactId);
+              this.artifactSearchIndex.index(updatedArtifact);
+              this.artifactCatalogVersion.bump();
+              return updatedArtifact;
 
             })
             .orElseThrow(() -> new ObjectNotFoundException("artifact", artifactId));
@@ -80,24 +123,34 @@ public class ArtifactService {
   public void delete(String artifactId){
     //first find if Id exist or not, then delete
 
-    this.artifactRepository.findById(artifactId)
+    Artifact artifactToBeDeleted = this.artifactRepository.findById(artifactId)
             .orElseThrow(() -> new ObjectNotFoundException("artifact", artifactId));
+    //keep the owner's artifact count in step
+    if(artifactToBeDeleted.getOwner() != null){
+      Wizard owner = artifactToBeDeleted.getOwner();
+      owner.removeArtifact(artifactToBeDeleted);
+      this.wizardRepository.changeNumberOfArtifacts(owner.getId(), -1);
+      this.artifactCache.evictOwner(owner.getId());
+    }
     this.artifactRepository.deleteById(artifactId);
+    this.artifactCache.evictArtifact(artifactId);
+    this.artifactSearchIndex.remove(artifactId);
+    this.artifactCatalogVersion.bump();
   }
 
+  //split into chunks and summarized with map-reduce when the catalog doesn't fit into one prompt;
+  //outside a transaction so no pooled connection is held while waiting on the AI
+  @Transactional(Transactional.TxType.NOT_SUPPORTED)
   public String summarize(List<ArtifactDto> artifactDtos) throws JsonProcessingException {
-    ObjectMapper objectMapper = new ObjectMapper();
-    String jsonArray = objectMapper.writeValueAsString(artifactDtos);
-
-    //prepare messages for summarizing
-    List<Message> messages = List.of(
-            new Message("system", "Your task is to generate a short summary of a given JSON array in at most 100 words. The summary must include the number of artifacts, each artifact's description and the ownership information. Don't mention that the summary is from a given JSON array."),
-            new Message("user", jsonArray)
-    );
-    ChatRequest chatRequest = new ChatRequest("gpt-3.5-turbo", messages);
-    ChatResponse chatResponse = this.chatClient.generate(chatRequest); //tell chatClient to generate a text summary based on given chatRequest
-    return chatResponse.choices().get(0).message().content();
 
+    return this.artifactSummarizer.summarize(artifactDtos);
+  }
+
+  //the same summary, handed to onContent piece by piece as the AI generates it
+  @Transactional(Transactional.TxType.NOT_SUPPORTED)
+  public String summarize(List<ArtifactDto> artifactDtos, Consumer<String> onContent) throws JsonProcessingException {
+
+    return this.artifactSummarizer.summarize(artifactDtos, onContent);
   }
 
   public Page<Artifact> findAll(Pageable pageable) {
@@ -109,24 +162,63 @@ public class ArtifactService {
   public Page<Artifact> findByCriteria(Map<String, String> searchCriteria, Pageable pageable) {
 
     //modify the securityConfig file to allow access to that this end point
+    return this.artifactRepository.findAll(buildSpecification(searchCriteria), pageable);
+  }
+
+  //keyset (seek) paging: no offset scan and no count(*) query, ordered by the time-ordered Snowflake id
+  public CursorPage<Artifact> findAll(String cursor, int size) {
+
+    return this.findByCriteria(Map.of(), cursor, size);
+  }
+
+  public CursorPage<Artifact> findByCriteria(Map<String, String> searchCriteria, String cursor, int size) {
+    Specification<Artifact> spec = buildSpecification(searchCriteria);
+
+    String lastId = CursorPage.decodeCursor(cursor);
+    if(lastId != null){
+      spec = spec.and(ArtifactSpecs.hasIdGreaterThan(lastId));
+    }
+
+    //fetch one extra row to know whether there is a next page
+    List<Artifact> rows = this.artifactRepository.findBy(spec, query -> query
+            .project("owner") //fetch graph, owners are joined like on the offset path
+            .sortBy(Sort.by(Sort.Direction.ASC, "id"))
+            .limit(size + 1)
+            .all());
+
+    if(rows.size() <= size){
+      return new CursorPage<>(rows, size, null);
+    }
+    List<Artifact> content = rows.subList(0, size);
+    return new CursorPage<>(content, size, CursorPage.encodeCursor(content.get(size - 1).getId()));
+  }
+
+  private Specification<Artifact> buildSpecification(Map<String, String> searchCriteria) {
     Specification<Artifact> spec = Specification.where(null);//create a base specification
 
     if(StringUtils.hasLength(searchCriteria.get("id"))){
       spec = spec.and(ArtifactSpecs.hasId(searchCriteria.get("id")));
     }
 
-    if(StringUtils.hasLength(searchCriteria.get("name"))){
-      spec = spec.and(ArtifactSpecs.containsName(searchCriteria.get("name")));
+    //the search index resolves the matching ids when it can, otherwise the like query scans the table
+    String name = searchCriteria.get("name");
+    if(StringUtils.hasLength(name)){
+      spec = spec.and(this.artifactSearchIndex.findIdsByName(name)
+              .map(ArtifactSpecs::hasIdIn)
+              .orElseGet(() -> ArtifactSpecs.containsName(name)));
     }
 
-    if(StringUtils.hasLength(searchCriteria.get("description"))){
-      spec = spec.and(ArtifactSpecs.containsDescription(searchCriteria.get("description")));
+    String description = searchCriteria.get("description");
+    if(StringUtils.hasLength(description)){
+      spec = spec.and(this.artifactSearchIndex.findIdsByDescription(description)
+              .map(ArtifactSpecs::hasIdIn)
+              .orElseGet(() -> ArtifactSpecs.containsDescription(description)));
     }
 
     if(StringUtils.hasLength(searchCriteria.get("ownerName"))){
       spec = spec.and(ArtifactSpecs.hasOwnerName(searchCriteria.get("ownerName")));
     }
-    return this.artifactRepository.findAll(spec, pageable);
+    return spec;
   }
 }
 
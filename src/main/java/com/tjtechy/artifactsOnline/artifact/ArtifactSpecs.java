@@ -6,6 +6,8 @@ import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.util.Collection;
+
 //we will define 3 static methods using Id, Name and Description
 public class ArtifactSpecs {
   public static Specification<Artifact> hasId(String providedId){
@@ -23,6 +25,17 @@ public class ArtifactSpecs {
             criteriaBuilder.like(criteriaBuilder.lower(root.get("description")), "%" + providedDescription.toLowerCase() + "%");
   }
 
+  public static Specification<Artifact> hasIdIn(Collection<String> providedIds){
+    return (root, query, criteriaBuilder) ->
+            providedIds.isEmpty() ? criteriaBuilder.disjunction() : root.get("id").in(providedIds);
+  }
+
+  //seek predicate for keyset paging, rows come after the last id of the previous page
+  public static Specification<Artifact> hasIdGreaterThan(String lastId){
+    return (root, query, criteriaBuilder) ->
+            criteriaBuilder.greaterThan(root.get("id"), lastId);
+  }
+
   public static Specification<Artifact> hasOwnerName(String provideOwnerName){
     return (root, query, criteriaBuilder) ->
             criteriaBuilder.equal(criteriaBuilder.lower(root.get("owner").get("name")), provideOwnerName.toLowerCase());
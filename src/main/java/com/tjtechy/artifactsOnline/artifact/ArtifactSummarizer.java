@@ -0,0 +1,209 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tjtechy.artifactsOnline.artifact.dto.ArtifactDto;
+import com.tjtechy.artifactsOnline.client.ai.chat.ChatClient;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatRequest;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatResponse;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.Message;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Summarizes the catalog with map-reduce so it never has to fit into one prompt.
+ * Artifacts are split into chunks of at most chunk-tokens, the chunks are summarized in parallel on
+ * max-concurrency threads, and the partial summaries are combined by further calls until one is left.
+ * Every call's answer is cached by the SHA-256 of its prompt, so after a catalog change only the chunks
+ * that changed (and the combining calls above them) go to the AI again. A catalog that fits into one
+ * chunk is summarized with a single call, exactly as before.
+ */
+@Component
+public class ArtifactSummarizer {
+
+  static final String MODEL = "gpt-3.5-turbo";
+
+  static final String SUMMARIZE_PROMPT = "Your task is to generate a short summary of a given JSON array in at most 100 words. The summary must include the number of artifacts, each artifact's description and the ownership information. Don't mention that the summary is from a given JSON array.";
+
+  static final String COMBINE_PROMPT = "Your task is to combine the given summaries of parts of an artifact catalog into one short summary in at most 100 words. The summary must include the total number of artifacts given in the first line, the most notable artifacts and the ownership information. Don't mention that the summary is made from other summaries.";
+
+  //the usual estimate for English and JSON with OpenAI's tokenizers, without shipping one
+  private static final int CHARS_PER_TOKEN = 4;
+
+  //on average one chunk boundary per this many artifacts once a chunk is half full
+  private static final int BOUNDARY_SPACING = 8;
+
+  private final ChatClient chatClient;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final int chunkTokens;
+
+  private final ExecutorService executor;
+
+  private final Cache<String, String> summaries;
+
+  public ArtifactSummarizer(ChatClient chatClient,
+                            MeterRegistry meterRegistry,
+                            @Value("${artifact.summary.chunk-tokens:3000}") int chunkTokens,
+                            @Value("${artifact.summary.max-concurrency:4}") int maxConcurrency,
+                            @Value("${artifact.summary.chunk-cache-size:10000}") long chunkCacheSize) {
+    this.chatClient = chatClient;
+    this.chunkTokens = chunkTokens;
+    //a fixed number of virtual threads: bounds the calls in flight without holding platform threads while they wait
+    this.executor = Executors.newFixedThreadPool(maxConcurrency, Thread.ofVirtual().name("artifact-summary-", 0).factory());
+    this.summaries = Caffeine.newBuilder()
+            .maximumSize(chunkCacheSize)
+            .recordStats()
+            .build();
+    //cache.gets{cache=artifact-summary,result=hit|miss}, cache.evictions, cache.size
+    CaffeineCacheMetrics.monitor(meterRegistry, this.summaries, "artifact-summary");
+  }
+
+  public String summarize(List<ArtifactDto> artifactDtos) throws JsonProcessingException {
+
+    return this.summarize(artifactDtos, null);
+  }
+
+  //the final call is streamed to onContent as the AI generates it, the chunks before it are summarized as usual
+  public String summarize(List<ArtifactDto> artifactDtos, Consumer<String> onContent) throws JsonProcessingException {
+    List<String> chunks = this.chunk(artifactDtos);
+    if (chunks.size() == 1) {
+      return this.generate(SUMMARIZE_PROMPT, chunks.get(0), onContent);
+    }
+
+    //map
+    List<String> summaries = this.generateAll(SUMMARIZE_PROMPT, chunks);
+    //reduce, in as many rounds as the partial summaries need
+    while (true) {
+      List<String> groups = this.group(summaries, "Total number of artifacts: " + artifactDtos.size());
+      if (groups.size() == 1) {
+        return this.generate(COMBINE_PROMPT, groups.get(0), onContent);
+      }
+      summaries = this.generateAll(COMBINE_PROMPT, groups);
+    }
+  }
+
+  //JSON arrays of at most chunkTokens each, in id (creation) order
+  List<String> chunk(List<ArtifactDto> artifactDtos) throws JsonProcessingException {
+    List<ArtifactDto> sorted = artifactDtos.stream()
+            .sorted(Comparator.comparing(ArtifactDto::id, Comparator.nullsFirst(Comparator.naturalOrder())))
+            .toList();
+    List<String> chunks = new ArrayList<>();
+    List<String> chunk = new ArrayList<>();
+    int chunkLength = 1; //"["
+    for (ArtifactDto artifactDto : sorted) {
+      String json = this.objectMapper.writeValueAsString(artifactDto);
+      int length = json.length() + 1; //"," or "]"
+      //besides the size limit, half full chunks also end before artifacts whose id hashes to a boundary, so
+      //inserting or deleting an artifact moves the boundaries around it only and the chunks after it stay cached
+      boolean full = chunkLength + length > this.chunkTokens * CHARS_PER_TOKEN;
+      boolean boundary = chunkLength >= this.chunkTokens * CHARS_PER_TOKEN / 2
+              && Math.floorMod(String.valueOf(artifactDto.id()).hashCode(), BOUNDARY_SPACING) == 0;
+      if (!chunk.isEmpty() && (full || boundary)) {
+        chunks.add("[" + String.join(",", chunk) + "]");
+        chunk.clear();
+        chunkLength = 1;
+      }
+      chunk.add(json);
+      chunkLength += length;
+    }
+    chunks.add("[" + String.join(",", chunk) + "]");
+    return chunks;
+  }
+
+  //the header and as many partial summaries as fit into chunkTokens per group
+  private List<String> group(List<String> summaries, String header) {
+    List<String> groups = new ArrayList<>();
+    StringBuilder group = new StringBuilder(header);
+    int parts = 0;
+    for (String summary : summaries) {
+      //a group takes at least two summaries, otherwise the rounds would not shrink
+      if (parts >= 2 && group.length() + summary.length() + 2 > this.chunkTokens * CHARS_PER_TOKEN) {
+        groups.add(group.toString());
+        group = new StringBuilder(header);
+        parts = 0;
+      }
+      group.append("\n\n").append(summary);
+      parts++;
+    }
+    groups.add(group.toString());
+    return groups;
+  }
+
+  private List<String> generateAll(String systemPrompt, List<String> prompts) {
+    List<CompletableFuture<String>> futures = prompts.stream()
+            .map(prompt -> CompletableFuture.supplyAsync(() -> this.generate(systemPrompt, prompt, null), this.executor))
+            .toList();
+    try {
+      return futures.stream().map(CompletableFuture::join).toList();
+    } catch (CompletionException e) {
+      //the AI client's exception, as a single call would have thrown it
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw e;
+    }
+  }
+
+  private String generate(String systemPrompt, String prompt, Consumer<String> onContent) {
+    //failures are not cached, concurrent misses for the same prompt may both ask the AI
+    String key = sha256(systemPrompt + "\n" + prompt);
+    String summary = this.summaries.getIfPresent(key);
+    if (summary != null) {
+      if (onContent != null) {
+        onContent.accept(summary);
+      }
+      return summary;
+    }
+    ChatRequest chatRequest = new ChatRequest(MODEL, List.of(
+            new Message("system", systemPrompt),
+            new Message("user", prompt)
+    ));
+    if (onContent == null) {
+      ChatResponse chatResponse = this.chatClient.generate(chatRequest);
+      summary = chatResponse.choices().get(0).message().content();
+    } else {
+      StringBuilder streamed = new StringBuilder();
+      this.chatClient.stream(chatRequest, content -> {
+        streamed.append(content);
+        onContent.accept(content);
+      });
+      summary = streamed.toString();
+    }
+    this.summaries.put(key, summary);
+    return summary;
+  }
+
+  private static String sha256(String value) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+
+    this.executor.shutdownNow();
+  }
+}
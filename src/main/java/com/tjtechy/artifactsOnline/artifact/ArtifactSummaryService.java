@@ -0,0 +1,228 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tjtechy.artifactsOnline.artifact.converter.ArtifactToArtifactDtoConverter;
+import com.tjtechy.artifactsOnline.artifact.dto.ArtifactDto;
+import com.tjtechy.artifactsOnline.client.ai.chat.ChatClientUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * The AI summary of the whole catalog, cached under the ArtifactCatalogVersion it was made from.
+ * While the version is unchanged (and the summary younger than max-age) GET /artifacts/summary neither reads the
+ * catalog nor calls the AI. Once it changes, one background refresh runs at a time (single flight) and readers get
+ * the previous summary until it completes (stale while revalidate); only the very first readers wait for it.
+ * A refresh whose prompt has the same SHA-256 as the cached summary's (e.g. a rename back) reuses it without
+ * calling the AI. An artifact.summary.max-age of 0 turns the cache off.
+ */
+@Service
+public class ArtifactSummaryService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactSummaryService.class);
+
+  private final ArtifactService artifactService;
+
+  private final ArtifactToArtifactDtoConverter artifactToArtifactDtoConverter;
+
+  private final ArtifactCatalogVersion artifactCatalogVersion;
+
+  private final Executor executor;
+
+  private final Duration maxAge;
+
+  private final Clock clock;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final AtomicReference<Summary> current = new AtomicReference<>();
+
+  private final AtomicReference<CompletableFuture<Summary>> refreshing = new AtomicReference<>();
+
+  private final Counter generated;
+
+  private final Counter reused;
+
+  @Autowired
+  public ArtifactSummaryService(ArtifactService artifactService,
+                                ArtifactToArtifactDtoConverter artifactToArtifactDtoConverter,
+                                ArtifactCatalogVersion artifactCatalogVersion,
+                                @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor,
+                                MeterRegistry meterRegistry,
+                                @Value("${artifact.summary.max-age:1h}") Duration maxAge) {
+    this(artifactService, artifactToArtifactDtoConverter, artifactCatalogVersion, executor, meterRegistry, maxAge,
+            Clock.systemUTC());
+  }
+
+  ArtifactSummaryService(ArtifactService artifactService, ArtifactToArtifactDtoConverter artifactToArtifactDtoConverter,
+                         ArtifactCatalogVersion artifactCatalogVersion, Executor executor, MeterRegistry meterRegistry,
+                         Duration maxAge, Clock clock) {
+    this.artifactService = artifactService;
+    this.artifactToArtifactDtoConverter = artifactToArtifactDtoConverter;
+    this.artifactCatalogVersion = artifactCatalogVersion;
+    this.executor = executor;
+    this.maxAge = maxAge;
+    this.clock = clock;
+    //artifact.summary.refreshes{result=generated|reused}: AI calls made against refreshes answered by the content hash
+    this.generated = Counter.builder("artifact.summary.refreshes").tag("result", "generated").register(meterRegistry);
+    this.reused = Counter.builder("artifact.summary.refreshes").tag("result", "reused").register(meterRegistry);
+  }
+
+  public String summarize() throws JsonProcessingException {
+    if (this.maxAge.isZero()) {
+      //caching switched off, every request asks the AI
+      return this.load(null).text();
+    }
+    Summary summary = this.current.get();
+    if (this.isCurrent(summary)) {
+      return summary.text();
+    }
+    CompletableFuture<Summary> refresh = this.refresh();
+    if (summary != null) {
+      //stale while revalidate
+      return summary.text();
+    }
+    try {
+      return refresh.join().text();
+    } catch (CompletionException e) {
+      //the same exceptions an uncached call would have thrown (the AI client's, ObjectNotFound...)
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (e.getCause() instanceof JsonProcessingException jsonProcessingException) {
+        throw jsonProcessingException;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Streams the summary to onContent on the task executor: a current summary in one piece, otherwise as the AI
+   * generates a new one. Streaming readers don't join the background refresh, they would see nothing until it ends.
+   * While the AI client refuses calls (ChatClientUnavailableException) a stale summary is streamed instead.
+   */
+  public CompletableFuture<Void> stream(Consumer<String> onContent) {
+
+    return CompletableFuture.runAsync(() -> {
+      Summary summary = this.current.get();
+      if (this.isCurrent(summary)) {
+        onContent.accept(summary.text());
+        return;
+      }
+      try {
+        this.store(this.load(onContent));
+      } catch (ChatClientUnavailableException e) {
+        //refused before anything was streamed, the previous summary is better than none
+        if (summary == null) {
+          throw e;
+        }
+        onContent.accept(summary.text());
+      } catch (JsonProcessingException e) {
+        throw new CompletionException(e);
+      }
+    }, this.executor);
+  }
+
+  private boolean isCurrent(Summary summary) {
+
+    return summary != null && summary.version() == this.artifactCatalogVersion.current()
+            && summary.createdAt().plus(this.maxAge).isAfter(this.clock.instant());
+  }
+
+  //a summary of an older catalog version doesn't replace a newer one finished meanwhile
+  private void store(Summary summary) {
+    this.current.accumulateAndGet(summary, (cached, loaded) ->
+            cached == null || cached.version() <= loaded.version() ? loaded : cached);
+  }
+
+  //joins the running refresh, or starts one
+  private CompletableFuture<Summary> refresh() {
+    while (true) {
+      CompletableFuture<Summary> running = this.refreshing.get();
+      if (running != null) {
+        return running;
+      }
+      CompletableFuture<Summary> refresh = new CompletableFuture<>();
+      if (this.refreshing.compareAndSet(null, refresh)) {
+        try {
+          this.executor.execute(() -> this.complete(refresh));
+        } catch (RuntimeException e) {
+          //executor rejected the task
+          this.refreshing.set(null);
+          refresh.completeExceptionally(e);
+        }
+        return refresh;
+      }
+    }
+  }
+
+  private void complete(CompletableFuture<Summary> refresh) {
+    try {
+      Summary summary = this.load(null);
+      this.store(summary);
+      refresh.complete(summary);
+    } catch (Throwable e) {
+      //readers keep the previous summary, the next request tries again
+      LOGGER.warn("Artifact summary refresh failed", e);
+      refresh.completeExceptionally(e);
+    } finally {
+      this.refreshing.set(null);
+    }
+  }
+
+  //onContent, when given, gets the text as it is generated
+  private Summary load(Consumer<String> onContent) throws JsonProcessingException {
+    //the version is read before the catalog, a write committed meanwhile bumps it again and triggers another refresh
+    long version = this.artifactCatalogVersion.current();
+    Instant now = this.clock.instant();
+    List<ArtifactDto> artifactDtos = this.artifactService.findAll().stream()
+            .map(this.artifactToArtifactDtoConverter::convert)
+            .toList();
+    String contentHash = sha256(this.objectMapper.writeValueAsString(artifactDtos));
+    Summary previous = this.current.get();
+    if (previous != null && previous.contentHash().equals(contentHash)) {
+      this.reused.increment();
+      if (onContent != null) {
+        onContent.accept(previous.text());
+      }
+      return new Summary(version, contentHash, previous.text(), now);
+    }
+    String text = onContent != null
+            ? this.artifactService.summarize(artifactDtos, onContent)
+            : this.artifactService.summarize(artifactDtos);
+    this.generated.increment();
+    return new Summary(version, contentHash, text, now);
+  }
+
+  private static String sha256(String value) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  private record Summary(long version, String contentHash, String text, Instant createdAt) {
+  }
+}
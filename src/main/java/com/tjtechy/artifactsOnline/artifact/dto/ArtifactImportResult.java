@@ -0,0 +1,14 @@
+package com.tjtechy.artifactsOnline.artifact.dto;
+
+import java.util.List;
+
+public record ArtifactImportResult(long imported,
+                                   long failed,
+                                   List<RowError> errors) {
+
+  //row is the 1-based position of the artifact in the request body
+  public record RowError(long row,
+                         String message) {
+  }
+}
+/*only the first artifact.import.max-reported-errors errors are listed, failed counts all of them*/
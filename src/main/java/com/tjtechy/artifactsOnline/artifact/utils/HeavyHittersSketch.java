@@ -0,0 +1,120 @@
+package com.tjtechy.artifactsOnline.artifact.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory frequency sketch that keeps track of the most frequently seen keys.
+ * A count-min sketch estimates every key's count, and a small candidate map keeps
+ * the keys whose estimate is currently among the highest.
+ * Counters are updated with atomic increments, so no lock is taken on the hot path.
+ */
+public class HeavyHittersSketch {
+
+  private final int depth;
+
+  private final int width;
+
+  private final AtomicLongArray counters; // depth rows of width counters each
+
+  private final int capacity; // maximum number of tracked candidates
+
+  private final ConcurrentHashMap<String, Long> candidates;
+
+  private volatile long admissionThreshold = 0L; // smallest estimate seen when the last candidate was evicted
+
+  public HeavyHittersSketch(int depth, int width, int capacity) {
+    if (depth <= 0 || width <= 0 || capacity <= 0) {
+      throw new IllegalArgumentException("depth, width and capacity must be greater than 0");
+    }
+    this.depth = depth;
+    this.width = width;
+    this.capacity = capacity;
+    this.counters = new AtomicLongArray(depth * width);
+    this.candidates = new ConcurrentHashMap<>(capacity * 2);
+  }
+
+  /**
+   * Records one occurrence of the key and returns its estimated count.
+   * The estimate never under counts, it may over count when keys collide in every row.
+   */
+  public long add(String key) {
+    int hash1 = key.hashCode();
+    int hash2 = spread(hash1);
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < this.depth; row++) {
+      //double hashing gives every row an independent-enough index from two hashes
+      int column = Math.floorMod(hash1 + row * hash2, this.width);
+      estimate = Math.min(estimate, this.counters.incrementAndGet(row * this.width + column));
+    }
+    offer(key, estimate);
+    return estimate;
+  }
+
+  /**
+   * Estimated count of the key, without recording an occurrence.
+   */
+  public long estimate(String key) {
+    int hash1 = key.hashCode();
+    int hash2 = spread(hash1);
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < this.depth; row++) {
+      int column = Math.floorMod(hash1 + row * hash2, this.width);
+      estimate = Math.min(estimate, this.counters.get(row * this.width + column));
+    }
+    return estimate;
+  }
+
+  /**
+   * The n keys with the highest estimated counts, most frequent first.
+   */
+  public List<Map.Entry<String, Long>> top(int n) {
+    List<Map.Entry<String, Long>> snapshot = new ArrayList<>(this.candidates.size());
+    this.candidates.forEach((key, count) -> snapshot.add(Map.entry(key, count)));
+    snapshot.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+    return snapshot.size() > n ? new ArrayList<>(snapshot.subList(0, n)) : snapshot;
+  }
+
+  private void offer(String key, long estimate) {
+    //already tracked: only ever move its count forward
+    if (this.candidates.computeIfPresent(key, (k, current) -> Math.max(current, estimate)) != null) {
+      return;
+    }
+    if (this.candidates.size() < this.capacity) {
+      this.candidates.merge(key, estimate, Math::max);
+      return;
+    }
+    if (estimate <= this.admissionThreshold) {
+      return;
+    }
+    //the map is full, replace the weakest candidate if this key has overtaken it
+    Map.Entry<String, Long> weakest = null;
+    for (Map.Entry<String, Long> candidate : this.candidates.entrySet()) {
+      if (weakest == null || candidate.getValue() < weakest.getValue()) {
+        weakest = Map.entry(candidate.getKey(), candidate.getValue());
+      }
+    }
+    if (weakest == null) {
+      return;
+    }
+    this.admissionThreshold = weakest.getValue();
+    if (estimate > weakest.getValue() && this.candidates.remove(weakest.getKey(), weakest.getValue())) {
+      this.candidates.merge(key, estimate, Math::max);
+    }
+  }
+
+  private static int spread(int hash) {
+    //murmur3 finalizer, so the second hash is not a linear function of the first; forced odd
+    int h = hash;
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h | 1;
+  }
+}
@@ -1,17 +1,19 @@
 package com.tjtechy.artifactsOnline.artifact.utils;
 
-import java.lang.management.ManagementFactory;
-import java.net.InetAddress;
-import java.net.NetworkInterface;
-
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Twitter snowflake style id generator: 41 bits of milliseconds since twepoch,
+ * 5 bits datacenter id, 5 bits worker id and a 12 bit per-millisecond sequence.
+ * The millisecond and the sequence are packed into one AtomicLong and advanced with
+ * compare-and-set, so callers don't lock each other out.
+ * An id never carries a millisecond the wall clock hasn't reached: when the 4096 ids of a
+ * millisecond are used up, or the clock moved backwards, the caller waits for the clock.
+ */
 public class IdWorker {
 
-  /**
-   * This piece of code is from the Internet. The quality is unknown.
-   * Only for demoing purpose. Use with caution!
-   * it is from twitter snow flakes algorithm
-   */
-
     private final static long twepoch = 1288834974657L;
 
     private final static long workerIdBits = 5L;
@@ -32,20 +34,13 @@ public class IdWorker {
 
     private final static long sequenceMask = -1L ^ (-1L << sequenceBits);
 
-    private static long lastTimestamp = -1L;
-
-    private long sequence = 0L;
+    //(milliseconds since twepoch << sequenceBits) | sequence of the last id handed out
+    private final AtomicLong lastState = new AtomicLong(-1L);
 
     private final long workerId;
 
     private final long datacenterId;
 
-
-    public IdWorker() {
-      this.datacenterId = getDatacenterId(maxDatacenterId);
-      this.workerId = getMaxWorkerId(datacenterId, maxWorkerId);
-    }
-
     public IdWorker(long workerId, long datacenterId) {
       if (workerId > maxWorkerId || workerId < 0) {
         throw new IllegalArgumentException(String.format("worker Id can't be greater than %d or less than 0", maxWorkerId));
@@ -57,65 +52,71 @@ public class IdWorker {
       this.datacenterId = datacenterId;
     }
 
-    public synchronized long nextId() {
-      long timestamp = timeGen();
-      if (timestamp < lastTimestamp) {
-        throw new RuntimeException(String.format("Clock moved backwards.  Refusing to generate id for %d milliseconds", lastTimestamp - timestamp));
+    public long nextId() {
+
+      return toId(reserve(1));
+    }
+
+    /**
+     * Reserves count consecutive ids with a single compare-and-set, for bulk paths.
+     */
+    public long[] nextIds(int count) {
+      if (count <= 0) {
+        throw new IllegalArgumentException("count must be greater than 0");
       }
-      if (lastTimestamp == timestamp) {
-        sequence = (sequence + 1) & sequenceMask;
-        if (sequence == 0) {
-          timestamp = tilNextMillis(lastTimestamp);
+      long firstState = reserve(count);
+      long[] ids = new long[count];
+      for (int i = 0; i < count; i++) {
+        ids[i] = toId(firstState + i);
+      }
+      return ids;
+    }
+
+    //returns the first state of a block of count states
+    private long reserve(int count) {
+      while (true) {
+        long current = this.lastState.get();
+        long now = (timeGen() - twepoch) << sequenceBits;
+        //a new millisecond starts at sequence 0, otherwise continue after the last id
+        long first = Math.max(now, current + 1);
+        long last = first + count - 1;
+        //the block is kept while waiting, a bulk block spans several milliseconds and would move with the clock
+        long lastMillis = last >>> sequenceBits;
+        for (long nowMillis = now >>> sequenceBits; nowMillis < lastMillis; nowMillis = timeGen() - twepoch) {
+          waitForClock(lastMillis - nowMillis);
+        }
+        if (this.lastState.compareAndSet(current, last)) {
+          return first;
         }
-      } else {
-        sequence = 0L;
       }
-      lastTimestamp = timestamp;
-      long nextId = ((timestamp - twepoch) << timestampLeftShift)
-              | (datacenterId << datacenterIdShift)
-              | (workerId << workerIdShift) | sequence;
-      return nextId;
     }
 
-    private long tilNextMillis(final long lastTimestamp) {
-      long timestamp = this.timeGen();
-      while (timestamp <= lastTimestamp) {
-        timestamp = this.timeGen();
+    //spins through the rest of a millisecond, parks through a longer wait like a clock set back
+    private static void waitForClock(long lagMillis) {
+      if (lagMillis > 1) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(lagMillis - 1));
+      } else {
+        Thread.onSpinWait();
       }
-      return timestamp;
+    }
+
+    private long toId(long state) {
+      return ((state >>> sequenceBits) << timestampLeftShift)
+              | (datacenterId << datacenterIdShift)
+              | (workerId << workerIdShift)
+              | (state & sequenceMask);
     }
 
     private long timeGen() {
       return System.currentTimeMillis();
     }
 
-    protected static long getMaxWorkerId(long datacenterId, long maxWorkerId) {
-      StringBuffer mpid = new StringBuffer();
-      mpid.append(datacenterId);
-      String name = ManagementFactory.getRuntimeMXBean().getName();
-      if (!name.isEmpty()) {
-        mpid.append(name.split("@")[0]); // GET jvmPid
-      }
-      return (mpid.toString().hashCode() & 0xffff) % (maxWorkerId + 1);
+    public long getWorkerId() {
+      return workerId;
     }
 
-    protected static long getDatacenterId(long maxDatacenterId) {
-      long id = 0L;
-      try {
-        InetAddress ip = InetAddress.getLocalHost();
-        NetworkInterface network = NetworkInterface.getByInetAddress(ip);
-        if (network == null) {
-          id = 1L;
-        } else {
-          byte[] mac = network.getHardwareAddress();
-          id = ((0x000000FF & (long) mac[mac.length - 1])
-                  | (0x0000FF00 & (((long) mac[mac.length - 2]) << 8))) >> 6;
-          id = id % (maxDatacenterId + 1);
-        }
-      } catch (Exception e) {
-        System.out.println(" getDatacenterId: " + e.getMessage());
-      }
-      return id;
+    public long getDatacenterId() {
+      return datacenterId;
     }
 
   }
@@ -126,4 +127,7 @@ we have to convert to string,since the data type is long
  Different company may have different Id generating algorithm
  Integrate the IdWorker to our spring boot application by:
  by going to the main application class and tell spring to manage the
- IdWorker*/
\ No newline at end of file
+ IdWorker
+ The worker and datacenter ids come from configuration (artifact.id-worker.*), every node
+ sharing a database must use a different pair. They used to be derived from the MAC address
+ and the JVM pid, which are not unique between containers.*/
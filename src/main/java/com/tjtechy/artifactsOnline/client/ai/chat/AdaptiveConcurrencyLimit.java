@@ -0,0 +1,101 @@
+package com.tjtechy.artifactsOnline.client.ai.chat;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An AIMD concurrency limit: a call that fails with an overload (5xx, 429, timeout) or takes latencyThreshold or
+ * longer multiplies the limit by backoffRatio, a fast successful call while at least half the limit is in use grows
+ * it by 1/limit, about one per limit calls. The limit stays between minimumLimit and maximumLimit.
+ */
+class AdaptiveConcurrencyLimit {
+
+  private final int minimumLimit;
+
+  private final int maximumLimit;
+
+  private final double backoffRatio;
+
+  private final long latencyThresholdNanos;
+
+  //not synchronized/wait: a virtual thread waiting on a monitor pins its carrier thread
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Condition released = this.lock.newCondition();
+
+  private double limit;
+
+  private int inFlight;
+
+  AdaptiveConcurrencyLimit(int initialLimit, int minimumLimit, int maximumLimit, double backoffRatio, Duration latencyThreshold) {
+    this.minimumLimit = minimumLimit;
+    this.maximumLimit = maximumLimit;
+    this.backoffRatio = backoffRatio;
+    this.latencyThresholdNanos = latencyThreshold.toNanos();
+    this.limit = Math.max(minimumLimit, Math.min(initialLimit, maximumLimit));
+  }
+
+  //waits up to maxWait for the calls in flight to drop below the limit,
+  //every acquired slot has to end in onSample or release
+  boolean tryAcquire(Duration maxWait) throws InterruptedException {
+    long remaining = maxWait.toNanos();
+    this.lock.lock();
+    try {
+      while (this.inFlight >= (int) this.limit) {
+        if (remaining <= 0) {
+          return false;
+        }
+        remaining = this.released.awaitNanos(remaining);
+      }
+      this.inFlight++;
+      return true;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  void onSample(long latencyNanos, boolean dropped) {
+    this.lock.lock();
+    try {
+      int used = this.inFlight;
+      this.release();
+      if (dropped || latencyNanos >= this.latencyThresholdNanos) {
+        this.limit = Math.max(this.minimumLimit, this.limit * this.backoffRatio);
+      } else if (used * 2 >= (int) this.limit) {
+        //only a limit that is actually used is raised
+        this.limit = Math.min(this.maximumLimit, this.limit + 1 / this.limit);
+      }
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  void release() {
+    this.lock.lock();
+    try {
+      this.inFlight--;
+      this.released.signalAll();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  int limit() {
+    this.lock.lock();
+    try {
+      return (int) this.limit;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  int inFlight() {
+    this.lock.lock();
+    try {
+      return this.inFlight;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package com.tjtechy.artifactsOnline.client.ai.chat;
+
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatResponse;
+
+import java.time.Instant;
+
+//a cached ChatResponse, with how long the upstream call took to report the latency each hit saves
+record CachedChatResponse(String model,
+                          Instant createdAt,
+                          long latencyNanos,
+                          ChatResponse response) {
+}
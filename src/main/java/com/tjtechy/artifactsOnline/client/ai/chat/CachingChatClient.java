@@ -0,0 +1,188 @@
+package com.tjtechy.artifactsOnline.client.ai.chat;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatRequest;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatResponse;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.Choice;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A ChatClient decorator answering repeated requests from a cache instead of the model.
+ * Requests are keyed by the SHA-256 of their model and messages in a canonical form (every field length prefixed,
+ * text in Unicode NFC), so requests that only differ in how they were built share an entry. Entries live for ttl
+ * in memory (at most maximumSize of them) and, when a ChatResponseFileCache is given, on disk.
+ * Any ChatClient bean is wrapped when ai.chat.cache.enabled is set, see ChatResponseCacheConfiguration.
+ */
+public class CachingChatClient implements ChatClient {
+
+  private final ChatClient delegate;
+
+  private final Cache<String, CachedChatResponse> memory;
+
+  private final ChatResponseFileCache file;
+
+  private final MeterRegistry meterRegistry;
+
+  private final Duration ttl;
+
+  private final Clock clock;
+
+  CachingChatClient(ChatClient delegate, MeterRegistry meterRegistry, Duration ttl, long maximumSize,
+                    ChatResponseFileCache file) {
+    this(delegate, meterRegistry, ttl, maximumSize, file, Clock.systemUTC());
+  }
+
+  CachingChatClient(ChatClient delegate, MeterRegistry meterRegistry, Duration ttl, long maximumSize,
+                    ChatResponseFileCache file, Clock clock) {
+    this.delegate = delegate;
+    this.meterRegistry = meterRegistry;
+    this.ttl = ttl;
+    this.file = file;
+    this.clock = clock;
+    this.memory = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(ttl)
+            .build();
+  }
+
+  public ChatClient getDelegate() {
+
+    return this.delegate;
+  }
+
+  @Override
+  public ChatResponse generate(ChatRequest chatRequest) {
+    String key = key(chatRequest);
+    CachedChatResponse cached = this.find(key, chatRequest.model());
+    if (cached != null) {
+      return cached.response();
+    }
+    long start = System.nanoTime();
+    ChatResponse chatResponse = this.delegate.generate(chatRequest);
+    this.store(key, chatRequest.model(), chatResponse, System.nanoTime() - start);
+    return chatResponse;
+  }
+
+  //a hit is handed over in one piece, a miss is streamed by the delegate and cached once complete
+  @Override
+  public void stream(ChatRequest chatRequest, Consumer<String> onContent) {
+    String key = key(chatRequest);
+    CachedChatResponse cached = this.find(key, chatRequest.model());
+    if (cached != null) {
+      onContent.accept(cached.response().choices().get(0).message().content());
+      return;
+    }
+    long start = System.nanoTime();
+    StringBuilder content = new StringBuilder();
+    this.delegate.stream(chatRequest, piece -> {
+      content.append(piece);
+      onContent.accept(piece);
+    });
+    ChatResponse chatResponse = new ChatResponse(List.of(new Choice(0, new Message("assistant", content.toString()))));
+    this.store(key, chatRequest.model(), chatResponse, System.nanoTime() - start);
+  }
+
+  private CachedChatResponse find(String key, String model) {
+    CachedChatResponse cached = this.memory.getIfPresent(key);
+    String tier = "memory";
+    if (cached == null && this.file != null) {
+      cached = this.file.get(key).orElse(null);
+      tier = "file";
+      if (cached != null && this.isFresh(cached)) {
+        this.memory.put(key, cached);
+      }
+    }
+    if (cached != null && !this.isFresh(cached)) {
+      this.memory.invalidate(key);
+      if (this.file != null) {
+        this.file.remove(key);
+      }
+      cached = null;
+    }
+    //ai.chat.cache.requests{model,result=hit|miss,tier}: the hit ratio per model
+    if (cached == null) {
+      this.requests(model, "miss", "none").increment();
+      return null;
+    }
+    this.requests(model, "hit", tier).increment();
+    //ai.chat.cache.saved{model}: what the upstream call took when the hit response was generated
+    Timer.builder("ai.chat.cache.saved")
+            .tag("model", tagValue(model))
+            .register(this.meterRegistry)
+            .record(Duration.ofNanos(cached.latencyNanos()));
+    return cached;
+  }
+
+  private void store(String key, String model, ChatResponse chatResponse, long latencyNanos) {
+    if (chatResponse == null || chatResponse.choices() == null || chatResponse.choices().isEmpty()) {
+      return;
+    }
+    CachedChatResponse cached = new CachedChatResponse(model, this.clock.instant(), latencyNanos, chatResponse);
+    this.memory.put(key, cached);
+    if (this.file != null) {
+      this.file.put(key, cached);
+    }
+  }
+
+  //the memory tier also expires on its own, the file tier only through this check
+  private boolean isFresh(CachedChatResponse cached) {
+
+    return cached.createdAt().plus(this.ttl).isAfter(this.clock.instant());
+  }
+
+  private Counter requests(String model, String result, String tier) {
+
+    return Counter.builder("ai.chat.cache.requests")
+            .tag("model", tagValue(model))
+            .tag("result", result)
+            .tag("tier", tier)
+            .register(this.meterRegistry);
+  }
+
+  private static String tagValue(String model) {
+
+    return model != null ? model : "none";
+  }
+
+  static String key(ChatRequest chatRequest) {
+    StringBuilder canonical = new StringBuilder();
+    append(canonical, chatRequest.model());
+    List<Message> messages = Objects.requireNonNullElse(chatRequest.messages(), List.of());
+    canonical.append(messages.size()).append(';');
+    for (Message message : messages) {
+      append(canonical, message.role());
+      append(canonical, message.content());
+    }
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  //length prefixed, so no two different requests share a canonical form
+  private static void append(StringBuilder canonical, String value) {
+    if (value == null) {
+      canonical.append("-1;");
+      return;
+    }
+    String normalized = Normalizer.normalize(value, Normalizer.Form.NFC);
+    canonical.append(normalized.length()).append(':').append(normalized);
+  }
+}
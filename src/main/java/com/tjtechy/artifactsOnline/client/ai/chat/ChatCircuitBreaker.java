@@ -0,0 +1,174 @@
+package com.tjtechy.artifactsOnline.client.ai.chat;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * A count based sliding window circuit breaker. It opens once at least minimumCalls of the last windowSize calls
+ * were recorded and failureRateThreshold percent of them failed or slowCallRateThreshold percent took slowCallDuration
+ * or longer. While open every call is refused; after openDuration up to halfOpenCalls trial calls are let through,
+ * the breaker closes when all of them succeed in time and opens again on the first that doesn't.
+ */
+class ChatCircuitBreaker {
+
+  enum State { CLOSED, OPEN, HALF_OPEN }
+
+  private final int windowSize;
+
+  private final int minimumCalls;
+
+  private final double failureRateThreshold;
+
+  private final double slowCallRateThreshold;
+
+  private final long slowCallNanos;
+
+  private final long openNanos;
+
+  private final int halfOpenCalls;
+
+  private final LongSupplier nanoTime;
+
+  //ring buffers over the last windowSize calls
+  private final boolean[] failed;
+
+  private final boolean[] slow;
+
+  private int next;
+
+  private int recorded;
+
+  private int failures;
+
+  private int slowCalls;
+
+  private State state = State.CLOSED;
+
+  private long openedAt;
+
+  private int halfOpenPermitted;
+
+  private int halfOpenSucceeded;
+
+  ChatCircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, double slowCallRateThreshold,
+                     Duration slowCallDuration, Duration openDuration, int halfOpenCalls) {
+    this(windowSize, minimumCalls, failureRateThreshold, slowCallRateThreshold, slowCallDuration, openDuration,
+            halfOpenCalls, System::nanoTime);
+  }
+
+  ChatCircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, double slowCallRateThreshold,
+                     Duration slowCallDuration, Duration openDuration, int halfOpenCalls, LongSupplier nanoTime) {
+    this.windowSize = windowSize;
+    this.minimumCalls = Math.min(minimumCalls, windowSize);
+    this.failureRateThreshold = failureRateThreshold;
+    this.slowCallRateThreshold = slowCallRateThreshold;
+    this.slowCallNanos = slowCallDuration.toNanos();
+    this.openNanos = openDuration.toNanos();
+    this.halfOpenCalls = halfOpenCalls;
+    this.nanoTime = nanoTime;
+    this.failed = new boolean[windowSize];
+    this.slow = new boolean[windowSize];
+  }
+
+  //every permitted call has to end in onResult or release
+  synchronized boolean tryAcquirePermission() {
+    if (this.state == State.OPEN) {
+      if (this.nanoTime.getAsLong() - this.openedAt < this.openNanos) {
+        return false;
+      }
+      this.state = State.HALF_OPEN;
+      this.halfOpenPermitted = 0;
+      this.halfOpenSucceeded = 0;
+    }
+    if (this.state == State.HALF_OPEN) {
+      if (this.halfOpenPermitted >= this.halfOpenCalls) {
+        return false;
+      }
+      this.halfOpenPermitted++;
+    }
+    return true;
+  }
+
+  //a permitted call that never reached the model
+  synchronized void release() {
+    if (this.state == State.HALF_OPEN && this.halfOpenPermitted > 0) {
+      this.halfOpenPermitted--;
+    }
+  }
+
+  synchronized void onResult(boolean callFailed, long latencyNanos) {
+    boolean callSlow = latencyNanos >= this.slowCallNanos;
+    switch (this.state) {
+      case HALF_OPEN -> {
+        if (callFailed || callSlow) {
+          this.open();
+        } else if (++this.halfOpenSucceeded >= this.halfOpenCalls) {
+          this.reset(State.CLOSED);
+        }
+      }
+      case CLOSED -> {
+        this.record(callFailed, callSlow);
+        if (this.recorded >= this.minimumCalls
+                && (this.failureRate() >= this.failureRateThreshold || this.slowCallRate() >= this.slowCallRateThreshold)) {
+          this.open();
+        }
+      }
+      //a call that was let through before the breaker opened
+      case OPEN -> {
+      }
+    }
+  }
+
+  synchronized State state() {
+
+    return this.state;
+  }
+
+  //percent of the recorded calls, 0 until minimumCalls were recorded
+  synchronized double failureRate() {
+
+    return this.recorded < this.minimumCalls ? 0 : 100.0 * this.failures / this.recorded;
+  }
+
+  synchronized double slowCallRate() {
+
+    return this.recorded < this.minimumCalls ? 0 : 100.0 * this.slowCalls / this.recorded;
+  }
+
+  //until a call is let through again
+  synchronized Duration retryAfter() {
+    if (this.state != State.OPEN) {
+      return Duration.ZERO;
+    }
+    return Duration.ofNanos(Math.max(this.openNanos - (this.nanoTime.getAsLong() - this.openedAt), 0));
+  }
+
+  private void record(boolean callFailed, boolean callSlow) {
+    if (this.recorded == this.windowSize) {
+      //drop the oldest call
+      this.failures -= this.failed[this.next] ? 1 : 0;
+      this.slowCalls -= this.slow[this.next] ? 1 : 0;
+    } else {
+      this.recorded++;
+    }
+    this.failed[this.next] = callFailed;
+    this.slow[this.next] = callSlow;
+    this.failures += callFailed ? 1 : 0;
+    this.slowCalls += callSlow ? 1 : 0;
+    this.next = (this.next + 1) % this.windowSize;
+  }
+
+  private void open() {
+    this.reset(State.OPEN);
+    this.openedAt = this.nanoTime.getAsLong();
+  }
+
+  //a new state starts with an empty window
+  private void reset(State state) {
+    this.state = state;
+    this.next = 0;
+    this.recorded = 0;
+    this.failures = 0;
+    this.slowCalls = 0;
+  }
+}
@@ -3,8 +3,16 @@ package com.tjtechy.artifactsOnline.client.ai.chat;
 import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatRequest;
 import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatResponse;
 
+import java.util.function.Consumer;
+
 public interface ChatClient {
   ChatResponse generate(ChatRequest chatRequest);
+
+  //hands every piece of the completion to onContent as it arrives and returns once it is complete,
+  //clients that can't stream hand over the whole completion at once
+  default void stream(ChatRequest chatRequest, Consumer<String> onContent) {
+    onContent.accept(this.generate(chatRequest).choices().get(0).message().content());
+  }
 }
 
 /*the method in the interface takes ChatRequest and returns a ChatResponse instance
@@ -0,0 +1,65 @@
+package com.tjtechy.artifactsOnline.client.ai.chat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+@Configuration
+public class ChatClientResilienceConfiguration {
+
+  //static, so the post processor is registered before (and without initializing) the rest of the configuration
+  @Bean
+  public static ResilientChatClientPostProcessor resilientChatClientPostProcessor(
+          ObjectProvider<MeterRegistry> meterRegistry,
+          @Value("${ai.chat.resilience.enabled:false}") boolean enabled,
+          @Value("${ai.chat.resilience.circuit-breaker.window-size:50}") int windowSize,
+          @Value("${ai.chat.resilience.circuit-breaker.minimum-calls:10}") int minimumCalls,
+          @Value("${ai.chat.resilience.circuit-breaker.failure-rate-threshold:50}") double failureRateThreshold,
+          @Value("${ai.chat.resilience.circuit-breaker.slow-call-rate-threshold:80}") double slowCallRateThreshold,
+          @Value("${ai.chat.resilience.circuit-breaker.slow-call-duration:30s}") Duration slowCallDuration,
+          @Value("${ai.chat.resilience.circuit-breaker.open-duration:30s}") Duration openDuration,
+          @Value("${ai.chat.resilience.circuit-breaker.half-open-calls:3}") int halfOpenCalls,
+          @Value("${ai.chat.resilience.concurrency.initial-limit:20}") int initialLimit,
+          @Value("${ai.chat.resilience.concurrency.minimum-limit:2}") int minimumLimit,
+          @Value("${ai.chat.resilience.concurrency.maximum-limit:200}") int maximumLimit,
+          @Value("${ai.chat.resilience.concurrency.backoff-ratio:0.9}") double backoffRatio,
+          @Value("${ai.chat.resilience.concurrency.max-wait:1s}") Duration maxWait) {
+
+    return new ResilientChatClientPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !(bean instanceof ChatClient chatClient)
+                || bean instanceof ResilientChatClient || bean instanceof CachingChatClient) {
+          return bean;
+        }
+        ChatCircuitBreaker circuitBreaker = new ChatCircuitBreaker(windowSize, minimumCalls, failureRateThreshold,
+                slowCallRateThreshold, slowCallDuration, openDuration, halfOpenCalls);
+        //a slow call shrinks the limit at the same latency the breaker counts it as slow
+        AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(initialLimit, minimumLimit, maximumLimit,
+                backoffRatio, slowCallDuration);
+        return new ResilientChatClient(beanName, chatClient, circuitBreaker, concurrencyLimit, maxWait, meterRegistry.getObject());
+      }
+    };
+  }
+
+  //ordered (and declared as such, spring sorts post processors by their bean type) so it runs before the
+  //unordered caching post processor: the cache wraps the breaker and cache hits never reach it
+  interface ResilientChatClientPostProcessor extends BeanPostProcessor, Ordered {
+
+    @Override
+    default int getOrder() {
+
+      return Ordered.LOWEST_PRECEDENCE;
+    }
+  }
+}
+
+/*the breaker and the limit wrap the model client (OpenAiChatClient today) right under the cache
+* ai.chat.resilience.* tunes them, defaults fit a model answering in seconds
+* */
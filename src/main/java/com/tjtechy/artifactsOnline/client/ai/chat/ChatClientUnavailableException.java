@@ -0,0 +1,23 @@
+package com.tjtechy.artifactsOnline.client.ai.chat;
+
+import java.time.Duration;
+
+/**
+ * Thrown by ResilientChatClient instead of calling a chat model that is failing (circuit breaker open) or already
+ * busy with as many calls as it currently handles well (concurrency limit reached). retryAfter is when a call is
+ * expected to be let through again.
+ */
+public class ChatClientUnavailableException extends RuntimeException {
+
+  private final Duration retryAfter;
+
+  public ChatClientUnavailableException(String message, Duration retryAfter) {
+    super(message);
+    this.retryAfter = retryAfter;
+  }
+
+  public Duration getRetryAfter() {
+
+    return this.retryAfter;
+  }
+}
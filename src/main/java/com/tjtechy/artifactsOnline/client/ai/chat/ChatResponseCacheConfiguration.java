@@ -0,0 +1,54 @@
+package com.tjtechy.artifactsOnline.client.ai.chat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class ChatResponseCacheConfiguration {
+
+  //static, so the post processor is registered before (and without initializing) the rest of the configuration
+  @Bean
+  public static BeanPostProcessor cachingChatClientPostProcessor(
+          ObjectProvider<MeterRegistry> meterRegistry,
+          ObjectProvider<ObjectMapper> objectMapper,
+          @Value("${ai.chat.cache.enabled:false}") boolean enabled,
+          @Value("${ai.chat.cache.clients:}") List<String> clients,
+          @Value("${ai.chat.cache.ttl:24h}") Duration ttl,
+          @Value("${ai.chat.cache.memory.maximum-size:1000}") long maximumSize,
+          @Value("${ai.chat.cache.file.enabled:false}") boolean fileEnabled,
+          @Value("${ai.chat.cache.file.directory:${java.io.tmpdir}/artifacts-online/chat-cache}") Path directory,
+          @Value("${ai.chat.cache.file.maximum-entries:10000}") long maximumEntries) {
+
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !(bean instanceof ChatClient chatClient) || bean instanceof CachingChatClient) {
+          return bean;
+        }
+        //an empty list wraps every ChatClient bean
+        if (clients.stream().anyMatch(StringUtils::hasText) && !clients.contains(beanName)) {
+          return bean;
+        }
+        ChatResponseFileCache file = fileEnabled
+                ? new ChatResponseFileCache(directory, maximumEntries, objectMapper.getObject())
+                : null;
+        return new CachingChatClient(chatClient, meterRegistry.getObject(), ttl, maximumSize, file);
+      }
+    };
+  }
+}
+
+/*the cache is a decorator around any ChatClient implementation (OpenAiChatClient today) so callers keep
+* injecting the ChatClient interface and don't know whether answers come from the model or the cache
+* ai.chat.cache.clients lists the bean names to wrap (e.g. openAiChatClient), empty wraps all of them
+* */
@@ -0,0 +1,125 @@
+package com.tjtechy.artifactsOnline.client.ai.chat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * The file tier of CachingChatClient: one JSON file per cached response, named by its key, so the cache outlives
+ * restarts and can be shared by nodes on the same volume. Files are written to a temporary name and moved in place,
+ * readers never see half a file. Past maximumEntries the least recently written files are deleted.
+ */
+class ChatResponseFileCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ChatResponseFileCache.class);
+
+  private static final String SUFFIX = ".json";
+
+  private final Path directory;
+
+  private final long maximumEntries;
+
+  private final ObjectMapper objectMapper;
+
+  //approximate, recounted from the directory on every eviction
+  private final AtomicInteger entries;
+
+  ChatResponseFileCache(Path directory, long maximumEntries, ObjectMapper objectMapper) {
+    this.directory = directory;
+    this.maximumEntries = maximumEntries;
+    this.objectMapper = objectMapper;
+    try {
+      Files.createDirectories(directory);
+      this.entries = new AtomicInteger(this.files().size());
+    } catch (IOException e) {
+      throw new UncheckedIOException("Can't use chat cache directory " + directory, e);
+    }
+  }
+
+  //a missing, unreadable or corrupt file is a miss
+  Optional<CachedChatResponse> get(String key) {
+    Path file = this.directory.resolve(key + SUFFIX);
+    if (!Files.isRegularFile(file)) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(this.objectMapper.readValue(file.toFile(), CachedChatResponse.class));
+    } catch (IOException e) {
+      LOGGER.warn("Ignoring unreadable chat cache file {}", file, e);
+      return Optional.empty();
+    }
+  }
+
+  //failing to write only costs a later miss
+  void put(String key, CachedChatResponse cachedChatResponse) {
+    Path file = this.directory.resolve(key + SUFFIX);
+    try {
+      Path temporary = Files.createTempFile(this.directory, key, ".tmp");
+      this.objectMapper.writeValue(temporary.toFile(), cachedChatResponse);
+      boolean existed = Files.exists(file);
+      try {
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+      if (!existed && this.entries.incrementAndGet() > this.maximumEntries) {
+        this.evict();
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Could not write chat cache file {}", file, e);
+    }
+  }
+
+  void remove(String key) {
+    try {
+      if (Files.deleteIfExists(this.directory.resolve(key + SUFFIX))) {
+        this.entries.decrementAndGet();
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Could not delete chat cache file for {}", key, e);
+    }
+  }
+
+  private synchronized void evict() throws IOException {
+    List<Path> files = this.files();
+    long excess = files.size() - this.maximumEntries;
+    if (excess > 0) {
+      List<Path> oldest = files.stream()
+              .sorted(Comparator.comparing(ChatResponseFileCache::lastModified))
+              .limit(excess)
+              .toList();
+      for (Path file : oldest) {
+        Files.deleteIfExists(file);
+      }
+    }
+    this.entries.set((int) Math.min(files.size(), this.maximumEntries));
+  }
+
+  private List<Path> files() throws IOException {
+    try (Stream<Path> files = Files.list(this.directory)) {
+      return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).toList();
+    }
+  }
+
+  private static FileTime lastModified(Path file) {
+    try {
+      return Files.getLastModifiedTime(file);
+    } catch (IOException e) {
+      //already gone
+      return FileTime.fromMillis(0);
+    }
+  }
+}
@@ -1,24 +1,39 @@
 package com.tjtechy.artifactsOnline.client.ai.chat;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatRequest;
 import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatResponse;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatResponseChunk;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChunkChoice;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.Message;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.DefaultResponseErrorHandler;
 import org.springframework.web.client.RestClient;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
 @Component
 public class OpenAiChatClient implements ChatClient{
 
   private final RestClient restClient;
 
+  private final ObjectMapper objectMapper;
+
   public OpenAiChatClient(@Value("${ai.openai.endpoint}") String endpoint,
                           @Value("${ai.openai.api-key}") String apiKey,
-                          RestClient.Builder restClientBuilder){
+                          RestClient.Builder restClientBuilder,
+                          ObjectMapper objectMapper){
     this.restClient = restClientBuilder
             .baseUrl(endpoint)
             .defaultHeader("Authorization", "Bearer " + apiKey)
             .build();
+    this.objectMapper = objectMapper;
   }
 
   @Override
@@ -30,9 +45,51 @@ public class OpenAiChatClient implements ChatClient{
             .retrieve()
             .body(ChatResponse.class);
   }
+
+  //with stream: true the completion comes back as server-sent events, one "data: {chunk}" line per piece
+  //and "data: [DONE]" at the end, read here line by line as they arrive
+  @Override
+  public void stream(ChatRequest chatRequest, Consumer<String> onContent) {
+    this.restClient
+            .post()
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .body(new StreamingChatRequest(chatRequest.model(), chatRequest.messages(), true))
+            .exchange((request, response) -> {
+              if (response.getStatusCode().isError()) {
+                //the same HttpClientErrorException/HttpServerErrorException as generate
+                new DefaultResponseErrorHandler().handleError(response);
+              }
+              try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                  if (!line.startsWith("data:")) {
+                    //blank separators, comments and keep-alives
+                    continue;
+                  }
+                  String data = line.substring("data:".length()).trim();
+                  if (data.equals("[DONE]")) {
+                    break;
+                  }
+                  ChatResponseChunk chunk = this.objectMapper.readValue(data, ChatResponseChunk.class);
+                  for (ChunkChoice choice : chunk.choices()) {
+                    //the first delta only carries the role, the last one only the finish reason
+                    if (choice.index() == 0 && choice.delta() != null && choice.delta().content() != null
+                            && !choice.delta().content().isEmpty()) {
+                      onContent.accept(choice.delta().content());
+                    }
+                  }
+                }
+              }
+              return null;
+            });
+  }
+
+  private record StreamingChatRequest(String model, List<Message> messages, boolean stream) {
+  }
 }
 /*this class will implement our created chatClient interface
 * define the open Ai end point properties in the development.yml file
 *
 *
-* */
\ No newline at end of file
+* */
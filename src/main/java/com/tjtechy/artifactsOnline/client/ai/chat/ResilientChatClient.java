@@ -0,0 +1,149 @@
+package com.tjtechy.artifactsOnline.client.ai.chat;
+
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatRequest;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A ChatClient decorator that stops calling a degraded model instead of waiting on it. Calls go through a
+ * ChatCircuitBreaker and an AdaptiveConcurrencyLimit, a call refused by either fails at once with a
+ * ChatClientUnavailableException (503 with Retry-After). 5xx, 429 and I/O errors (timeouts, refused connections)
+ * count as failures, other client errors (e.g. a wrong api key) don't say anything about the model's health.
+ * A streamed call is timed to its first piece, the rest of the stream depends on the length of the completion.
+ * Any ChatClient bean is wrapped when ai.chat.resilience.enabled is set, see ChatClientResilienceConfiguration.
+ */
+public class ResilientChatClient implements ChatClient {
+
+  private final String name;
+
+  private final ChatClient delegate;
+
+  private final ChatCircuitBreaker circuitBreaker;
+
+  private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+  private final Duration maxWait;
+
+  private final MeterRegistry meterRegistry;
+
+  ResilientChatClient(String name, ChatClient delegate, ChatCircuitBreaker circuitBreaker,
+                      AdaptiveConcurrencyLimit concurrencyLimit, Duration maxWait, MeterRegistry meterRegistry) {
+    this.name = name;
+    this.delegate = delegate;
+    this.circuitBreaker = circuitBreaker;
+    this.concurrencyLimit = concurrencyLimit;
+    this.maxWait = maxWait;
+    this.meterRegistry = meterRegistry;
+    //ai.chat.circuit-breaker.state{client,state}: 1 for the current state, 0 for the others
+    for (ChatCircuitBreaker.State state : ChatCircuitBreaker.State.values()) {
+      Gauge.builder("ai.chat.circuit-breaker.state", circuitBreaker, breaker -> breaker.state() == state ? 1 : 0)
+              .tag("client", name)
+              .tag("state", state.name().toLowerCase())
+              .register(meterRegistry);
+    }
+    Gauge.builder("ai.chat.circuit-breaker.failure-rate", circuitBreaker, ChatCircuitBreaker::failureRate)
+            .tag("client", name)
+            .baseUnit("percent")
+            .register(meterRegistry);
+    Gauge.builder("ai.chat.circuit-breaker.slow-call-rate", circuitBreaker, ChatCircuitBreaker::slowCallRate)
+            .tag("client", name)
+            .baseUnit("percent")
+            .register(meterRegistry);
+    Gauge.builder("ai.chat.concurrency.limit", concurrencyLimit, AdaptiveConcurrencyLimit::limit)
+            .tag("client", name)
+            .register(meterRegistry);
+    Gauge.builder("ai.chat.concurrency.in-flight", concurrencyLimit, AdaptiveConcurrencyLimit::inFlight)
+            .tag("client", name)
+            .register(meterRegistry);
+  }
+
+  public ChatClient getDelegate() {
+
+    return this.delegate;
+  }
+
+  @Override
+  public ChatResponse generate(ChatRequest chatRequest) {
+
+    return this.call(() -> this.delegate.generate(chatRequest), null);
+  }
+
+  @Override
+  public void stream(ChatRequest chatRequest, Consumer<String> onContent) {
+    AtomicLong firstPieceAt = new AtomicLong();
+    this.call(() -> {
+      this.delegate.stream(chatRequest, piece -> {
+        firstPieceAt.compareAndSet(0, System.nanoTime());
+        onContent.accept(piece);
+      });
+      return null;
+    }, firstPieceAt);
+  }
+
+  private <T> T call(Supplier<T> call, AtomicLong firstPieceAt) {
+    if (!this.circuitBreaker.tryAcquirePermission()) {
+      this.calls("not_permitted").increment();
+      throw new ChatClientUnavailableException("The " + this.name + " circuit breaker is open, the model is failing or slow",
+              this.circuitBreaker.retryAfter());
+    }
+    try {
+      if (!this.concurrencyLimit.tryAcquire(this.maxWait)) {
+        this.circuitBreaker.release();
+        this.calls("limited").increment();
+        throw new ChatClientUnavailableException("The " + this.name + " concurrency limit of "
+                + this.concurrencyLimit.limit() + " calls is reached", this.maxWait);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      this.circuitBreaker.release();
+      throw new ChatClientUnavailableException("Interrupted while waiting for a " + this.name + " call slot", Duration.ZERO);
+    }
+    long start = System.nanoTime();
+    try {
+      T result = call.get();
+      long latency = latency(start, firstPieceAt);
+      this.circuitBreaker.onResult(false, latency);
+      this.concurrencyLimit.onSample(latency, false);
+      this.calls("success").increment();
+      return result;
+    } catch (RuntimeException e) {
+      long latency = latency(start, firstPieceAt);
+      boolean failed = isFailure(e);
+      this.circuitBreaker.onResult(failed, latency);
+      this.concurrencyLimit.onSample(latency, failed);
+      this.calls(failed ? "failure" : "ignored").increment();
+      throw e;
+    }
+  }
+
+  //ai.chat.calls{client,outcome=success|failure|ignored|not_permitted|limited}
+  private Counter calls(String outcome) {
+
+    return Counter.builder("ai.chat.calls")
+            .tag("client", this.name)
+            .tag("outcome", outcome)
+            .register(this.meterRegistry);
+  }
+
+  private static long latency(long start, AtomicLong firstPieceAt) {
+    long end = firstPieceAt != null && firstPieceAt.get() != 0 ? firstPieceAt.get() : System.nanoTime();
+    return end - start;
+  }
+
+  static boolean isFailure(RuntimeException e) {
+
+    return e instanceof HttpServerErrorException
+            || e instanceof HttpClientErrorException.TooManyRequests
+            || e instanceof ResourceAccessException;
+  }
+}
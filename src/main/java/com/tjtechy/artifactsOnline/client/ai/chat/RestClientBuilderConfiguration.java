@@ -1,17 +1,65 @@
 package com.tjtechy.artifactsOnline.client.ai.chat;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.client.RestClientBuilderConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Scope;
 import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestClient;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
 @Configuration
 public class RestClientBuilderConfiguration {
 
+  //one client (and connection pool) for every RestClient: over TLS HTTP/2 is negotiated and all calls to a host
+  //share one multiplexed connection, plain http and HTTP/1.1 only servers fall back to pooled HTTP/1.1 connections.
+  //How long idle pooled connections are kept is JVM wide, -Djdk.httpclient.keepalive.timeout=<seconds> (set in the
+  //Dockerfile's JAVA_OPTS, the JDK default is 1200)
+  @Bean
+  public HttpClient httpClient(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                               @Value("${http-client.version:HTTP_2}") HttpClient.Version version,
+                               @Value("${http-client.connect-timeout:5s}") Duration connectTimeout){
+    HttpClient.Builder httpClientBuilder = HttpClient.newBuilder()
+            .version(version)
+            .connectTimeout(connectTimeout);
+    if(virtualThreads){
+      //the calling (virtual) request thread parks while waiting, the client's own work runs on virtual threads
+      //too instead of its default cached pool of platform threads
+      httpClientBuilder.executor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+    return httpClientBuilder.build();
+  }
+
+  @Bean
+  public UpstreamBulkhead upstreamBulkhead(@Value("${http-client.bulkhead.max-concurrent-calls:64}") int maxConcurrentCalls,
+                                           @Value("${http-client.bulkhead.max-wait:2s}") Duration maxWait,
+                                           MeterRegistry meterRegistry){
+
+    return new UpstreamBulkhead(maxConcurrentCalls, maxWait, meterRegistry);
+  }
+
+  //prototype: every client sets its own base url and headers on the builder it gets
   @Bean
-  public RestClient.Builder restClientBuilder(){
-    return RestClient.builder()
-            .requestFactory(new JdkClientHttpRequestFactory());
+  @Scope("prototype")
+  public RestClient.Builder restClientBuilder(HttpClient httpClient,
+                                              UpstreamBulkhead upstreamBulkhead,
+                                              ObjectProvider<RestClientBuilderConfigurer> restClientBuilderConfigurer,
+                                              @Value("${http-client.read-timeout:120s}") Duration readTimeout){
+    JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+    //until the response headers arrive, a streamed body may take longer
+    requestFactory.setReadTimeout(readTimeout);
+    RestClient.Builder restClientBuilder = RestClient.builder();
+    //boot's message converters and observation, which records http.client.requests per client.name (the host)
+    restClientBuilderConfigurer.ifAvailable(configurer -> configurer.configure(restClientBuilder));
+    return restClientBuilder
+            .requestFactory(requestFactory)
+            .requestInterceptor(upstreamBulkhead);
   }
 
 
@@ -22,4 +70,6 @@ public class RestClientBuilderConfiguration {
 
 /*this class builds the rest client
 * we create an instance of restClient builder and specift the
-* http library to be used*/
\ No newline at end of file
+* http library to be used
+* the jdk client doesn't expose its connection pool, the bulkhead gauges (http.client.bulkhead.in-flight/waiting)
+* show how busy each upstream is and http.client.requests how long its calls take*/
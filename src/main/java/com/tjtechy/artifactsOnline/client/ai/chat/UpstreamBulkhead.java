@@ -0,0 +1,146 @@
+package com.tjtechy.artifactsOnline.client.ai.chat;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limits the calls in flight to each upstream host (scheme, host and port) to maxConcurrentCalls. A call over the
+ * limit waits up to maxWait for a slot and is then rejected with an UpstreamBulkheadFullException, which RestClient
+ * hands to the caller as a ResourceAccessException, instead of piling up behind a slow upstream.
+ * A slot is held until the response is closed, so a streamed response counts as in flight until it is read.
+ */
+public class UpstreamBulkhead implements ClientHttpRequestInterceptor {
+
+  private final int maxConcurrentCalls;
+
+  private final Duration maxWait;
+
+  private final MeterRegistry meterRegistry;
+
+  private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+
+  public UpstreamBulkhead(int maxConcurrentCalls, Duration maxWait, MeterRegistry meterRegistry) {
+    this.maxConcurrentCalls = maxConcurrentCalls;
+    this.maxWait = maxWait;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+    Host host = this.hosts.computeIfAbsent(authority(request.getURI()), this::register);
+    try {
+      if (!host.permits.tryAcquire(this.maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+        host.rejected.increment();
+        throw new UpstreamBulkheadFullException("More than " + this.maxConcurrentCalls + " calls in flight to "
+                + host.authority + ", none finished within " + this.maxWait);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a call slot to " + host.authority);
+    }
+    try {
+      return new ReleasingResponse(execution.execute(request, body), host.permits);
+    } catch (IOException | RuntimeException e) {
+      host.permits.release();
+      throw e;
+    }
+  }
+
+  private Host register(String authority) {
+    Semaphore permits = new Semaphore(this.maxConcurrentCalls, true);
+    //http.client.bulkhead.*{host}: calls holding a slot, calls queued for one, calls turned away
+    Gauge.builder("http.client.bulkhead.in-flight", permits, semaphore -> this.maxConcurrentCalls - semaphore.availablePermits())
+            .tag("host", authority)
+            .register(this.meterRegistry);
+    Gauge.builder("http.client.bulkhead.waiting", permits, Semaphore::getQueueLength)
+            .tag("host", authority)
+            .register(this.meterRegistry);
+    Counter rejected = Counter.builder("http.client.bulkhead.rejected")
+            .tag("host", authority)
+            .register(this.meterRegistry);
+    return new Host(authority, permits, rejected);
+  }
+
+  private static String authority(URI uri) {
+
+    return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() != -1 ? ":" + uri.getPort() : "");
+  }
+
+  private record Host(String authority, Semaphore permits, Counter rejected) {
+  }
+
+  public static class UpstreamBulkheadFullException extends IOException {
+
+    public UpstreamBulkheadFullException(String message) {
+      super(message);
+    }
+  }
+
+  //gives the slot back exactly once, however often the response is closed
+  private static class ReleasingResponse implements ClientHttpResponse {
+
+    private final ClientHttpResponse delegate;
+
+    private final Semaphore permits;
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private ReleasingResponse(ClientHttpResponse delegate, Semaphore permits) {
+      this.delegate = delegate;
+      this.permits = permits;
+    }
+
+    @Override
+    public HttpStatusCode getStatusCode() throws IOException {
+
+      return this.delegate.getStatusCode();
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+
+      return this.delegate.getStatusText();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+
+      return this.delegate.getHeaders();
+    }
+
+    @Override
+    public InputStream getBody() throws IOException {
+
+      return this.delegate.getBody();
+    }
+
+    @Override
+    public void close() {
+      try {
+        this.delegate.close();
+      } finally {
+        if (this.released.compareAndSet(false, true)) {
+          this.permits.release();
+        }
+      }
+    }
+  }
+}
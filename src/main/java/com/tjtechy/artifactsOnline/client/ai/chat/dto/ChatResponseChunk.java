@@ -0,0 +1,13 @@
+package com.tjtechy.artifactsOnline.client.ai.chat.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+//chunks also carry id, object, created, model...
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ChatResponseChunk(List<ChunkChoice> choices) {
+}
+/*one server-sent event of a streamed completion (stream: true)
+* every chunk carries the next piece of the message in the delta of its choice
+* */
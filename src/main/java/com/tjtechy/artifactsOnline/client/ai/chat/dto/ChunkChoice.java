@@ -0,0 +1,9 @@
+package com.tjtechy.artifactsOnline.client.ai.chat.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+//choices also carry finish_reason
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ChunkChoice(int index,
+                          Message delta) {
+}
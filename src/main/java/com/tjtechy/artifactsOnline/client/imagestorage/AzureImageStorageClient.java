@@ -1,43 +1,225 @@
 package com.tjtechy.artifactsOnline.client.imagestorage;
 
+import com.azure.core.util.BinaryData;
+import com.azure.core.util.Context;
 import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.models.ParallelTransferOptions;
+import com.azure.storage.blob.options.BlobParallelUploadOptions;
 import com.tjtechy.artifactsOnline.system.exception.CustomBlobStorageException;
+import com.tjtechy.artifactsOnline.system.exception.InvalidImageHashException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
 import java.util.UUID;
 
+//every profile but local-storage, see FileSystemImageStorageClient
 @Service
+@Profile("!local-storage")
 public class AzureImageStorageClient implements ImageStorageClient {
+    //large images are staged under this prefix until their hash is known
+    private static final String STAGING_PREFIX = "staging/";
+
+    private static final Duration COPY_POLL_INTERVAL = Duration.ofMillis(200);
+
     private final BlobServiceClient blobServiceClient;
 
-    public AzureImageStorageClient(BlobServiceClient blobServiceClient) {
+    private final ParallelTransferOptions parallelTransferOptions;
+
+    //images up to this size are read into memory and hashed before anything is sent
+    private final long maxSingleUploadSize;
+
+    private final ImageHashIndex imageHashIndex;
+
+    private final MeterRegistry meterRegistry;
+
+    public AzureImageStorageClient(BlobServiceClient blobServiceClient,
+                                   @Value("${image-storage.azure.block-size:4MB}") DataSize blockSize,
+                                   @Value("${image-storage.azure.max-concurrency:4}") int maxConcurrency,
+                                   @Value("${image-storage.azure.max-single-upload-size:4MB}") DataSize maxSingleUploadSize,
+                                   @Value("${image-storage.dedup.index.maximum-size:100000}") long indexMaximumSize,
+                                   @Value("${image-storage.dedup.index.ttl:24h}") Duration indexTtl,
+                                   MeterRegistry meterRegistry) {
         this.blobServiceClient = blobServiceClient;
+        //at most blockSize * maxConcurrency of the image is held in memory while its blocks are staged
+        this.parallelTransferOptions = new ParallelTransferOptions()
+                .setBlockSizeLong(blockSize.toBytes())
+                .setMaxConcurrency(maxConcurrency)
+                .setMaxSingleUploadSizeLong(maxSingleUploadSize.toBytes());
+        this.maxSingleUploadSize = maxSingleUploadSize.toBytes();
+        this.imageHashIndex = new ImageHashIndex(indexMaximumSize, indexTtl);
+        this.meterRegistry = meterRegistry;
   }
 
+  //images are named by the SHA-256 of their content, an image stored before is not stored again. Without a client
+  //supplied sha256 only small images are also not sent again, a large one is only known once it has been staged
   @Override
     public String uploadImage(String containerName,
                               String originalImageName,
                               InputStream data,
-                              long length) throws IOException {
+                              long length,
+                              String sha256) throws IOException {
       try{
         //get the BlobContainerClient object to interact with the container
         BlobContainerClient blobContainerClient = blobServiceClient.getBlobContainerClient(containerName);
-        //create a unique name for the uploaded image file with UUID
-        String newImageName = UUID.randomUUID().toString() + originalImageName.substring(originalImageName.indexOf("."));
-        //get the client to interact with the specified blob
-        BlobClient blobClient = blobContainerClient.getBlobClient(newImageName);
-        //this updates/uploads image
-        blobClient.upload(data, length, true);
-        return blobClient.getBlobUrl();
+        String extension = ImageStorageClient.extension(originalImageName);
+        String expectedSha256 = sha256 == null ? null : sha256.toLowerCase(Locale.ROOT);
+        if (expectedSha256 != null) {
+          //the client's hash names the image before a byte of it is read
+          BlobClient blobClient = blobContainerClient.getBlobClient(expectedSha256 + extension);
+          if (this.isStored(blobContainerClient, blobClient)) {
+            this.uploads("deduplicated", Math.max(length, 0));
+            return blobClient.getBlobUrl();
+          }
+        }
+        if (length >= 0 && length <= this.maxSingleUploadSize) {
+          return this.uploadSmallImage(blobContainerClient, extension, data, (int) length, expectedSha256);
+        }
+        return this.uploadLargeImage(blobContainerClient, extension, data, length, expectedSha256);
       } catch (BlobStorageException exception){
         throw new CustomBlobStorageException("Failed to upload image to Azure Blob Storage", exception);
       }
   }
+
+  //the SDK would buffer an image this small for its single put anyway, so it is hashed first and skipped when known
+  private String uploadSmallImage(BlobContainerClient blobContainerClient, String extension, InputStream data, int length,
+                                  String expectedSha256) throws IOException {
+    byte[] image = data.readNBytes(length);
+    if (image.length != length) {
+      throw new IOException("Image ended after " + image.length + " of " + length + " bytes");
+    }
+    String sha256 = HexFormat.of().formatHex(sha256().digest(image));
+    checkSha256(expectedSha256, sha256);
+    BlobClient blobClient = blobContainerClient.getBlobClient(sha256 + extension);
+    if (this.isStored(blobContainerClient, blobClient)) {
+      this.uploads("deduplicated", length);
+      return blobClient.getBlobUrl();
+    }
+    blobClient.uploadWithResponse(new BlobParallelUploadOptions(BinaryData.fromBytes(image))
+            .setParallelTransferOptions(this.parallelTransferOptions), null, Context.NONE);
+    this.stored(blobContainerClient, blobClient, length);
+    return blobClient.getBlobUrl();
+  }
+
+  //a larger (or unknown length) image is hashed while its blocks are staged in parallel under a temporary name,
+  //then copied to its content name inside the storage account, or dropped when that name is already stored.
+  //Without a client supplied sha256 that saves storage only: the whole image has been received and sent by then
+  private String uploadLargeImage(BlobContainerClient blobContainerClient, String extension, InputStream data, long length,
+                                  String expectedSha256) {
+    MessageDigest digest = sha256();
+    //the SDK reads the stream on one thread, block after block, so the digest sees the bytes in order
+    CountingDigestInputStream digesting = new CountingDigestInputStream(data, digest);
+    BlobClient staging = blobContainerClient.getBlobClient(STAGING_PREFIX + UUID.randomUUID() + extension);
+    BlobParallelUploadOptions options = length >= 0
+            ? new BlobParallelUploadOptions(BinaryData.fromStream(digesting, length))
+            : new BlobParallelUploadOptions(digesting);
+    staging.uploadWithResponse(options.setParallelTransferOptions(this.parallelTransferOptions), null, Context.NONE);
+    try {
+      String sha256 = HexFormat.of().formatHex(digest.digest());
+      checkSha256(expectedSha256, sha256);
+      BlobClient blobClient = blobContainerClient.getBlobClient(sha256 + extension);
+      if (this.isStored(blobContainerClient, blobClient)) {
+        this.uploads("deduplicated", digesting.count());
+        return blobClient.getBlobUrl();
+      }
+      blobClient.beginCopy(staging.getBlobUrl(), COPY_POLL_INTERVAL).waitForCompletion();
+      this.stored(blobContainerClient, blobClient, digesting.count());
+      return blobClient.getBlobUrl();
+    } finally {
+      staging.deleteIfExists();
+    }
+  }
+
+  //the local index first, the storage account only for a hash this node hasn't seen
+  private boolean isStored(BlobContainerClient blobContainerClient, BlobClient blobClient) {
+    if (this.imageHashIndex.contains(blobContainerClient.getBlobContainerName(), blobClient.getBlobName())) {
+      return true;
+    }
+    if (Boolean.TRUE.equals(blobClient.exists())) {
+      this.imageHashIndex.add(blobContainerClient.getBlobContainerName(), blobClient.getBlobName());
+      return true;
+    }
+    return false;
+  }
+
+  private void stored(BlobContainerClient blobContainerClient, BlobClient blobClient, long length) {
+    this.imageHashIndex.add(blobContainerClient.getBlobContainerName(), blobClient.getBlobName());
+    this.uploads("uploaded", length);
+  }
+
+  //image.storage.uploads{outcome=uploaded|deduplicated} and the bytes behind them
+  private void uploads(String outcome, long length) {
+    Counter.builder("image.storage.uploads")
+            .tag("outcome", outcome)
+            .register(this.meterRegistry)
+            .increment();
+    Counter.builder("image.storage.upload.bytes")
+            .tag("outcome", outcome)
+            .baseUnit("bytes")
+            .register(this.meterRegistry)
+            .increment(length);
+  }
+
+  //a client supplied hash the content doesn't match must not name (or find) a stored image
+  private static void checkSha256(String expectedSha256, String sha256) {
+    if (expectedSha256 != null && !expectedSha256.equals(sha256)) {
+      throw new InvalidImageHashException(expectedSha256, sha256);
+    }
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  private static class CountingDigestInputStream extends DigestInputStream {
+
+    private long count;
+
+    private CountingDigestInputStream(InputStream stream, MessageDigest digest) {
+      super(stream, digest);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int read = super.read();
+      if (read >= 0) {
+        this.count++;
+      }
+      return read;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      int read = super.read(bytes, offset, length);
+      if (read > 0) {
+        this.count += read;
+      }
+      return read;
+    }
+
+    private long count() {
+
+      return this.count;
+    }
+  }
 }
 
 
@@ -54,4 +236,4 @@ public class AzureImageStorageClient implements ImageStorageClient {
     private final BlobServiceClient _blobServiceClient;
   public AzureImageStorageClient(BlobServiceClient blobServiceClient) {
     _blobServiceClient = blobServiceClient;
-  }*/
\ No newline at end of file
+  }*/
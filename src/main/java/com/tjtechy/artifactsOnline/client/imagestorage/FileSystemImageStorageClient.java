@@ -0,0 +1,140 @@
+package com.tjtechy.artifactsOnline.client.imagestorage;
+
+import com.tjtechy.artifactsOnline.system.exception.InvalidImageHashException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Stores images on a local (or mounted) directory instead of Azure Blob Storage, for nodes started with the
+ * local-storage profile. Images are named by the SHA-256 of their content like in AzureImageStorageClient and kept
+ * under container/ab/cd/abcd...png, so no directory grows past 65536 entries. An upload is written to a staging file
+ * with FileChannel.transferFrom and moved in place once its hash is known, readers never see half an image.
+ * The returned url is served by ArtifactImageController.
+ */
+@Service
+@Profile("local-storage")
+public class FileSystemImageStorageClient implements ImageStorageClient {
+
+  //the same rules as Azure container names, so a container name can't leave the directory
+  private static final Pattern CONTAINER_NAME = Pattern.compile("[a-z0-9][a-z0-9-]{1,61}[a-z0-9]");
+
+  private static final Pattern IMAGE_NAME = Pattern.compile("([0-9a-f]{64})(\\.[A-Za-z0-9]{1,10})?");
+
+  private static final String STAGING = ".staging";
+
+  //bytes moved per transferFrom call
+  private static final long TRANSFER_SIZE = 1024 * 1024;
+
+  private final Path directory;
+
+  private final String baseUrl;
+
+  public FileSystemImageStorageClient(@Value("${image-storage.file-system.directory:${java.io.tmpdir}/artifacts-online/images}") Path directory,
+                                      @Value("${api.endpoint.base-url}") String baseUrl) {
+    this.directory = directory.toAbsolutePath().normalize();
+    this.baseUrl = baseUrl;
+    try {
+      Files.createDirectories(this.directory.resolve(STAGING));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Can't use image directory " + directory, e);
+    }
+  }
+
+  @Override
+  public String uploadImage(String containerName, String originalImageName, InputStream data, long length, String sha256) throws IOException {
+    if (!CONTAINER_NAME.matcher(containerName).matches()) {
+      throw new IllegalArgumentException("Invalid container name " + containerName);
+    }
+    String extension = ImageStorageClient.extension(originalImageName);
+    String expectedSha256 = sha256 == null ? null : sha256.toLowerCase(Locale.ROOT);
+    if (expectedSha256 != null && Files.exists(this.path(containerName, expectedSha256 + extension))) {
+      return this.baseUrl + "/artifacts/images/" + containerName + "/" + expectedSha256 + extension;
+    }
+    MessageDigest digest = sha256();
+    Path staging = Files.createTempFile(this.directory.resolve(STAGING), "upload", ".tmp");
+    try {
+      long written;
+      try (ReadableByteChannel source = Channels.newChannel(new DigestInputStream(data, digest));
+           FileChannel target = FileChannel.open(staging, StandardOpenOption.WRITE)) {
+        written = transferFrom(source, target);
+      }
+      if (length >= 0 && written != length) {
+        throw new IOException("Image ended after " + written + " of " + length + " bytes");
+      }
+      String actualSha256 = HexFormat.of().formatHex(digest.digest());
+      if (expectedSha256 != null && !expectedSha256.equals(actualSha256)) {
+        throw new InvalidImageHashException(expectedSha256, actualSha256);
+      }
+      String imageName = actualSha256 + extension;
+      Path image = this.path(containerName, imageName);
+      //an image stored before is kept, the staging copy is dropped in the finally block
+      if (!Files.exists(image)) {
+        Files.createDirectories(image.getParent());
+        try {
+          Files.move(staging, image, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(staging, image, StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+      return this.baseUrl + "/artifacts/images/" + containerName + "/" + imageName;
+    } finally {
+      Files.deleteIfExists(staging);
+    }
+  }
+
+  //empty for a name that isn't one of ours (including any attempt to leave the directory) or an image not stored
+  public Optional<Path> findImage(String containerName, String imageName) {
+    if (!CONTAINER_NAME.matcher(containerName).matches() || !IMAGE_NAME.matcher(imageName).matches()) {
+      return Optional.empty();
+    }
+    Path image = this.path(containerName, imageName);
+    return Files.isRegularFile(image) ? Optional.of(image) : Optional.empty();
+  }
+
+  //container/ab/cd/abcd...png, sharded by the first two bytes of the hash
+  private Path path(String containerName, String imageName) {
+
+    return this.directory.resolve(containerName)
+            .resolve(imageName.substring(0, 2))
+            .resolve(imageName.substring(2, 4))
+            .resolve(imageName);
+  }
+
+  //the source is drained into the file in TRANSFER_SIZE steps, a step moving nothing is the end of the stream
+  private static long transferFrom(ReadableByteChannel source, FileChannel target) throws IOException {
+    long position = 0;
+    long transferred;
+    while ((transferred = target.transferFrom(source, position, TRANSFER_SIZE)) > 0) {
+      position += transferred;
+    }
+    return position;
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
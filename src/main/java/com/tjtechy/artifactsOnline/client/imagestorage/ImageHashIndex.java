@@ -0,0 +1,37 @@
+package com.tjtechy.artifactsOnline.client.imagestorage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * The content addressed images (container and blob name) this node knows to be stored, so a repeated image is
+ * recognised without asking the storage account whether its blob exists. Entries are forgotten after ttl, an image
+ * deleted behind the index's back is uploaded again from then on.
+ */
+class ImageHashIndex {
+
+  private final Cache<String, Boolean> known;
+
+  ImageHashIndex(long maximumSize, Duration ttl) {
+    this.known = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(ttl)
+            .build();
+  }
+
+  boolean contains(String containerName, String blobName) {
+
+    return this.known.getIfPresent(key(containerName, blobName)) != null;
+  }
+
+  void add(String containerName, String blobName) {
+    this.known.put(key(containerName, blobName), Boolean.TRUE);
+  }
+
+  private static String key(String containerName, String blobName) {
+
+    return containerName + "/" + blobName;
+  }
+}
@@ -2,7 +2,33 @@ package com.tjtechy.artifactsOnline.client.imagestorage;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.regex.Pattern;
 
 public interface ImageStorageClient {
-  String uploadImage(String containerName, String originalImageName, InputStream data, long length) throws IOException;
+
+  //what a client-supplied content hash looks like, anything else is turned down before it names a blob or file
+  Pattern SHA256 = Pattern.compile("[0-9a-fA-F]{64}");
+
+  //length is the exact size of data in bytes, -1 when it isn't known up front; data is read once and not closed
+  //the returned url is derived from the content, uploading an image again returns the url stored the first time
+  default String uploadImage(String containerName, String originalImageName, InputStream data, long length) throws IOException {
+
+    return this.uploadImage(containerName, originalImageName, data, length, null);
+  }
+
+  //sha256 is the SHA-256 of data as the client computed it (64 hex digits), or null. An image already stored under it
+  //is not read at all, so a repeated image is neither received nor sent on; any other image must hash to it, or
+  //nothing is stored and InvalidImageHashException is thrown
+  String uploadImage(String containerName, String originalImageName, InputStream data, long length, String sha256) throws IOException;
+
+  //everything from the first dot of the name, "" when there is none or it isn't a plain extension like .png,
+  //so a name can never add path segments to the stored image's name
+  static String extension(String originalImageName) {
+    int dot = originalImageName == null ? -1 : originalImageName.indexOf(".");
+    if (dot < 0) {
+      return "";
+    }
+    String extension = originalImageName.substring(dot);
+    return extension.matches("\\.[A-Za-z0-9]{1,10}") ? extension : "";
+  }
 }
@@ -0,0 +1,116 @@
+package com.tjtechy.artifactsOnline.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the (deliberately slow) delegate encoder on a fixed pool with a bounded queue.
+ * A login storm then costs at most poolSize cores, the request threads only wait for their result,
+ * and once the queue is full further checks fail fast instead of piling up.
+ * A refused or timed out check throws PasswordEncoderBusyException (503), retryable after maxWait.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+  private final PasswordEncoder delegate;
+
+  private final ThreadPoolExecutor executor;
+
+  private final Duration maxWait;
+
+  private final Counter rejected;
+
+  public BoundedPasswordEncoder(PasswordEncoder delegate, int poolSize, int queueCapacity, Duration maxWait,
+                                MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.maxWait = maxWait;
+    this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), new PasswordEncoderThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+    //executor.active, executor.queued, executor.pool.size... tagged name=password-encoder
+    new ExecutorServiceMetrics(this.executor, "password-encoder", Tags.empty()).bindTo(meterRegistry);
+    this.rejected = Counter.builder("security.password.encoder.rejected")
+            .description("Password checks refused because the password encoder pool was saturated")
+            .register(meterRegistry);
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+
+    return this.run(() -> this.delegate.encode(rawPassword));
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+
+    return this.run(() -> this.delegate.matches(rawPassword, encodedPassword));
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+
+    return this.delegate.upgradeEncoding(encodedPassword);
+  }
+
+  @Override
+  public void close() {
+
+    this.executor.shutdownNow();
+  }
+
+  private <T> T run(Callable<T> task) {
+    Future<T> future;
+    try {
+      future = this.executor.submit(task);
+    } catch (RejectedExecutionException e) {
+      this.rejected.increment();
+      throw new PasswordEncoderBusyException("Too many password checks in progress, try again later", this.maxWait, e);
+    }
+
+    try {
+      return future.get(this.maxWait.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      this.rejected.increment();
+      throw new PasswordEncoderBusyException("Password check timed out, try again later", this.maxWait, e);
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new AuthenticationServiceException("Password check interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static class PasswordEncoderThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "password-encoder-" + this.threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
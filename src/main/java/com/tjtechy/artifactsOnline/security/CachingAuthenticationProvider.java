@@ -0,0 +1,55 @@
+package com.tjtechy.artifactsOnline.security;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+import java.util.Optional;
+
+/**
+ * Username/password authentication that consults the VerifiedCredentialCache before the delegate
+ * (user lookup + bcrypt), and remembers successful results. Failed attempts are never cached.
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+  private final AuthenticationProvider delegate;
+
+  private final VerifiedCredentialCache verifiedCredentialCache;
+
+  public CachingAuthenticationProvider(AuthenticationProvider delegate, VerifiedCredentialCache verifiedCredentialCache) {
+    this.delegate = delegate;
+    this.verifiedCredentialCache = verifiedCredentialCache;
+  }
+
+  @Override
+  public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+    if (!this.verifiedCredentialCache.isEnabled() || authentication.getCredentials() == null) {
+      return this.delegate.authenticate(authentication);
+    }
+
+    String username = authentication.getName();
+    String password = authentication.getCredentials().toString();
+
+    Optional<Authentication> verified = this.verifiedCredentialCache.find(username, password);
+    if (verified.isPresent()) {
+      //a fresh token per request, the cached one is shared between threads
+      UsernamePasswordAuthenticationToken result = UsernamePasswordAuthenticationToken.authenticated(
+              verified.get().getPrincipal(), null, verified.get().getAuthorities());
+      result.setDetails(authentication.getDetails());
+      return result;
+    }
+
+    Authentication result = this.delegate.authenticate(authentication);
+    if (result != null && result.isAuthenticated()) {
+      this.verifiedCredentialCache.put(username, password, result);
+    }
+    return result;
+  }
+
+  @Override
+  public boolean supports(Class<?> authentication) {
+
+    return this.delegate.supports(authentication);
+  }
+}
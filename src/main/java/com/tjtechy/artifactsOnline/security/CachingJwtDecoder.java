@@ -0,0 +1,24 @@
+package com.tjtechy.artifactsOnline.security;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+//verifies a token once, later requests with the same token get the cached Jwt until it expires
+public class CachingJwtDecoder implements JwtDecoder {
+
+  private final JwtDecoder delegate;
+
+  private final VerifiedJwtCache verifiedJwtCache;
+
+  public CachingJwtDecoder(JwtDecoder delegate, VerifiedJwtCache verifiedJwtCache) {
+    this.delegate = delegate;
+    this.verifiedJwtCache = verifiedJwtCache;
+  }
+
+  @Override
+  public Jwt decode(String token) throws JwtException {
+
+    return this.verifiedJwtCache.decode(token, this.delegate);
+  }
+}
@@ -0,0 +1,117 @@
+package com.tjtechy.artifactsOnline.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.Ed25519Signer;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.KeyType;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtEncodingException;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Signs EdDSA tokens with the Ed25519 key its JWKSource selects (JwtSigningKeys.signingKeySource(), the active
+ * key) through nimbus' Ed25519Signer. It stands in for NimbusJwtEncoder, which builds a JWK matcher for the RSA,
+ * EC and HMAC algorithms only and so can't select an Ed25519 key.
+ */
+class Ed25519JwtEncoder implements JwtEncoder {
+
+  private static final JWKMatcher SIGNING_KEY_MATCHER = new JWKMatcher.Builder()
+          .keyType(KeyType.OKP)
+          .curve(Curve.Ed25519)
+          .keyUses(KeyUse.SIGNATURE, null)
+          .privateOnly(true)
+          .build();
+
+  private final JWKSource<SecurityContext> jwkSource;
+
+  //a signer derives the public key from the private one, so it is reused until the active key changes
+  private volatile CurrentSigner currentSigner;
+
+  Ed25519JwtEncoder(JWKSource<SecurityContext> jwkSource) {
+    this.jwkSource = jwkSource;
+  }
+
+  @Override
+  public Jwt encode(JwtEncoderParameters parameters) throws JwtEncodingException {
+    JwsHeader headers = parameters.getJwsHeader();
+    if (headers != null && !JWSAlgorithm.EdDSA.getName().equals(headers.getAlgorithm().getName())) {
+      throw new JwtEncodingException("Ed25519 keys only sign EdDSA tokens, not " + headers.getAlgorithm().getName());
+    }
+    CurrentSigner signer = this.signer();
+    JWSHeader jwsHeader = new JWSHeader.Builder(JWSAlgorithm.EdDSA)
+            .type(JOSEObjectType.JWT)
+            .keyID(signer.jwk().getKeyID())
+            .build();
+    JwtClaimsSet claims = parameters.getClaims();
+    SignedJWT signedJwt = new SignedJWT(jwsHeader, toJwtClaimsSet(claims));
+    try {
+      signedJwt.sign(signer.ed25519Signer());
+    } catch (JOSEException e) {
+      throw new JwtEncodingException("An error occurred while attempting to encode the Jwt: " + e.getMessage(), e);
+    }
+    return new Jwt(signedJwt.serialize(), claims.getIssuedAt(), claims.getExpiresAt(), jwsHeader.toJSONObject(),
+            claims.getClaims());
+  }
+
+  private CurrentSigner signer() {
+    List<JWK> jwks;
+    try {
+      jwks = this.jwkSource.get(new JWKSelector(SIGNING_KEY_MATCHER), null);
+    } catch (Exception e) {
+      throw new JwtEncodingException("Failed to select a JWK signing key -> " + e.getMessage(), e);
+    }
+    if (jwks.size() != 1) {
+      throw new JwtEncodingException("Expected one Ed25519 signing key, found " + jwks.size());
+    }
+    OctetKeyPair jwk = (OctetKeyPair) jwks.get(0);
+    CurrentSigner signer = this.currentSigner;
+    if (signer == null || !signer.jwk().equals(jwk)) {
+      try {
+        signer = new CurrentSigner(jwk, new Ed25519Signer(jwk));
+      } catch (JOSEException e) {
+        throw new JwtEncodingException("Invalid signing key " + jwk.getKeyID() + ": " + e.getMessage(), e);
+      }
+      this.currentSigner = signer;
+    }
+    return signer;
+  }
+
+  //nimbus writes Date claims as seconds since the epoch
+  private static JWTClaimsSet toJwtClaimsSet(JwtClaimsSet claims) {
+    JWTClaimsSet.Builder builder = new JWTClaimsSet.Builder();
+    for (Map.Entry<String, Object> claim : claims.getClaims().entrySet()) {
+      Object value = claim.getValue();
+      if (value instanceof Instant instant) {
+        value = Date.from(instant);
+      } else if (value instanceof URL url) {
+        value = url.toExternalForm();
+      }
+      builder.claim(claim.getKey(), value);
+    }
+    return builder.build();
+  }
+
+  private record CurrentSigner(OctetKeyPair jwk, Ed25519Signer ed25519Signer) {
+  }
+}
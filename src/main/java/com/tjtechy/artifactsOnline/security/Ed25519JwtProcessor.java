@@ -0,0 +1,86 @@
+package com.tjtechy.artifactsOnline.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.crypto.Ed25519Verifier;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jose.proc.BadJWSException;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.EncryptedJWT;
+import com.nimbusds.jwt.JWT;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.JWTParser;
+import com.nimbusds.jwt.PlainJWT;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.BadJWTException;
+import com.nimbusds.jwt.proc.JWTProcessor;
+
+import java.text.ParseException;
+
+/**
+ * Verifies EdDSA tokens with the Ed25519 key their kid names in the JWKSource, through nimbus' Ed25519Verifier,
+ * and hands every other token to the delegate (a DefaultJWTProcessor for RS256 and ES256).
+ * DefaultJWTProcessor can't verify EdDSA itself: its key selector converts JWKs to java.security keys, which
+ * nimbus doesn't do for Ed25519, and DefaultJWSVerifierFactory has no Ed25519 verifier.
+ */
+class Ed25519JwtProcessor implements JWTProcessor<SecurityContext> {
+
+  private final JWKSource<SecurityContext> jwkSource;
+
+  private final JWTProcessor<SecurityContext> delegate;
+
+  Ed25519JwtProcessor(JWKSource<SecurityContext> jwkSource, JWTProcessor<SecurityContext> delegate) {
+    this.jwkSource = jwkSource;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public JWTClaimsSet process(String jwtString, SecurityContext context) throws ParseException, BadJOSEException, JOSEException {
+
+    return this.process(JWTParser.parse(jwtString), context);
+  }
+
+  @Override
+  public JWTClaimsSet process(JWT jwt, SecurityContext context) throws BadJOSEException, JOSEException {
+    if (jwt instanceof SignedJWT signedJwt) {
+      return this.process(signedJwt, context);
+    }
+    return this.delegate.process(jwt, context);
+  }
+
+  @Override
+  public JWTClaimsSet process(PlainJWT plainJwt, SecurityContext context) throws BadJOSEException, JOSEException {
+
+    return this.delegate.process(plainJwt, context);
+  }
+
+  @Override
+  public JWTClaimsSet process(SignedJWT signedJwt, SecurityContext context) throws BadJOSEException, JOSEException {
+    if (!JWSAlgorithm.EdDSA.equals(signedJwt.getHeader().getAlgorithm())) {
+      return this.delegate.process(signedJwt, context);
+    }
+    JWKMatcher jwkMatcher = JWKMatcher.forJWSHeader(signedJwt.getHeader());
+    for (JWK jwk : this.jwkSource.get(new JWKSelector(jwkMatcher), context)) {
+      if (jwk instanceof OctetKeyPair octetKeyPair
+              && signedJwt.verify(new Ed25519Verifier(octetKeyPair.toPublicJWK()))) {
+        try {
+          return signedJwt.getJWTClaimsSet();
+        } catch (ParseException e) {
+          throw new BadJWTException(e.getMessage(), e);
+        }
+      }
+    }
+    throw new BadJWSException("Signed JWT rejected: Invalid signature or no matching key(s) found");
+  }
+
+  @Override
+  public JWTClaimsSet process(EncryptedJWT encryptedJwt, SecurityContext context) throws BadJOSEException, JOSEException {
+
+    return this.delegate.process(encryptedJwt, context);
+  }
+}
@@ -0,0 +1,43 @@
+package com.tjtechy.artifactsOnline.security;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Map;
+
+@Tag(
+        name = "JSON Web Key Set",
+        description = "Public keys that verify the JSON web tokens issued by any node"
+)
+@RestController
+public class JwksController {
+
+  private final JwtSigningKeys jwtSigningKeys;
+
+  public JwksController(JwtSigningKeys jwtSigningKeys) {
+    this.jwtSigningKeys = jwtSigningKeys;
+  }
+
+  @Operation(
+          summary = "Get JSON Web Key Set REST API",
+          description = "Get JSON Web Key Set is used by resource servers to verify token signatures"
+  )
+  @ApiResponse(
+          responseCode = "200",
+          description = "HTTP Status 200 SUCCESS"
+  )
+  @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Map<String, Object>> jwks() {
+    //standard JWKS document, not wrapped in Result so any JOSE library can read it
+    return ResponseEntity.ok()
+            .cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic())
+            .body(this.jwtSigningKeys.publicJwkSet().toJSONObject(true));
+  }
+}
@@ -2,6 +2,7 @@ package com.tjtechy.artifactsOnline.security;
 
 import com.tjtechy.artifactsOnline.tjtechyuser.MyUserPrincipal;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.JwsHeader;
 import org.springframework.security.oauth2.jwt.JwtClaimsSet;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
@@ -16,8 +17,11 @@ public class JwtProvider {
 
   private final JwtEncoder jwtEncoder;
 
-  public JwtProvider(JwtEncoder jwtEncoder) {
+  private final JwtSigningKeys jwtSigningKeys; //names the algorithm (security.jwt.algorithm) in the token header
+
+  public JwtProvider(JwtEncoder jwtEncoder, JwtSigningKeys jwtSigningKeys) {
     this.jwtEncoder = jwtEncoder;
+    this.jwtSigningKeys = jwtSigningKeys;
   }
 
 
@@ -41,7 +45,8 @@ public class JwtProvider {
             .claim("authorities", authorities) //custom custom
             .build();
     //encode claim
-    return this.jwtEncoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
+    JwsHeader jwsHeader = JwsHeader.with(this.jwtSigningKeys.jwsAlgorithm()).type("JWT").build();
+    return this.jwtEncoder.encode(JwtEncoderParameters.from(jwsHeader, claims)).getTokenValue();
   }
 }
 
@@ -0,0 +1,329 @@
+package com.tjtechy.artifactsOnline.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jose.util.JSONObjectUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.jose.jws.JwsAlgorithm;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPrivateKey;
+import java.security.interfaces.EdECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The keys tokens are signed and verified with.
+ * With security.jwt.key-store.location set, keys come from a PKCS12/JKS keystore (kid = alias, created = entry
+ * creation date) or a JWK set file (kid, iat) that every node shares, so a token signed on one node validates
+ * on all of them. The file is re-read every refresh interval: rotating means adding a new key to it.
+ * Without a location a key is generated in memory (single node) and replaced every rotation-interval.
+ * The newest key signs once activation-delay has passed since its creation (time for every node to publish it),
+ * older keys keep verifying for the overlap window after their successor became active and are then dropped.
+ * security.jwt.algorithm picks RS256 (RSA), ES256 (EC P-256) or EdDSA (Ed25519): only keys of that kind sign,
+ * keys of the other kinds stay published, so switching algorithm is adding a key of the new kind first.
+ */
+@Component
+public class JwtSigningKeys {
+
+  static final Set<JWSAlgorithm> SUPPORTED_ALGORITHMS = Set.of(JWSAlgorithm.RS256, JWSAlgorithm.ES256, JWSAlgorithm.EdDSA);
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(JwtSigningKeys.class);
+
+  private final JWSAlgorithm algorithm;
+
+  private final String location;
+
+  private final String type;
+
+  private final String password;
+
+  private final Duration rotationInterval;
+
+  private final Duration overlap;
+
+  private final Duration activationDelay;
+
+  private final Clock clock;
+
+  //ordered by activation, oldest first
+  private volatile List<SigningKey> keys = List.of();
+
+  //not synchronized: a virtual thread reading the key file inside a monitor would pin its carrier
+  private final ReentrantLock refreshLock = new ReentrantLock();
+
+  @Autowired
+  public JwtSigningKeys(@Value("${security.jwt.algorithm:RS256}") String algorithm,
+                        @Value("${security.jwt.key-store.location:}") String location,
+                        @Value("${security.jwt.key-store.type:PKCS12}") String type,
+                        @Value("${security.jwt.key-store.password:}") String password,
+                        @Value("${security.jwt.rotation-interval:0s}") Duration rotationInterval,
+                        @Value("${security.jwt.overlap:3h}") Duration overlap,
+                        @Value("${security.jwt.activation-delay:0s}") Duration activationDelay) {
+    this(algorithm, location, type, password, rotationInterval, overlap, activationDelay, Clock.systemUTC());
+  }
+
+  JwtSigningKeys(String algorithm, String location, String type, String password, Duration rotationInterval,
+                 Duration overlap, Duration activationDelay, Clock clock) {
+    this.algorithm = JWSAlgorithm.parse(algorithm);
+    if (!SUPPORTED_ALGORITHMS.contains(this.algorithm)) {
+      throw new IllegalArgumentException("security.jwt.algorithm must be one of " + SUPPORTED_ALGORITHMS + ", not " + algorithm);
+    }
+    this.location = location;
+    this.type = type;
+    this.password = password;
+    this.rotationInterval = rotationInterval;
+    this.overlap = overlap;
+    this.activationDelay = activationDelay;
+    this.clock = clock;
+    this.refresh();
+    if (this.keys.isEmpty()) {
+      throw new IllegalStateException("No " + this.algorithm + " signing key found in " + location);
+    }
+  }
+
+  public JWSAlgorithm algorithm() {
+
+    return this.algorithm;
+  }
+
+  //the algorithm for the JwsHeader new tokens are encoded with, Spring's SignatureAlgorithm has no EdDSA
+  public JwsAlgorithm jwsAlgorithm() {
+    SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.from(this.algorithm.getName());
+    return signatureAlgorithm != null ? signatureAlgorithm : JWSAlgorithm.EdDSA::getName;
+  }
+
+  //the single key new tokens are signed with
+  public JWK activeKey() {
+    Instant now = this.clock.instant();
+    SigningKey active = null;
+    for (SigningKey signingKey : this.keys) {
+      if (this.signs(signingKey.jwk()) && (active == null || !signingKey.activatesAt().isAfter(now))) {
+        active = signingKey;
+      }
+    }
+    if (active == null) {
+      //refresh never publishes a key set without one
+      throw new IllegalStateException("No " + this.algorithm + " signing key");
+    }
+    return active.jwk();
+  }
+
+  //public parts of every key that may have signed a still valid token, or will sign soon
+  public JWKSet publicJwkSet() {
+    List<JWK> publicKeys = new ArrayList<>();
+    for (SigningKey signingKey : this.keys) {
+      publicKeys.add(signingKey.jwk().toPublicJWK());
+    }
+    return new JWKSet(publicKeys);
+  }
+
+  public JWKSource<SecurityContext> verificationKeySource() {
+
+    return (jwkSelector, context) -> jwkSelector.select(this.publicJwkSet());
+  }
+
+  //the active key only, so the encoder never has more than one key of the configured kind to choose from
+  public JWKSource<SecurityContext> signingKeySource() {
+
+    return (jwkSelector, context) -> jwkSelector.select(new JWKSet(this.activeKey()));
+  }
+
+  @Scheduled(fixedDelayString = "${security.jwt.refresh-interval-ms:300000}",
+          initialDelayString = "${security.jwt.refresh-interval-ms:300000}")
+  public void refresh() {
+    this.refreshLock.lock();
+    try {
+      Instant now = this.clock.instant();
+      List<SigningKey> refreshed;
+      if (StringUtils.hasText(this.location)) {
+        try {
+          refreshed = this.load();
+        } catch (IOException | GeneralSecurityException | JOSEException | ParseException e) {
+          if (this.keys.isEmpty()) {
+            throw new IllegalStateException("Could not load the signing keys from " + this.location, e);
+          }
+          //keep signing with what we have, a half written file is picked up on the next refresh
+          LOGGER.error("Could not reload the signing keys from {}", this.location, e);
+          return;
+        }
+      } else {
+        refreshed = new ArrayList<>(this.keys);
+        if (refreshed.isEmpty()) {
+          refreshed.add(this.generate(now));
+        } else if (!this.rotationInterval.isZero()
+                && !now.isBefore(refreshed.get(refreshed.size() - 1).activatesAt().plus(this.rotationInterval))) {
+          refreshed.add(this.generate(now.plus(this.activationDelay)));
+        }
+      }
+      refreshed.sort(Comparator.comparing(SigningKey::activatesAt));
+      this.keys = Collections.unmodifiableList(this.withoutRetired(refreshed, now));
+    } finally {
+      this.refreshLock.unlock();
+    }
+  }
+
+  //a key is retired once its successor of the same kind has been active for longer than the overlap
+  private List<SigningKey> withoutRetired(List<SigningKey> sortedKeys, Instant now) {
+    List<SigningKey> published = new ArrayList<>();
+    for (int i = 0; i < sortedKeys.size(); i++) {
+      SigningKey signingKey = sortedKeys.get(i);
+      boolean retired = false;
+      for (int j = i + 1; j < sortedKeys.size() && !retired; j++) {
+        SigningKey successor = sortedKeys.get(j);
+        retired = successor.jwk().getKeyType().equals(signingKey.jwk().getKeyType())
+                && !successor.activatesAt().plus(this.overlap).isAfter(now);
+      }
+      if (!retired) {
+        published.add(signingKey);
+      }
+    }
+    return published;
+  }
+
+  private boolean signs(JWK jwk) {
+    if (JWSAlgorithm.RS256.equals(this.algorithm)) {
+      return jwk instanceof RSAKey;
+    }
+    if (JWSAlgorithm.ES256.equals(this.algorithm)) {
+      return jwk instanceof ECKey ecKey && Curve.P_256.equals(ecKey.getCurve());
+    }
+    return jwk instanceof OctetKeyPair octetKeyPair && Curve.Ed25519.equals(octetKeyPair.getCurve());
+  }
+
+  private List<SigningKey> load() throws IOException, GeneralSecurityException, JOSEException, ParseException {
+    Resource resource = new DefaultResourceLoader().getResource(this.location);
+    List<SigningKey> loaded = new ArrayList<>();
+    try (InputStream inputStream = resource.getInputStream()) {
+      if ("JWKS".equalsIgnoreCase(this.type)) {
+        //read as plain JSON first: the JWK classes of the nimbus version we're on drop the iat member
+        Map<String, Object> jwkSet = JSONObjectUtils.parse(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        for (Map<String, Object> member : JSONObjectUtils.getJSONObjectArray(jwkSet, "keys")) {
+          JWK jwk = JWK.parse(member);
+          boolean supported = jwk instanceof RSAKey || jwk instanceof ECKey
+                  || (jwk instanceof OctetKeyPair octetKeyPair && Curve.Ed25519.equals(octetKeyPair.getCurve()));
+          if (supported && jwk.isPrivate()) {
+            //iat in seconds since the epoch, a key without one is as old as can be
+            Instant created = member.get("iat") != null ? Instant.ofEpochSecond(JSONObjectUtils.getLong(member, "iat")) : Instant.EPOCH;
+            loaded.add(new SigningKey(jwk, created.plus(this.activationDelay)));
+          }
+        }
+      } else {
+        char[] pin = this.password.toCharArray();
+        KeyStore keyStore = KeyStore.getInstance(this.type);
+        keyStore.load(inputStream, pin);
+        for (String alias : Collections.list(keyStore.aliases())) {
+          if (keyStore.isKeyEntry(alias)) {
+            JWK jwk = load(keyStore, alias, pin);
+            if (jwk != null) {
+              Instant created = keyStore.getCreationDate(alias).toInstant();
+              loaded.add(new SigningKey(jwk, created.plus(this.activationDelay)));
+            }
+          }
+        }
+      }
+    }
+    if (loaded.stream().noneMatch(signingKey -> this.signs(signingKey.jwk()))) {
+      throw new GeneralSecurityException("No " + this.algorithm + " private key in " + this.location);
+    }
+    return loaded;
+  }
+
+  //null for key kinds we don't sign with
+  private static JWK load(KeyStore keyStore, String alias, char[] pin) throws GeneralSecurityException, JOSEException {
+    PublicKey publicKey = keyStore.getCertificate(alias).getPublicKey();
+    if (publicKey instanceof RSAPublicKey) {
+      return RSAKey.load(keyStore, alias, pin);
+    }
+    if (publicKey instanceof ECPublicKey) {
+      return ECKey.load(keyStore, alias, pin);
+    }
+    if (publicKey instanceof EdECPublicKey edECPublicKey && keyStore.getKey(alias, pin) instanceof EdECPrivateKey edECPrivateKey
+            && "Ed25519".equals(edECPublicKey.getParams().getName())) {
+      //the JWK holds the raw RFC 8032 keys: the last 32 bytes of the X.509 encoding and the private key bytes
+      byte[] encoded = edECPublicKey.getEncoded();
+      byte[] x = Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length);
+      byte[] d = edECPrivateKey.getBytes().orElseThrow(() -> new GeneralSecurityException("Ed25519 key " + alias + " is not extractable"));
+      return new OctetKeyPair.Builder(Curve.Ed25519, Base64URL.encode(x))
+              .d(Base64URL.encode(d))
+              .keyID(alias)
+              .build();
+    }
+    return null;
+  }
+
+  private SigningKey generate(Instant activatesAt) {
+    //the activation time is kept next to the key in SigningKey, not in the JWK
+    String kid = UUID.randomUUID().toString();
+    try {
+      JWK jwk;
+      if (JWSAlgorithm.RS256.equals(this.algorithm)) {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048); //generated will have size of 2048 bit
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        jwk = new RSAKey.Builder((RSAPublicKey) keyPair.getPublic())
+                .privateKey((RSAPrivateKey) keyPair.getPrivate())
+                .keyID(kid)
+                .build();
+      } else if (JWSAlgorithm.ES256.equals(this.algorithm)) {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        jwk = new ECKey.Builder(Curve.P_256, (ECPublicKey) keyPair.getPublic())
+                .privateKey((ECPrivateKey) keyPair.getPrivate())
+                .keyID(kid)
+                .build();
+      } else {
+        jwk = new OctetKeyPairGenerator(Curve.Ed25519).keyID(kid).generate();
+      }
+      return new SigningKey(jwk, activatesAt);
+    } catch (GeneralSecurityException | JOSEException e) {
+      throw new IllegalStateException(this.algorithm + " keys are not available", e);
+    }
+  }
+
+  private record SigningKey(JWK jwk, Instant activatesAt) {
+  }
+}
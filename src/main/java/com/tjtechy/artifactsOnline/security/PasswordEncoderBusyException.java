@@ -0,0 +1,26 @@
+package com.tjtechy.artifactsOnline.security;
+
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+
+import java.time.Duration;
+
+/**
+ * Thrown by BoundedPasswordEncoder when a password check is refused (pool and queue full) or doesn't finish within
+ * maxWait. It says nothing about the credentials, so it is answered with 503 and Retry-After rather than 401.
+ * It is an AuthenticationException so the basic auth filter still hands it to the entry point, and an internal one
+ * so ProviderManager rethrows it instead of trying another provider.
+ */
+public class PasswordEncoderBusyException extends InternalAuthenticationServiceException {
+
+  private final Duration retryAfter;
+
+  public PasswordEncoderBusyException(String message, Duration retryAfter, Throwable cause) {
+    super(message, cause);
+    this.retryAfter = retryAfter;
+  }
+
+  public Duration getRetryAfter() {
+
+    return this.retryAfter;
+  }
+}
@@ -1,46 +1,48 @@
 package com.tjtechy.artifactsOnline.security;
 
-import com.nimbusds.jose.jwk.JWK;
-import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
-import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.RemoteJWKSet;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
 import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import com.nimbusds.jwt.proc.JWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.NoSuchAlgorithmException;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Set;
 
 @Configuration
 
 
 public class SecurityConfiguration {
 
-  private final RSAPublicKey publicKey;
-
-  private final RSAPrivateKey privateKey;
+  private final JwtSigningKeys jwtSigningKeys;
 
   //@Value("{api.endpoint.base-url}")
   private String baseUrl = "/api/v1";
@@ -57,28 +59,25 @@ public class SecurityConfiguration {
   public SecurityConfiguration(CustomBasicAuthenticationEntryPoint customBasicAuthenticationEntryPoint,
                                CustomBearerTokenAuthenticationEntryPoint customBearerTokenAuthenticationEntryPoint,
                                CustomBearerTokenAccessDeniedHandler customBearerTokenAccessDeniedHandler,
-                               UserRequestAuthorizationManager userRequestAuthorizationManager)
-          throws NoSuchAlgorithmException {
+                               UserRequestAuthorizationManager userRequestAuthorizationManager,
+                               JwtSigningKeys jwtSigningKeys) {
     this.customBasicAuthenticationEntryPoint = customBasicAuthenticationEntryPoint;
     this.customBearerTokenAuthenticationEntryPoint = customBearerTokenAuthenticationEntryPoint;
     this.customBearerTokenAccessDeniedHandler = customBearerTokenAccessDeniedHandler;
     this.userRequestAuthorizationManager = userRequestAuthorizationManager;
-
-    //Generate a public/private key pair in java
-    KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-    keyPairGenerator.initialize(2048); //generated will have size of 2048 bit
-    KeyPair keyPair = keyPairGenerator.generateKeyPair();
-    this.publicKey = (RSAPublicKey) keyPair.getPublic();
-    this.privateKey = (RSAPrivateKey) keyPair.getPrivate();
+    this.jwtSigningKeys = jwtSigningKeys; //persistent (or generated) keys, see JwtSigningKeys
   }
 
   @Bean
-  public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+  public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                 UserJwtAuthenticationConverter userJwtAuthenticationConverter) throws Exception {
     //permitAll, hasAuthority, authenticated is defined under .access(check for more info)
     return http
             .authorizeHttpRequests(authorizeHttpRequests -> authorizeHttpRequests
+                    .requestMatchers(HttpMethod.GET, baseUrl + "/artifacts/export").authenticated()//the whole catalog, like the wizard export
                     .requestMatchers(HttpMethod.GET,  baseUrl + "/artifacts/**").permitAll()
                     .requestMatchers(HttpMethod.POST, baseUrl + "/artifacts/search").permitAll()
+                    .requestMatchers(HttpMethod.GET, "/.well-known/jwks.json").permitAll()//public keys, fetched by the other nodes
                     .requestMatchers(HttpMethod.GET, baseUrl + "/users").hasAuthority("ROLE_admin")//protect the endpoint
                     .requestMatchers(HttpMethod.GET, baseUrl + "/users/**").access(this.userRequestAuthorizationManager)//The authorization rule is defined in the UserRequestAuthorizationManager
                     .requestMatchers(HttpMethod.POST, baseUrl + "/users").hasAuthority("ROLE_admin")//protect the endpoint
@@ -96,7 +95,7 @@ public class SecurityConfiguration {
             //.httpBasic(Customizer.withDefaults())
             .httpBasic(httBasic -> httBasic.authenticationEntryPoint(this.customBasicAuthenticationEntryPoint))
             .oauth2ResourceServer(oauth2ResourceServer -> oauth2ResourceServer
-                    .jwt(Customizer.withDefaults())
+                    .jwt(jwt -> jwt.jwtAuthenticationConverter(userJwtAuthenticationConverter))
                     .authenticationEntryPoint(this.customBearerTokenAuthenticationEntryPoint)
                     .accessDeniedHandler(this.customBearerTokenAccessDeniedHandler))
 
@@ -105,30 +104,68 @@ public class SecurityConfiguration {
   }
 
   @Bean
-  public PasswordEncoder passwordEncoder(){
+  public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                         @Value("${security.password-encoder.pool-size:0}") int poolSize,
+                                         @Value("${security.password-encoder.queue-capacity:256}") int queueCapacity,
+                                         @Value("${security.password-encoder.max-wait:5s}") Duration maxWait){
+    //a pool size of 0 means one thread per core
+    int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+    return new BoundedPasswordEncoder(new BCryptPasswordEncoder(12), threads, queueCapacity, maxWait, meterRegistry);
+  }
 
-    return new BCryptPasswordEncoder(12);
+  //username/password authentication (basic auth and login), backed by the opt-in verified credential cache
+  @Bean
+  public AuthenticationProvider authenticationProvider(UserDetailsService userDetailsService, PasswordEncoder passwordEncoder,
+                                                       VerifiedCredentialCache verifiedCredentialCache){
+    DaoAuthenticationProvider daoAuthenticationProvider = new DaoAuthenticationProvider(passwordEncoder);
+    daoAuthenticationProvider.setUserDetailsService(userDetailsService);
+    return new CachingAuthenticationProvider(daoAuthenticationProvider, verifiedCredentialCache);
   }
 
   //prepare encoder and decoder
 
-  //encoder
+  //encoder, signs with the active key in the configured algorithm (security.jwt.algorithm) and puts its kid in the token header
   @Bean
   public JwtEncoder jwtEncoder(){
     //JWK --> Json web key
-    JWK jwk = new RSAKey.Builder(this.publicKey).privateKey(this.privateKey).build();
-    JWKSource<SecurityContext> jwkSet = new ImmutableJWKSet<>(new JWKSet(jwk));
-    return new NimbusJwtEncoder(jwkSet);
+    return jwtEncoder(this.jwtSigningKeys);
   }
 
-  //decoder
+  //NimbusJwtEncoder can't select an Ed25519 key (it has no JWK matcher for EdDSA), Ed25519JwtEncoder does that part
+  static JwtEncoder jwtEncoder(JwtSigningKeys jwtSigningKeys) {
+    if (JWSAlgorithm.EdDSA.equals(jwtSigningKeys.algorithm())) {
+      return new Ed25519JwtEncoder(jwtSigningKeys.signingKeySource());
+    }
+    return new NimbusJwtEncoder(jwtSigningKeys.signingKeySource());
+  }
+
+  //decoder, verified tokens are cached until they expire
   @Bean
-  public JwtDecoder jwtDecoder(){
-    return NimbusJwtDecoder.withPublicKey(this.publicKey).build();
+  public JwtDecoder jwtDecoder(VerifiedJwtCache verifiedJwtCache,
+                               @Value("${security.jwt.jwk-set-uri:}") String jwkSetUri) throws MalformedURLException {
+    JWKSource<SecurityContext> jwkSource;
+    if(StringUtils.hasText(jwkSetUri)){
+      //the key set is fetched once, cached, and fetched again when a token carries an unknown kid
+      jwkSource = new RemoteJWKSet<>(URI.create(jwkSetUri).toURL());
+    }
+    else {
+      //the local key set
+      jwkSource = this.jwtSigningKeys.verificationKeySource();
+    }
+    return new CachingJwtDecoder(new NimbusJwtDecoder(jwtProcessor(jwkSource)), verifiedJwtCache);
+  }
+
+  //the key is selected by the token's kid, any of RS256, ES256 and EdDSA is accepted so nodes can switch algorithm one by one
+  static JWTProcessor<SecurityContext> jwtProcessor(JWKSource<SecurityContext> jwkSource) {
+    DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+    jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(Set.of(JWSAlgorithm.RS256, JWSAlgorithm.ES256), jwkSource));
+    jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {}); //claims are validated by NimbusJwtDecoder's validators
+    return new Ed25519JwtProcessor(jwkSource, jwtProcessor);
   }
 
+  //builds the authentication of a bearer token, its roles bitset and userId are worked out once per token (see UserAuthorities)
   @Bean
-  public JwtAuthenticationConverter jwtAuthenticationConverter(){
+  public UserJwtAuthenticationConverter userJwtAuthenticationConverter(VerifiedJwtCache verifiedJwtCache){
 
     JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter =
             new JwtGrantedAuthoritiesConverter();
@@ -136,10 +173,7 @@ public class SecurityConfiguration {
     jwtGrantedAuthoritiesConverter.setAuthoritiesClaimName("authorities");
     jwtGrantedAuthoritiesConverter.setAuthorityPrefix(""); //dont any prefix to my authority name
 
-    JwtAuthenticationConverter jwtAuthenticationConverter =
-            new JwtAuthenticationConverter();
-    jwtAuthenticationConverter.setJwtGrantedAuthoritiesConverter(jwtGrantedAuthoritiesConverter);
-    return jwtAuthenticationConverter;
+    return new UserJwtAuthenticationConverter(jwtGrantedAuthoritiesConverter, verifiedJwtCache);
   }
 
 }
@@ -170,8 +204,10 @@ hover over the ... and check quick definition
 the strength of password encoder is 12
 *
 */
-/*we define two RSA key to generate the jwt
-* Anytime, the application is restarted, you have a new pair of keys (public and private)
+/*the keys (RSA, EC or Ed25519, see security.jwt.algorithm) used to sign and verify the jwt come from JwtSigningKeys
+* they are loaded from a keystore/JWK set shared by every node, so they survive restarts
+* and a token issued by one node is valid on the others. Without a configured keystore a key
+* is generated at start up, then a restart invalidates every issued token
 * */
 /**
  * so if you provide a wrong user or password, you will see a meaningful
@@ -0,0 +1,46 @@
+package com.tjtechy.artifactsOnline.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * What the authorization rules need from a token, worked out once per token by UserJwtAuthenticationConverter
+ * (and cached with it in VerifiedJwtCache): the granted authorities, the roles as a bitset and the userId claim
+ * as a string, so a request check is a mask test and a string comparison.
+ */
+public record UserAuthorities(List<GrantedAuthority> authorities, int roles, String userId) implements Serializable {
+
+  public static final int ROLE_ADMIN = 1;
+
+  public static final int ROLE_USER = 1 << 1;
+
+  public static UserAuthorities of(Jwt jwt, Collection<? extends GrantedAuthority> authorities) {
+    int roles = 0;
+    for (GrantedAuthority grantedAuthority : authorities) {
+      roles |= role(grantedAuthority.getAuthority());
+    }
+    Object userId = jwt.getClaim("userId");
+    return new UserAuthorities(List.<GrantedAuthority>copyOf(authorities), roles, userId == null ? null : userId.toString());
+  }
+
+  //0 for authorities no rule looks at
+  public static int role(String authority) {
+    if (authority == null) {
+      return 0;
+    }
+    return switch (authority) {
+      case "ROLE_admin" -> ROLE_ADMIN;
+      case "ROLE_user" -> ROLE_USER;
+      default -> 0;
+    };
+  }
+
+  public boolean hasRole(int role) {
+
+    return (this.roles & role) != 0;
+  }
+}
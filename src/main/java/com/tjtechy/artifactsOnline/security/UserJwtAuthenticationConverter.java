@@ -0,0 +1,28 @@
+package com.tjtechy.artifactsOnline.security;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.Collection;
+
+//builds the authentication of a bearer token, its UserAuthorities are worked out once per token and cached with it
+public class UserJwtAuthenticationConverter implements Converter<Jwt, AbstractAuthenticationToken> {
+
+  private final Converter<Jwt, Collection<GrantedAuthority>> jwtGrantedAuthoritiesConverter;
+
+  private final VerifiedJwtCache verifiedJwtCache;
+
+  public UserJwtAuthenticationConverter(Converter<Jwt, Collection<GrantedAuthority>> jwtGrantedAuthoritiesConverter,
+                                        VerifiedJwtCache verifiedJwtCache) {
+    this.jwtGrantedAuthoritiesConverter = jwtGrantedAuthoritiesConverter;
+    this.verifiedJwtCache = verifiedJwtCache;
+  }
+
+  @Override
+  public AbstractAuthenticationToken convert(Jwt jwt) {
+
+    return new UserJwtAuthenticationToken(jwt, this.verifiedJwtCache.userAuthorities(jwt, this.jwtGrantedAuthoritiesConverter));
+  }
+}
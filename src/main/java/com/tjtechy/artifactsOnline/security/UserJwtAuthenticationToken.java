@@ -0,0 +1,19 @@
+package com.tjtechy.artifactsOnline.security;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+//a JwtAuthenticationToken that also carries the precomputed UserAuthorities of its token
+public class UserJwtAuthenticationToken extends JwtAuthenticationToken {
+
+  private final UserAuthorities userAuthorities;
+
+  public UserJwtAuthenticationToken(Jwt jwt, UserAuthorities userAuthorities) {
+    super(jwt, userAuthorities.authorities(), jwt.getSubject());
+    this.userAuthorities = userAuthorities;
+  }
+
+  public UserAuthorities getUserAuthorities() {
+    return this.userAuthorities;
+  }
+}
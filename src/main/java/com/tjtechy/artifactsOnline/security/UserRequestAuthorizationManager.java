@@ -3,42 +3,65 @@ package com.tjtechy.artifactsOnline.security;
 import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.authorization.AuthorizationManager;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.stereotype.Component;
-import org.springframework.web.util.UriTemplate;
 
-import java.util.Map;
+import java.util.List;
 import java.util.function.Supplier;
 
 @Component
 public class UserRequestAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
 
-  private static final UriTemplate USER_URI_TEMPLATE = new UriTemplate("/users/{userId}");
+  //same match as the former UriTemplate("/users/{userId}"): everything after the first /users/
+  private static final String USERS_PATH = "/users/";
+
+  private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+
+  private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
 
 
   @Override
   public AuthorizationDecision check(Supplier<Authentication> authenticationSupplier, RequestAuthorizationContext context) {
-    //Extract the userId from the request URI: /users/{userId}
-    Map<String, String> uriVariables = USER_URI_TEMPLATE.match(context.getRequest().getRequestURI());
-    String userIdFromRequestUri = uriVariables.get("userId");
-
-    //Extract the userId from the Authentication object, which is a Jwt object
+    //roles and userId were worked out once per token by UserJwtAuthenticationConverter
     var authentication = authenticationSupplier.get();
-    String userIdFromJwt = ((Jwt)authentication.getPrincipal()).getClaim("userId").toString();
+    UserAuthorities userAuthorities = authentication instanceof UserJwtAuthenticationToken userJwtAuthenticationToken
+            ? userJwtAuthenticationToken.getUserAuthorities()
+            : userAuthorities(authentication);
 
-    //Check if the user has the role "ROLE_user"
-    boolean hasUserRole = authentication.getAuthorities().stream()
-            .anyMatch(grantedAuthority -> grantedAuthority.getAuthority().equals("ROLE_user"));
+    //admins can access any user
+    if (userAuthorities.hasRole(UserAuthorities.ROLE_ADMIN)) {
+      return GRANTED;
+    }
+    if (!userAuthorities.hasRole(UserAuthorities.ROLE_USER) || userAuthorities.userId() == null) {
+      return DENIED;
+    }
 
-    //Check if the user has the role "ROLE_admin"
-    boolean hasAdminRole = authentication.getAuthorities().stream()
-            .anyMatch(grantedAuthority -> grantedAuthority.getAuthority().equals("ROLE_admin"));
+    //Compare the userId in the request URI (/users/{userId}) with the one from the token, without copying it out
+    String requestUri = context.getRequest().getRequestURI();
+    int start = requestUri.indexOf(USERS_PATH);
+    if (start < 0) {
+      return DENIED;
+    }
+    start += USERS_PATH.length();
+    String userIdFromJwt = userAuthorities.userId();
+    boolean userIdMatch = requestUri.length() - start == userIdFromJwt.length()
+            && requestUri.regionMatches(start, userIdFromJwt, 0, userIdFromJwt.length());
 
-    //Compare the two userIds
-    boolean userIdMatch = userIdFromRequestUri != null && userIdFromRequestUri.equals(userIdFromJwt);
+    return userIdMatch ? GRANTED : DENIED;
+  }
 
-    return new AuthorizationDecision(hasAdminRole || (hasUserRole && userIdMatch));
+  //other authentications (e.g. a JwtAuthenticationToken built elsewhere) are worked out per request
+  private static UserAuthorities userAuthorities(Authentication authentication) {
+    if (authentication.getPrincipal() instanceof Jwt jwt) {
+      return UserAuthorities.of(jwt, authentication.getAuthorities());
+    }
+    int roles = 0;
+    for (GrantedAuthority grantedAuthority : authentication.getAuthorities()) {
+      roles |= UserAuthorities.role(grantedAuthority.getAuthority());
+    }
+    return new UserAuthorities(List.of(), roles, null);
   }
 }
 
@@ -49,6 +72,7 @@ public class UserRequestAuthorizationManager implements AuthorizationManager<Req
 * The constructor param of the AuthorizationDecision is <boolean granted>
 * In this class, we have to check if admin(we don't need to check Id since it is admin) and
 * userRole(we have to check Id).
-* The UriTemplate has a powerful method called match that return two Ids and put
-* them in a map for example: {hotel =1, booking=42}.In our case we need to extract userId
+* The userId used to be extracted with UriTemplate.match (a regex and a map per request), it is
+* now compared in place after the first /users/ of the request URI.
+* The roles are a bitset (UserAuthorities) computed once per token instead of streaming the authorities twice
 * */
\ No newline at end of file
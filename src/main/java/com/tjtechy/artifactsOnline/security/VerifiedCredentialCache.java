@@ -0,0 +1,96 @@
+package com.tjtechy.artifactsOnline.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Remembers username/password pairs that recently passed the (slow) password check, so repeated
+ * HTTP Basic calls skip both the user lookup and bcrypt. Off by default.
+ * Keys are an HMAC-SHA256 of username and password under a random per-process secret; raw passwords
+ * are never stored. Entries of a user must be invalidated whenever that user is changed or removed.
+ */
+@Component
+public class VerifiedCredentialCache {
+
+  private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+  private final boolean enabled;
+
+  private final SecretKeySpec secret;
+
+  private final Cache<String, VerifiedCredential> cache;
+
+  public VerifiedCredentialCache(MeterRegistry meterRegistry,
+                                 @Value("${security.credential-cache.enabled:false}") boolean enabled,
+                                 @Value("${security.credential-cache.maximum-size:10000}") long maximumSize,
+                                 @Value("${security.credential-cache.ttl:60s}") Duration ttl) {
+    this.enabled = enabled;
+
+    byte[] secretBytes = new byte[32];
+    new SecureRandom().nextBytes(secretBytes);
+    this.secret = new SecretKeySpec(secretBytes, HMAC_ALGORITHM);
+
+    this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+    //cache.gets{cache=credentials,result=hit|miss}, cache.evictions, cache.size
+    CaffeineCacheMetrics.monitor(meterRegistry, this.cache, "credentials");
+  }
+
+  public boolean isEnabled() {
+
+    return this.enabled;
+  }
+
+  public Optional<Authentication> find(String username, String password) {
+    if (!this.enabled) {
+      return Optional.empty();
+    }
+    VerifiedCredential verifiedCredential = this.cache.getIfPresent(this.key(username, password));
+    return Optional.ofNullable(verifiedCredential).map(VerifiedCredential::authentication);
+  }
+
+  public void put(String username, String password, Authentication authentication) {
+    if (this.enabled) {
+      this.cache.put(this.key(username, password), new VerifiedCredential(username, authentication));
+    }
+  }
+
+  //drops every cached credential of the user, whatever password it was verified with
+  public void invalidate(String username) {
+    if (this.enabled && username != null) {
+      this.cache.asMap().values().removeIf(verifiedCredential -> verifiedCredential.username().equals(username));
+    }
+  }
+
+  private String key(String username, String password) {
+    try {
+      Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+      mac.init(this.secret);
+      mac.update(username.getBytes(StandardCharsets.UTF_8));
+      mac.update((byte) 0); //separator, so ("ab", "c") and ("a", "bc") differ
+      return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(HMAC_ALGORITHM + " is not available", e);
+    }
+  }
+
+  private record VerifiedCredential(String username, Authentication authentication) {
+  }
+}
@@ -0,0 +1,123 @@
+package com.tjtechy.artifactsOnline.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+
+/**
+ * Bearer tokens that already passed signature and claim validation, with their UserAuthorities.
+ * Clients reuse a token for its whole lifetime, so the signature verification and authority parsing only
+ * happen on the first request. Entries are keyed by the SHA-256 of the token and expire at the
+ * token's exp; tokens without one are kept for max-ttl.
+ */
+@Component
+public class VerifiedJwtCache {
+
+  private final Cache<String, VerifiedJwt> cache;
+
+  public VerifiedJwtCache(MeterRegistry meterRegistry,
+                          @Value("${security.jwt-cache.maximum-size:10000}") long maximumSize,
+                          @Value("${security.jwt-cache.max-ttl:10m}") Duration maxTtl) {
+    this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfter(new UntilTokenExpiry(maxTtl))
+            .recordStats()
+            .build();
+    //cache.gets{cache=jwt,result=hit|miss}, cache.evictions, cache.size
+    CaffeineCacheMetrics.monitor(meterRegistry, this.cache, "jwt");
+  }
+
+  //decoding failures (bad signature, expired...) propagate and are not cached
+  public Jwt decode(String token, JwtDecoder delegate) {
+    String key = key(token);
+    VerifiedJwt verifiedJwt = this.cache.getIfPresent(key);
+    if (verifiedJwt == null) {
+      //verified outside the cache's compute: with a remote jwk-set-uri a miss fetches the key set, and blocking
+      //inside the map's lock would pin a virtual thread's carrier. Racing first requests may both verify
+      verifiedJwt = new VerifiedJwt(delegate.decode(token));
+      this.cache.put(key, verifiedJwt);
+    }
+    return verifiedJwt.jwt;
+  }
+
+  public UserAuthorities userAuthorities(Jwt jwt, Converter<Jwt, Collection<GrantedAuthority>> delegate) {
+    //map view reads don't count as cache gets, the hit/miss was already recorded by decode
+    VerifiedJwt verifiedJwt = this.cache.asMap().get(key(jwt.getTokenValue()));
+    if (verifiedJwt == null) {
+      return UserAuthorities.of(jwt, delegate.convert(jwt));
+    }
+    UserAuthorities userAuthorities = verifiedJwt.userAuthorities;
+    if (userAuthorities == null) {
+      //racing threads may both convert, the results are equal
+      userAuthorities = UserAuthorities.of(jwt, delegate.convert(jwt));
+      verifiedJwt.userAuthorities = userAuthorities;
+    }
+    return userAuthorities;
+  }
+
+  private static String key(String token) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+      return Base64.getEncoder().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  private static class VerifiedJwt {
+
+    private final Jwt jwt;
+
+    private volatile UserAuthorities userAuthorities;
+
+    private VerifiedJwt(Jwt jwt) {
+      this.jwt = jwt;
+    }
+  }
+
+  private static class UntilTokenExpiry implements Expiry<String, VerifiedJwt> {
+
+    private final Duration maxTtl;
+
+    private UntilTokenExpiry(Duration maxTtl) {
+      this.maxTtl = maxTtl;
+    }
+
+    @Override
+    public long expireAfterCreate(String key, VerifiedJwt value, long currentTime) {
+      Instant expiresAt = value.jwt.getExpiresAt();
+      if (expiresAt == null) {
+        return this.maxTtl.toNanos();
+      }
+      return Math.max(Duration.between(Instant.now(), expiresAt).toNanos(), 0);
+    }
+
+    @Override
+    public long expireAfterUpdate(String key, VerifiedJwt value, long currentTime, long currentDuration) {
+
+      return currentDuration;
+    }
+
+    @Override
+    public long expireAfterRead(String key, VerifiedJwt value, long currentTime, long currentDuration) {
+
+      return currentDuration;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.tjtechy.artifactsOnline.system;
+
+import com.tjtechy.artifactsOnline.system.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset (seek) paginated result. Unlike Page, it carries no total count:
+ * the client passes nextCursor back to fetch the following page, and nextCursor is null on the last page.
+ * The cursor is opaque to the client, it encodes the sort key of the last row in this page.
+ */
+public record CursorPage<T>(List<T> content, int size, String nextCursor) {
+
+  public boolean hasNext() {
+
+    return this.nextCursor != null;
+  }
+
+  public <U> CursorPage<U> map(Function<? super T, ? extends U> converter) {
+
+    return new CursorPage<>(this.content.stream().<U>map(converter).toList(), this.size, this.nextCursor);
+  }
+
+  public static String encodeCursor(String lastKey) {
+
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(lastKey.getBytes(StandardCharsets.UTF_8));
+  }
+
+  //an empty cursor asks for the first page
+  public static String decodeCursor(String cursor) {
+    if (cursor == null || cursor.isEmpty()) {
+      return null;
+    }
+    try {
+      return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException exception) {
+      throw new InvalidCursorException(cursor);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package com.tjtechy.artifactsOnline.system;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Component
+public class NdjsonExporter {
+
+  private static final byte NEW_LINE = '\n';
+
+  private final ObjectMapper objectMapper;
+
+  private final EntityManager entityManager;
+
+  public NdjsonExporter(ObjectMapper objectMapper, EntityManager entityManager) {
+    this.objectMapper = objectMapper;
+    this.entityManager = entityManager;
+  }
+
+  /**
+   * Writes every entity of the stream as one converted JSON line (NDJSON) to the output stream, closes the
+   * stream and returns the number of lines. Memory stays constant: the stream must come from a cursor opened
+   * in the caller's transaction, and each entity is detached once written.
+   */
+  public <T> long export(Stream<T> entities, Converter<T, ?> converter, OutputStream outputStream) throws IOException {
+    long count = 0;
+    try (entities) {
+      Iterator<T> iterator = entities.iterator();
+      while (iterator.hasNext()) {
+        T entity = iterator.next();
+        outputStream.write(this.objectMapper.writeValueAsBytes(converter.convert(entity)));
+        outputStream.write(NEW_LINE);
+        this.entityManager.detach(entity);
+        count++;
+      }
+    }
+    outputStream.flush();
+    return count;
+  }
+}
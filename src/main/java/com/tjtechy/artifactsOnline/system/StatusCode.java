@@ -17,6 +17,10 @@ public class StatusCode {
 
   public static final int NOT_FOUND = 404; // Not found
 
+  public static final int PAYLOAD_TOO_LARGE = 413; // Upload over the size limit, or of unknown size
+
   public static final int INTERNAL_SERVER_ERROR = 500; // Server internal error
+
+  public static final int SERVICE_UNAVAILABLE = 503; // An upstream service is unreachable, slow or busy
 }
 
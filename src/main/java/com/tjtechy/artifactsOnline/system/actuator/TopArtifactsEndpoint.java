@@ -0,0 +1,40 @@
+package com.tjtechy.artifactsOnline.system.actuator;
+
+import com.tjtechy.artifactsOnline.artifact.ArtifactPopularityService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+@Endpoint(id = "top-artifacts")
+@Component
+public class TopArtifactsEndpoint {
+
+  private final ArtifactPopularityService artifactPopularityService;
+
+  public TopArtifactsEndpoint(ArtifactPopularityService artifactPopularityService) {
+    this.artifactPopularityService = artifactPopularityService;
+  }
+
+  @ReadOperation
+  public List<Map<String, Object>> topArtifacts(@Nullable Integer limit){
+    List<Map.Entry<String, Long>> ranking = this.artifactPopularityService
+            .findTopArtifacts(limit != null ? limit : Integer.MAX_VALUE);
+    return IntStream.range(0, ranking.size())
+            .mapToObj(index -> {
+              Map<String, Object> row = new LinkedHashMap<>();
+              row.put("rank", index + 1);
+              row.put("artifactId", ranking.get(index).getKey());
+              row.put("estimatedRequests", ranking.get(index).getValue());
+              return row;
+            })
+            .toList();
+  }
+}
+
+//GET /actuator/top-artifacts?limit=5 returns the current ranking of the most requested artifacts
@@ -0,0 +1,42 @@
+package com.tjtechy.artifactsOnline.system.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class CacheConfiguration {
+
+  public static final String ARTIFACT_CACHE = "artifacts";
+
+  public static final String ARTIFACT_OWNER_CACHE = "artifactOwners";
+
+  @Bean
+  public CacheManager cacheManager(@Value("${artifact.cache.maximum-size:10000}") long maximumSize,
+                                   @Value("${artifact.cache.expire-after-write:10m}") Duration expireAfterWrite){
+    CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager(ARTIFACT_CACHE, ARTIFACT_OWNER_CACHE);
+    caffeineCacheManager.setCaffeine(Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(expireAfterWrite)
+            .recordStats()); //needed so hit/miss/eviction counts show up in the MeterRegistry
+    //puts and evicts issued inside a transaction are applied only after it commits
+    return new TransactionAwareCacheManagerProxy(caffeineCacheManager);
+  }
+}
+
+/*
+* The cache names are declared up front so spring boot actuator binds them to the
+* MeterRegistry at startup (cache.gets{result=hit|miss}, cache.evictions, cache.size)
+* and they are scraped by /actuator/prometheus.
+* HIGHEST_PRECEDENCE makes the caching advice wrap the transactional advice, so a cache hit
+* never opens a transaction and an eviction is never followed by a read of uncommitted data.
+* */
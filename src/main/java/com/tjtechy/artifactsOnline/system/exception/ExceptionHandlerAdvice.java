@@ -3,9 +3,12 @@ package com.tjtechy.artifactsOnline.system.exception;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tjtechy.artifactsOnline.client.ai.chat.ChatClientUnavailableException;
+import com.tjtechy.artifactsOnline.security.PasswordEncoderBusyException;
 import com.tjtechy.artifactsOnline.system.Result;
 import com.tjtechy.artifactsOnline.system.StatusCode;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -23,6 +26,8 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.servlet.NoHandlerFoundException;
 
 //import java.nio.file.AccessDeniedException;
@@ -40,6 +45,27 @@ public class ExceptionHandlerAdvice {
     return new Result(false, StatusCode.NOT_FOUND, exception.getMessage());
   }
 
+  @ExceptionHandler(InvalidCursorException.class)
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  Result handleInvalidCursorException(InvalidCursorException exception){
+
+    return new Result(false, StatusCode.INVALID_ARGUMENT, exception.getMessage());
+  }
+
+  @ExceptionHandler(InvalidImageNameException.class)
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  Result handleInvalidImageNameException(InvalidImageNameException exception){
+
+    return new Result(false, StatusCode.INVALID_ARGUMENT, exception.getMessage());
+  }
+
+  @ExceptionHandler(InvalidImageHashException.class)
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  Result handleInvalidImageHashException(InvalidImageHashException exception){
+
+    return new Result(false, StatusCode.INVALID_ARGUMENT, exception.getMessage());
+  }
+
   //exception handling when any required field is not provided
   @ExceptionHandler(MethodArgumentNotValidException.class)
   @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -123,6 +149,42 @@ public class ExceptionHandlerAdvice {
             exception.getStatusCode());
   }
 
+  //upstream unreachable, timed out or its bulkhead full
+  @ExceptionHandler(ResourceAccessException.class)
+  @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+  Result handleResourceAccessException(ResourceAccessException exception){
+
+    return new Result(false, StatusCode.SERVICE_UNAVAILABLE, "An upstream service is unavailable, try again later.", exception.getMessage());
+  }
+
+  //the AI client's circuit breaker or concurrency limit turned the call down without waiting on the model
+  @ExceptionHandler(ChatClientUnavailableException.class)
+  ResponseEntity<Result> handleChatClientUnavailableException(ChatClientUnavailableException exception){
+    //whole seconds, rounded up
+    long retryAfterSeconds = Math.max((exception.getRetryAfter().toMillis() + 999) / 1000, 1);
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+            .body(new Result(false, StatusCode.SERVICE_UNAVAILABLE, "The AI service is unavailable, try again later.", exception.getMessage()));
+  }
+
+  //login storm: the bounded password encoder refused or timed out the check, the credentials were never judged
+  @ExceptionHandler(PasswordEncoderBusyException.class)
+  ResponseEntity<Result> handlePasswordEncoderBusyException(PasswordEncoderBusyException exception){
+    //whole seconds, rounded up
+    long retryAfterSeconds = Math.max((exception.getRetryAfter().toMillis() + 999) / 1000, 1);
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+            .body(new Result(false, StatusCode.SERVICE_UNAVAILABLE, "Too many logins in progress, try again later.", exception.getMessage()));
+  }
+
+  //a multipart file over spring.servlet.multipart, or a streamed image over image-storage.max-image-size
+  @ExceptionHandler(MaxUploadSizeExceededException.class)
+  @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+  Result handleMaxUploadSizeExceededException(MaxUploadSizeExceededException exception){
+
+    return new Result(false, StatusCode.PAYLOAD_TOO_LARGE, "The upload is too large or its size is unknown.", exception.getMessage());
+  }
+
   @ExceptionHandler(CustomBlobStorageException.class)
   @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
   Result handleCustomBlobStorageException(CustomBlobStorageException ex){
@@ -0,0 +1,12 @@
+package com.tjtechy.artifactsOnline.system.exception;
+
+public class InvalidImageHashException extends RuntimeException{
+
+  public InvalidImageHashException(String sha256) {
+    super("Invalid sha256 " + sha256 + ", it needs 64 hex digits");
+  }
+
+  public InvalidImageHashException(String sha256, String actualSha256) {
+    super("The image hashes to " + actualSha256 + ", not to the given sha256 " + sha256);
+  }
+}
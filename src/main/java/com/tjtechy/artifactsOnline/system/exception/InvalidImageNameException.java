@@ -0,0 +1,8 @@
+package com.tjtechy.artifactsOnline.system.exception;
+
+public class InvalidImageNameException extends RuntimeException{
+
+  public InvalidImageNameException(String imageName) {
+    super("Invalid image name " + imageName + ", it needs a plain extension like .png");
+  }
+}
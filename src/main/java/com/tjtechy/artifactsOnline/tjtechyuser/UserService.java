@@ -1,5 +1,6 @@
 package com.tjtechy.artifactsOnline.tjtechyuser;
 
+import com.tjtechy.artifactsOnline.security.VerifiedCredentialCache;
 import com.tjtechy.artifactsOnline.system.exception.ObjectNotFoundException;
 import jakarta.transaction.Transactional;
 import org.springframework.security.core.Authentication;
@@ -9,7 +10,10 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.Arrays;
 import java.util.List;
 
 @Service
@@ -19,10 +23,14 @@ public class UserService implements UserDetailsService {
   private final UserRepository userRepository;
   private final PasswordEncoder passwordEncoder;
 
-  public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+  private final VerifiedCredentialCache verifiedCredentialCache;
+
+  public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                     VerifiedCredentialCache verifiedCredentialCache) {
 
     this.userRepository = userRepository;
     this.passwordEncoder = passwordEncoder;
+    this.verifiedCredentialCache = verifiedCredentialCache;
   }
 
   //find all Users
@@ -42,6 +50,8 @@ public class UserService implements UserDetailsService {
   public TJUser save(TJUser newTJUser){
     //we need to encode plain text password before saving to the DB-->TODO
     newTJUser.setPassword(this.passwordEncoder.encode(newTJUser.getPassword()));
+    //saving with a new password must not leave the old one usable through the credential cache
+    this.invalidateCachedCredentials(newTJUser.getUsername());
     return this.userRepository.save(newTJUser);
   }
 
@@ -51,6 +61,9 @@ public class UserService implements UserDetailsService {
     TJUser oldTJUser = this.userRepository.findById(userId)
             .orElseThrow(() -> new ObjectNotFoundException("user", userId));
 
+    //cached credentials carry the old username, roles and enabled flag
+    this.invalidateCachedCredentials(oldTJUser.getUsername(), update.getUsername());
+
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
     //if the user is not an admin, then the user can only update their username
@@ -68,10 +81,26 @@ public class UserService implements UserDetailsService {
 
   //delete user
   public void delete(Integer userId){
-    this.userRepository.findById(userId).orElseThrow(() -> new ObjectNotFoundException("user", userId));
+    TJUser tjUserToBeDeleted = this.userRepository.findById(userId).orElseThrow(() -> new ObjectNotFoundException("user", userId));
+    this.invalidateCachedCredentials(tjUserToBeDeleted.getUsername());
     this.userRepository.deleteById(userId);
   }
 
+  //once the surrounding transaction commits, a login in between would otherwise cache the old row again
+  private void invalidateCachedCredentials(String... usernames) {
+    Runnable invalidation = () -> Arrays.stream(usernames).forEach(this.verifiedCredentialCache::invalidate);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          invalidation.run();
+        }
+      });
+    } else {
+      invalidation.run();
+    }
+  }
+
   @Override
   public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
     //loadUserByUsername returns UserDetails and not TJUser
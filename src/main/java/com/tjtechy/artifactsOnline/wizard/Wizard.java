@@ -2,6 +2,7 @@ package com.tjtechy.artifactsOnline.wizard;
 
 import com.tjtechy.artifactsOnline.artifact.Artifact;
 import jakarta.persistence.*;
+import org.hibernate.Hibernate;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -21,6 +22,12 @@ public class Wizard implements Serializable {
   @OneToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE}, mappedBy = "owner")
   private List<Artifact> artifacts = new ArrayList<>();
 
+  //kept in step by addArtifact/removeArtifact so the count never needs the artifacts collection; written on insert
+  //only, a persisted wizard's count changes through WizardRepository.changeNumberOfArtifacts so that concurrent
+  //assignments and deletions add up instead of overwriting each other
+  @Column(nullable = false, updatable = false)
+  private int numberOfArtifacts;
+
   //no arg constructor
   public Wizard() {
   }
@@ -60,11 +67,18 @@ public class Wizard implements Serializable {
     //this ensures by-directional relationship between wizards and artifacts
     artifact.setOwner(this);
     this.artifacts.add(artifact);
+    this.numberOfArtifacts++;
   }
 
   public Integer getNumberOfArtifacts() {
 
-    return this.artifacts.size();
+    return this.numberOfArtifacts;
+  }
+
+  //for copies outside a persistence context, like a cached owner; the column itself is never updated from here
+  public void setNumberOfArtifacts(Integer numberOfArtifacts) {
+
+    this.numberOfArtifacts = numberOfArtifacts;
   }
 
   /*this method will handle removing all artifacts assigned
@@ -72,12 +86,17 @@ public class Wizard implements Serializable {
   public void removeAllArtifacts(){
     this.artifacts.stream().forEach(artifact -> artifact.setOwner(null));
     this.artifacts = null;
+    this.numberOfArtifacts = 0;
   }
 
   //method to remove a single artifact
   public void removeArtifact(Artifact artifactToBeAssigned) {
     //remove artifact owner i.e set to null and remove from list of artifacts
     artifactToBeAssigned.setOwner(null);
-    this.artifacts.remove(artifactToBeAssigned);
+    //the owning side is Artifact.owner, so an unloaded collection doesn't have to be loaded just to remove from it
+    if(Hibernate.isInitialized(this.artifacts)){
+      this.artifacts.remove(artifactToBeAssigned);
+    }
+    this.numberOfArtifacts = Math.max(this.numberOfArtifacts - 1, 0);
   }
 }
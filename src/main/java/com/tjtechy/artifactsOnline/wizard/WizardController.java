@@ -1,5 +1,6 @@
 package com.tjtechy.artifactsOnline.wizard;
 
+import com.tjtechy.artifactsOnline.system.CursorPage;
 import com.tjtechy.artifactsOnline.system.Result;
 import com.tjtechy.artifactsOnline.system.StatusCode;
 import com.tjtechy.artifactsOnline.wizard.converter.WizardDtoToWizardConverter;
@@ -8,15 +9,18 @@ import com.tjtechy.artifactsOnline.wizard.dto.WizardDto;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.io.IOException;
 
 @Tag(
         name = "CRUD REST APIs for wizards Resource",
-        description = "CRUD REST APIs - Create Wizard, Update Wizard, Update artifact ownership by Wizard Id and Artifact Id, Get All Wizards, Get Wizard, Delete Wizard"
+        description = "CRUD REST APIs - Create Wizard, Update Wizard, Update artifact ownership by Wizard Id and Artifact Id, Get All Wizards, Export Wizards, Get Wizard, Delete Wizard"
 )
 @RestController
 @RequestMapping("${api.endpoint.base-url}/wizards")
@@ -25,14 +29,17 @@ public class WizardController {
   private final WizardService wizardService;
   private final WizardToWizardDtoConverter wizardToWizardDtoConverter;
   private final WizardDtoToWizardConverter wizardDtoToWizardConverter;
+  private final WizardExportService wizardExportService;
 
   public WizardController(WizardService wizardService,
                           WizardToWizardDtoConverter wizardToWizardDtoConverter,
-                          WizardDtoToWizardConverter wizardDtoToWizardConverter) {
+                          WizardDtoToWizardConverter wizardDtoToWizardConverter,
+                          WizardExportService wizardExportService) {
 
     this.wizardService = wizardService;
     this.wizardToWizardDtoConverter = wizardToWizardDtoConverter;
     this.wizardDtoToWizardConverter = wizardDtoToWizardConverter;
+    this.wizardExportService = wizardExportService;
   }
 
   //find a particular wizard
@@ -56,21 +63,42 @@ public class WizardController {
   //find all wizards
   @Operation(
           summary = "Get all Wizards REST API",
-          description = "Get all Wizards is used to get wizards in database"
+          description = "Get all Wizards is used to get wizards in database, pass cursor (empty for the first page) for keyset paging"
   )
   @ApiResponse(
           responseCode = "200",
           description = "HTTP Status 200 SUCCESS"
   )
   @GetMapping
-  public Result findAllWizards(){
+  public Result findAllWizards(Pageable pageable, @RequestParam(required = false) String cursor){
 
-    List<Wizard> foundWizards = this.wizardService.findAll();
+    //a cursor (empty for the first page) opts in to keyset paging, which skips the count query
+    if(cursor != null){
+      CursorPage<WizardDto> wizardDtoCursorPage = this.wizardService.findAll(cursor, pageable.getPageSize())
+              .map(this.wizardToWizardDtoConverter::convert);
+      return new Result(true, StatusCode.SUCCESS, "Find All Success", wizardDtoCursorPage);
+    }
+
+    Page<Wizard> wizardPage = this.wizardService.findAll(pageable);
     //convert found Wizard to Dto
-    List<WizardDto> foundWizardDtos = foundWizards.stream()
-            .map(this.wizardToWizardDtoConverter::convert)
-            .collect(Collectors.toList());
-    return new Result(true, StatusCode.SUCCESS, "Find All Success", foundWizardDtos);
+    Page<WizardDto> foundWizardDtoPage = wizardPage.map(this.wizardToWizardDtoConverter::convert);
+    return new Result(true, StatusCode.SUCCESS, "Find All Success", foundWizardDtoPage);
+  }
+
+  //export all wizards
+  @Operation(
+          summary = "Export Wizards REST API",
+          description = "Export Wizards is used to stream every wizard in database as newline delimited JSON"
+  )
+  @ApiResponse(
+          responseCode = "200",
+          description = "HTTP Status 200 SUCCESS"
+  )
+  @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public void exportWizards(HttpServletResponse response) throws IOException {
+    //written straight to the response, one wizardDto per line, nothing is collected in memory
+    response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+    this.wizardExportService.exportAll(response.getOutputStream());
   }
 
   //create a wizard
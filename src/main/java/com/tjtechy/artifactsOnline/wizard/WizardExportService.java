@@ -0,0 +1,37 @@
+package com.tjtechy.artifactsOnline.wizard;
+
+import com.tjtechy.artifactsOnline.system.NdjsonExporter;
+import com.tjtechy.artifactsOnline.wizard.converter.WizardToWizardDtoConverter;
+import jakarta.transaction.Transactional;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+@Service
+@Transactional
+public class WizardExportService {
+
+  private final WizardRepository wizardRepository;
+
+  private final WizardToWizardDtoConverter wizardToWizardDtoConverter;
+
+  private final NdjsonExporter ndjsonExporter;
+
+  public WizardExportService(WizardRepository wizardRepository,
+                             WizardToWizardDtoConverter wizardToWizardDtoConverter,
+                             NdjsonExporter ndjsonExporter) {
+    this.wizardRepository = wizardRepository;
+    this.wizardToWizardDtoConverter = wizardToWizardDtoConverter;
+    this.ndjsonExporter = ndjsonExporter;
+  }
+
+  /**
+   * Writes every wizard as one JSON line (NDJSON) to the output stream and returns the number of lines.
+   * The artifact count is a column, so no artifacts are loaded.
+   */
+  public long exportAll(OutputStream outputStream) throws IOException {
+
+    return this.ndjsonExporter.export(this.wizardRepository.streamAll(), this.wizardToWizardDtoConverter, outputStream);
+  }
+}
@@ -1,8 +1,40 @@
 package com.tjtechy.artifactsOnline.wizard;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface WizardRepository extends JpaRepository<Wizard, Integer> {
+
+  //keyset page, the next rows after lastId
+  List<Wizard> findByIdGreaterThanOrderByIdAsc(Integer lastId, Limit limit);
+
+  //rows are pulled from a JDBC cursor 500 at a time, the stream must be consumed (and closed) inside a transaction
+  @QueryHints({
+          @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+          @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  @Query("select w from Wizard w order by w.id")
+  Stream<Wizard> streamAll();
+
+  //a read-modify-write in the database, so concurrent changes to the same wizard's count are never lost
+  @Modifying
+  @Query("update Wizard w set w.numberOfArtifacts = w.numberOfArtifacts + :delta where w.id = :wizardId")
+  int changeNumberOfArtifacts(@Param("wizardId") Integer wizardId, @Param("delta") int delta);
+
+  //sets every drifted numberOfArtifacts back to the real count in one statement, returns the number of fixed wizards
+  @Modifying(clearAutomatically = true)
+  @Query("update Wizard w set w.numberOfArtifacts = (select count(a) from Artifact a where a.owner = w) " +
+          "where w.numberOfArtifacts <> (select count(a) from Artifact a where a.owner = w)")
+  int reconcileNumberOfArtifacts();
 }
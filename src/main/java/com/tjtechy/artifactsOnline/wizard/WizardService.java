@@ -1,10 +1,20 @@
 package com.tjtechy.artifactsOnline.wizard;
 
 import com.tjtechy.artifactsOnline.artifact.Artifact;
+import com.tjtechy.artifactsOnline.artifact.ArtifactCache;
+import com.tjtechy.artifactsOnline.artifact.ArtifactCatalogVersion;
 import com.tjtechy.artifactsOnline.artifact.ArtifactRepository;
 import com.tjtechy.artifactsOnline.artifact.utils.IdWorker;
+import com.tjtechy.artifactsOnline.system.CursorPage;
+import com.tjtechy.artifactsOnline.system.exception.InvalidCursorException;
 import com.tjtechy.artifactsOnline.system.exception.ObjectNotFoundException;
 import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -13,14 +23,23 @@ import java.util.List;
 @Transactional
 public class WizardService {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(WizardService.class);
+
   private final WizardRepository wizardRepository;
 
   private final ArtifactRepository artifactRepository;
 
-  public WizardService(WizardRepository wizardRepository, ArtifactRepository artifactRepository) {
+  private final ArtifactCache artifactCache; //cached artifacts render their owner
+
+  private final ArtifactCatalogVersion artifactCatalogVersion; //the artifact summary names every owner
+
+  public WizardService(WizardRepository wizardRepository, ArtifactRepository artifactRepository, ArtifactCache artifactCache,
+                       ArtifactCatalogVersion artifactCatalogVersion) {
 
     this.wizardRepository = wizardRepository;
     this.artifactRepository = artifactRepository;
+    this.artifactCache = artifactCache;
+    this.artifactCatalogVersion = artifactCatalogVersion;
   }
   public Wizard findById(Integer wizardId){
 
@@ -33,6 +52,30 @@ public class WizardService {
     return this.wizardRepository.findAll();
   }
 
+  public Page<Wizard> findAll(Pageable pageable){
+
+    return this.wizardRepository.findAll(pageable);
+  }
+
+  //keyset paging, an empty cursor starts at the first page
+  public CursorPage<Wizard> findAll(String cursor, int size){
+    String lastId = CursorPage.decodeCursor(cursor);
+    Integer afterId;
+    try {
+      afterId = lastId != null ? Integer.valueOf(lastId) : Integer.MIN_VALUE;
+    } catch (NumberFormatException e) {
+      throw new InvalidCursorException(cursor);
+    }
+
+    //fetch one extra row to know whether there is a next page
+    List<Wizard> rows = this.wizardRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(size + 1));
+    if(rows.size() <= size){
+      return new CursorPage<>(rows, size, null);
+    }
+    List<Wizard> content = rows.subList(0, size);
+    return new CursorPage<>(content, size, CursorPage.encodeCursor(String.valueOf(content.get(size - 1).getId())));
+  }
+
   public Wizard create(Wizard newWizard){
 
     return this.wizardRepository.save(newWizard);
@@ -45,6 +88,8 @@ public class WizardService {
     return this.wizardRepository.findById(wizardId)
             .map(oldWizard -> {
               oldWizard.setName(update.getName());
+              this.artifactCache.evictOwner(wizardId);
+              this.artifactCatalogVersion.bump();
               return this.wizardRepository.save(oldWizard);
             })
             .orElseThrow(()->new ObjectNotFoundException("wizard", wizardId));
@@ -52,10 +97,14 @@ public class WizardService {
 
   public void delete(Integer wizardId){
     //first find if Id exist or not, then delete
-    this.wizardRepository.findById(wizardId).orElseThrow(()->
+    Wizard wizardToBeDeleted = this.wizardRepository.findById(wizardId).orElseThrow(()->
             new ObjectNotFoundException("wizard", wizardId));
     //if found
+    //unassign its artifacts, this also zeroes the wizard's artifact count
+    wizardToBeDeleted.removeAllArtifacts();
     this.wizardRepository.deleteById(wizardId);
+    this.artifactCache.evictOwner(wizardId);
+    this.artifactCatalogVersion.bump();
   }
 
   public void assignArtifact(Integer wizardId, String artifactId){
@@ -71,12 +120,32 @@ public class WizardService {
     //we need to see if the artifact is already owned by some wizard
     if(artifactToBeAssigned.getOwner() != null){
       //remove (create the method in wizard class)
-      artifactToBeAssigned.getOwner().removeArtifact(artifactToBeAssigned);
+      Wizard previousOwner = artifactToBeAssigned.getOwner();
+      previousOwner.removeArtifact(artifactToBeAssigned);
+      this.wizardRepository.changeNumberOfArtifacts(previousOwner.getId(), -1);
+      this.artifactCache.evictOwner(previousOwner.getId());
     }
     wizard.addArtifact(artifactToBeAssigned);
+    this.wizardRepository.changeNumberOfArtifacts(wizardId, 1);
+    this.artifactCache.evictOwner(wizardId);
+    //the cached artifact holds its owner's id, the owners' other artifacts stay cached
+    this.artifactCache.evictArtifact(artifactId);
+    this.artifactCatalogVersion.bump();
+  }
 
-
-
+  //numberOfArtifacts is only changed through WizardRepository.changeNumberOfArtifacts, anything bypassing it
+  //(bulk imports, manual SQL) is fixed here
+  @Scheduled(fixedDelayString = "${wizard.artifact-count.reconcile-interval-ms:3600000}",
+          initialDelayString = "${wizard.artifact-count.reconcile-initial-delay-ms:60000}")
+  public int reconcileArtifactCounts(){
+    int fixedWizards = this.wizardRepository.reconcileNumberOfArtifacts();
+    if(fixedWizards > 0){
+      LOGGER.warn("Reconciled the artifact count of {} wizard(s)", fixedWizards);
+      //cached owners carry the count
+      this.artifactCache.evictAllOwners();
+      this.artifactCatalogVersion.bump();
+    }
+    return fixedWizards;
   }
 
 }
@@ -30,7 +30,11 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -84,6 +88,90 @@ public class ArtifactControllerIntegrationTest {
             .andExpect(jsonPath("$.data.content", Matchers.hasSize(6))); //we have 6 artifacts in the db
   }
 
+  @Test
+  @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+  void testExportArtifactsSuccess() throws Exception {
+    MvcResult mvcResult = this.mockMvc.perform(get(this.baseUrl + "/artifacts/export").header("Authorization", this.token))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+            .andReturn();
+
+    //one json object per line, one line per artifact in the db
+    String[] lines = mvcResult.getResponse().getContentAsString().split("\n");
+    assertEquals(6, lines.length);
+    for (String line : lines) {
+      assertTrue(new JSONObject(line).has("id"));
+    }
+  }
+
+  @Test
+  void testExportArtifactsWithoutAuthentication() throws Exception {
+    this.mockMvc.perform(get(this.baseUrl + "/artifacts/export"))
+            .andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  @DirtiesContext
+  void testImportArtifactsReportsInvalidRows() throws Exception {
+    //second row misses its description, the other two must still be imported
+    String ndjson = """
+            {"name":"Remembrall","description":"A glass ball that contained smoke","imageUrl":"ImageUrl"}
+            {"name":"Pensieve","imageUrl":"ImageUrl"}
+            {"name":"Time-Turner","description":"A device used for time travel","imageUrl":"ImageUrl"}
+            """;
+
+    this.mockMvc.perform(post(this.baseUrl + "/artifacts/import")
+                    .contentType(MediaType.APPLICATION_NDJSON).header("Authorization", this.token)
+                    .content(ndjson).accept(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.flag").value(true))
+            .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+            .andExpect(jsonPath("$.message").value("Import Success"))
+            .andExpect(jsonPath("$.data.imported").value(2))
+            .andExpect(jsonPath("$.data.failed").value(1))
+            .andExpect(jsonPath("$.data.errors[0].row").value(2))
+            .andExpect(jsonPath("$.data.errors[0].message").value("description: description is required."));
+
+    this.mockMvc.perform(post(this.baseUrl + "/artifacts/search")
+                    .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Time-Turner\"}").accept(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.data.content", Matchers.hasSize(1)));
+  }
+
+  @Test
+  @DirtiesContext
+  void testImportArtifactsReportsOnlyTheRowTheDatabaseRejects() throws Exception {
+    //a full chunk of 500 valid rows, row 250's name passes validation but is longer than the column
+    StringBuilder ndjson = new StringBuilder();
+    for (int row = 1; row <= 500; row++) {
+      String name = row == 250 ? "N".repeat(300) : "Imported artifact " + row;
+      ndjson.append("{\"name\":\"").append(name).append("\",\"description\":\"Imported\",\"imageUrl\":\"ImageUrl\"}\n");
+    }
+
+    this.mockMvc.perform(post(this.baseUrl + "/artifacts/import")
+                    .contentType(MediaType.APPLICATION_NDJSON).header("Authorization", this.token)
+                    .content(ndjson.toString()).accept(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.flag").value(true))
+            .andExpect(jsonPath("$.data.imported").value(499))
+            .andExpect(jsonPath("$.data.failed").value(1))
+            .andExpect(jsonPath("$.data.errors", Matchers.hasSize(1)))
+            .andExpect(jsonPath("$.data.errors[0].row").value(250));
+  }
+
+  @Test
+  @DirtiesContext
+  void testImportArtifactsFromJsonArray() throws Exception {
+    String json = """
+            [{"name":"Remembrall","description":"A glass ball that contained smoke","imageUrl":"ImageUrl"},
+             {"name":"Time-Turner","description":"A device used for time travel","imageUrl":"ImageUrl"}]
+            """;
+
+    this.mockMvc.perform(post(this.baseUrl + "/artifacts/import")
+                    .contentType(MediaType.APPLICATION_JSON).header("Authorization", this.token)
+                    .content(json).accept(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.flag").value(true))
+            .andExpect(jsonPath("$.data.imported").value(2))
+            .andExpect(jsonPath("$.data.failed").value(0));
+  }
+
   //Add artifact
   @Test
   @DisplayName("Check addArtifact with valid input (POST)")
@@ -3,6 +3,7 @@ package com.tjtechy.artifactsOnline.artifact;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tjtechy.artifactsOnline.artifact.dto.ArtifactDto;
+import com.tjtechy.artifactsOnline.system.CursorPage;
 import com.tjtechy.artifactsOnline.system.StatusCode;
 import com.tjtechy.artifactsOnline.system.exception.ObjectNotFoundException;
 import org.hamcrest.Matchers;
@@ -37,6 +38,7 @@ import static org.springframework.mock.http.server.reactive.MockServerHttpReques
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 
 @SpringBootTest
@@ -156,6 +158,25 @@ class ArtifactControllerTest {
             .andExpect(jsonPath("$.data.content[1].name").value("Invisibility Cloak"));
   }
 
+  @Test
+  void testFindAllArtifactsWithCursorSuccess() throws Exception {
+    //Given
+    CursorPage<Artifact> artifactCursorPage = new CursorPage<>(this.artifacts.subList(0, 2), 2,
+            CursorPage.encodeCursor("125080601744904192"));
+    given(this.artifactService.findAll("", 2)).willReturn(artifactCursorPage);
+
+    //When and Then
+    this.mockMvc.perform(get(this.baseUrl + "/artifacts").accept(MediaType.APPLICATION_JSON)
+                    .param("cursor", "").param("size", "2"))
+            .andExpect(jsonPath("$.flag").value(true))
+            .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+            .andExpect(jsonPath("$.message").value("Find All Success"))
+            .andExpect(jsonPath("$.data.content", Matchers.hasSize(2)))
+            .andExpect(jsonPath("$.data.content[1].id").value("125080601744904192"))
+            .andExpect(jsonPath("$.data.nextCursor").value(CursorPage.encodeCursor("125080601744904192")))
+            .andExpect(jsonPath("$.data.totalElements").doesNotExist());
+  }
+
   //3. create/add artifacts
 
   //positive scenario
@@ -304,6 +325,34 @@ class ArtifactControllerTest {
             .andExpect(jsonPath("$.data").value("The summary includes six artifacts, owned by three wizards."));
   }
 
+  @Test
+  void testStreamImageErrorWithInvalidSha256() throws Exception {
+    //too short, and not hex
+    for (String sha256 : List.of("abc123", "../".repeat(21) + "a")) {
+      this.mockMvc.perform(post(this.baseUrl + "/artifacts/images")
+                      .param("containerName", "artifacts").param("imageName", "cloak.png").param("sha256", sha256)
+                      .contentType(MediaType.APPLICATION_OCTET_STREAM).content(new byte[]{1, 2, 3})
+                      .accept(MediaType.APPLICATION_JSON))
+              .andExpect(status().isBadRequest())
+              .andExpect(jsonPath("$.flag").value(false))
+              .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT));
+    }
+  }
+
+  @Test
+  void testStreamImageErrorWithInvalidImageName() throws Exception {
+    //no extension at all, and an "extension" that would add path segments to the blob name
+    for (String imageName : List.of("cloak", "x./../y")) {
+      this.mockMvc.perform(post(this.baseUrl + "/artifacts/images")
+                      .param("containerName", "artifacts").param("imageName", imageName)
+                      .contentType(MediaType.APPLICATION_OCTET_STREAM).content(new byte[]{1, 2, 3})
+                      .accept(MediaType.APPLICATION_JSON))
+              .andExpect(status().isBadRequest())
+              .andExpect(jsonPath("$.flag").value(false))
+              .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT));
+    }
+  }
+
 }
 
 
@@ -0,0 +1,144 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import com.tjtechy.artifactsOnline.client.imagestorage.FileSystemImageStorageClient;
+import com.tjtechy.artifactsOnline.client.imagestorage.ImageStorageClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GET /artifacts/images/{containerName}/{imageName} against a real Tomcat (which sends the file with sendfile)
+ * with the local-storage profile, so images are stored by FileSystemImageStorageClient in a temporary directory.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.datasource.url=jdbc:h2:mem:artifact-image")
+@DisplayName("Integration test for Artifact image API on the local file system")
+@Tag("integration")
+@ActiveProfiles(value = {"development", "local-storage"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class ArtifactImageControllerIntegrationTest {
+
+  @LocalServerPort
+  int port;
+
+  @Autowired
+  ImageStorageClient imageStorageClient;
+
+  HttpClient httpClient;
+
+  byte[] image;
+
+  String imageUrl;
+
+  @DynamicPropertySource
+  static void imageDirectory(DynamicPropertyRegistry registry) throws IOException {
+    registry.add("image-storage.file-system.directory", Files.createTempDirectory("artifact-images")::toString);
+  }
+
+  @BeforeEach
+  void setUp() throws IOException {
+    this.httpClient = HttpClient.newHttpClient();
+    this.image = new byte[1024 * 1024];
+    new Random(42).nextBytes(this.image);
+    this.imageUrl = this.imageStorageClient.uploadImage("images", "wand.png", new ByteArrayInputStream(this.image), this.image.length);
+  }
+
+  @Test
+  @DisplayName("Check that the local-storage profile selects the file system image storage")
+  void testLocalStorageProfileSelectsTheFileSystem() {
+    assertThat(this.imageStorageClient).isInstanceOf(FileSystemImageStorageClient.class);
+  }
+
+  @Test
+  @DisplayName("Check findImage (GET): the whole image with its ETag")
+  void testFindImage() throws IOException, InterruptedException {
+    //When
+    HttpResponse<byte[]> response = this.send(this.request().GET().build());
+
+    //Then
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.body()).isEqualTo(this.image);
+    assertThat(response.headers().firstValue("Content-Type")).hasValue("image/png");
+    assertThat(response.headers().firstValue("Accept-Ranges")).hasValue("bytes");
+    assertThat(response.headers().firstValue("ETag")).hasValue("\"" + this.hash() + "\"");
+  }
+
+  @Test
+  @DisplayName("Check findImage (GET) with Range: only the bytes asked for")
+  void testFindImageRange() throws IOException, InterruptedException {
+    //When
+    HttpResponse<byte[]> response = this.send(this.request().header("Range", "bytes=1000-1999").GET().build());
+
+    //Then
+    assertThat(response.statusCode()).isEqualTo(206);
+    assertThat(response.body()).isEqualTo(Arrays.copyOfRange(this.image, 1000, 2000));
+    assertThat(response.headers().firstValue("Content-Range")).hasValue("bytes 1000-1999/" + this.image.length);
+  }
+
+  @Test
+  @DisplayName("Check findImage (GET) with Range past the end: 416")
+  void testFindImageRangeNotSatisfiable() throws IOException, InterruptedException {
+    //When
+    HttpResponse<byte[]> response = this.send(this.request().header("Range", "bytes=" + this.image.length + "-").GET().build());
+
+    //Then
+    assertThat(response.statusCode()).isEqualTo(416);
+    assertThat(response.headers().firstValue("Content-Range")).hasValue("bytes */" + this.image.length);
+  }
+
+  @Test
+  @DisplayName("Check findImage (GET) with If-None-Match: 304 without a body")
+  void testFindImageNotModified() throws IOException, InterruptedException {
+    //When
+    HttpResponse<byte[]> response = this.send(this.request().header("If-None-Match", "\"" + this.hash() + "\"").GET().build());
+
+    //Then
+    assertThat(response.statusCode()).isEqualTo(304);
+    assertThat(response.body()).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Check findImage (GET) with a name not stored: 404")
+  void testFindImageNotFound() throws IOException, InterruptedException {
+    //When
+    HttpResponse<byte[]> response = this.send(HttpRequest.newBuilder(URI.create(
+            "http://localhost:" + this.port + this.imageUrl.replace(this.hash(), "0".repeat(64)))).GET().build());
+
+    //Then
+    assertThat(response.statusCode()).isEqualTo(404);
+  }
+
+  private HttpRequest.Builder request() {
+
+    return HttpRequest.newBuilder(URI.create("http://localhost:" + this.port + this.imageUrl));
+  }
+
+  private HttpResponse<byte[]> send(HttpRequest request) throws IOException, InterruptedException {
+
+    return this.httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+  }
+
+  private String hash() {
+
+    return this.imageUrl.substring(this.imageUrl.lastIndexOf('/') + 1, this.imageUrl.lastIndexOf('.'));
+  }
+}
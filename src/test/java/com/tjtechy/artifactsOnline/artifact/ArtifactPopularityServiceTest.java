@@ -0,0 +1,37 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArtifactPopularityServiceTest {
+
+  ArtifactPopularityService artifactPopularityService;
+
+  @BeforeEach
+  void setUp() {
+    this.artifactPopularityService = new ArtifactPopularityService(new SimpleMeterRegistry(), 2, 4, 1024);
+    for (int i = 0; i < 3; i++) {
+      this.artifactPopularityService.recordRequest("1250808601744904191");
+    }
+    this.artifactPopularityService.recordRequest("1250808601744904192");
+    this.artifactPopularityService.recordRequest("1250808601744904193");
+  }
+
+  @Test
+  void testFindTopArtifactsIsCappedAtTopN() {
+    //When, Then
+    assertThat(this.artifactPopularityService.findTopArtifacts(Integer.MAX_VALUE)).hasSize(2);
+    assertThat(this.artifactPopularityService.findTopArtifacts(1).get(0).getKey()).isEqualTo("1250808601744904191");
+  }
+
+  @Test
+  void testFindTopArtifactsWithZeroOrNegativeLimitIsEmpty() {
+    //When, Then
+    assertThat(this.artifactPopularityService.findTopArtifacts(0)).isEmpty();
+    assertThat(this.artifactPopularityService.findTopArtifacts(-1)).isEmpty();
+    assertThat(this.artifactPopularityService.findTopArtifacts(Integer.MIN_VALUE)).isEmpty();
+  }
+}
@@ -0,0 +1,132 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import com.tjtechy.artifactsOnline.system.StatusCode;
+import com.tjtechy.artifactsOnline.wizard.Wizard;
+import com.tjtechy.artifactsOnline.wizard.WizardRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+
+//counts the SQL statements behind one page of artifacts, it must not grow with the number of owners on the page
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true", "spring.datasource.url=jdbc:h2:mem:artifact-query-count"})
+@AutoConfigureMockMvc
+@DisplayName("SQL statement count tests for Artifact list and search")
+@Tag("integration")
+@ActiveProfiles(value = "development")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class ArtifactQueryCountIntegrationTest {
+
+  private static final int WIZARDS = 10;
+
+  private static final int ARTIFACTS_PER_WIZARD = 2;
+
+  @Autowired
+  MockMvc mockMvc;
+
+  @Autowired
+  WizardRepository wizardRepository;
+
+  @Autowired
+  ArtifactRepository artifactRepository;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Value("${api.endpoint.base-url}")
+  String baseUrl;
+
+  Statistics statistics;
+
+  @BeforeEach
+  void setUp() {
+    //artifact ids are generated, so the seeded rows are recognized by their wizards' names
+    if(this.wizardRepository.findAll().stream().noneMatch(wizard -> wizard.getName().startsWith("Query Count Wizard"))){
+      for(int i = 0; i < WIZARDS; i++){
+        Wizard wizard = new Wizard();
+        wizard.setName("Query Count Wizard " + i);
+        for(int j = 0; j < ARTIFACTS_PER_WIZARD; j++){
+          Artifact artifact = new Artifact();
+          artifact.setName("Query Count Artifact");
+          artifact.setDescription("Owned by wizard " + i);
+          artifact.setImageUrl("ImageUrl");
+          wizard.addArtifact(artifact);
+        }
+        this.wizardRepository.save(wizard);
+      }
+    }
+
+    this.statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    this.statistics.clear();
+  }
+
+  @Test
+  void testFindAllArtifactsPageStatementCount() throws Exception {
+    //page select (owners joined, their artifact count is a column) and count select
+    this.mockMvc.perform(get(this.baseUrl + "/artifacts").param("size", "50").accept(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+            .andExpect(jsonPath("$.data.content[?(@.description == 'Owned by wizard 0')]", hasSize(ARTIFACTS_PER_WIZARD)))
+            .andExpect(jsonPath("$.data.content[?(@.description == 'Owned by wizard 0')].owner.numberOfArtifacts",
+                    everyItem(is(ARTIFACTS_PER_WIZARD))));
+
+    assertThat(this.statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+  }
+
+  @Test
+  void testFindAllArtifactsCursorPageStatementCount() throws Exception {
+    this.mockMvc.perform(get(this.baseUrl + "/artifacts").param("cursor", "").param("size", "50").accept(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS));
+
+    //no count select on the keyset path, owners are joined or at worst loaded in one batch
+    assertThat(this.statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+  }
+
+  @Test
+  void testSearchArtifactsPageStatementCount() throws Exception {
+    this.mockMvc.perform(post(this.baseUrl + "/artifacts/search").param("size", "50")
+                    .contentType(MediaType.APPLICATION_JSON).content("{\"name\": \"Query Count\"}")
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+            .andExpect(jsonPath("$.data.content", hasSize(WIZARDS * ARTIFACTS_PER_WIZARD)))
+            .andExpect(jsonPath("$.data.content[0].owner.numberOfArtifacts").value(ARTIFACTS_PER_WIZARD));
+
+    assertThat(this.statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+  }
+
+  @Test
+  void testFindArtifactByIdCacheHitStatementCount() throws Exception {
+    String artifactId = this.artifactRepository.findAll().stream()
+            .filter(artifact -> "Owned by wizard 0".equals(artifact.getDescription()))
+            .findFirst().orElseThrow().getId();
+    //the first read misses and fills both the artifact and its owner entry
+    this.mockMvc.perform(get(this.baseUrl + "/artifacts/" + artifactId).accept(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS));
+    this.statistics.clear();
+
+    this.mockMvc.perform(get(this.baseUrl + "/artifacts/" + artifactId).accept(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+            .andExpect(jsonPath("$.data.owner.name").value("Query Count Wizard 0"))
+            .andExpect(jsonPath("$.data.owner.numberOfArtifacts").value(ARTIFACTS_PER_WIZARD));
+
+    assertThat(this.statistics.getPrepareStatementCount()).isZero();
+  }
+}
@@ -0,0 +1,118 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares POST /artifacts/search by name and description on the SQL like path and on the trigram index.
+ * Not part of the normal build, run it with:
+ * ./mvnw test -Dgroups=benchmark -Dbenchmark=true -Dbenchmark.artifacts=1000000
+ */
+@SpringBootTest(properties = {"artifact.search-index.enabled=true", "artifact.search-index.max-candidates=10000", "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:artifact-search-benchmark"})
+@DisplayName("Benchmark of the artifact search index against the SQL like query")
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@ActiveProfiles(value = "development")
+@DirtiesContext
+class ArtifactSearchIndexBenchmarkTest {
+
+  private static final String[] WORDS = {"wand", "cloak", "stone", "map", "sword", "ring", "cup", "locket",
+          "diadem", "horcrux", "elder", "invisible", "marauder", "resurrection", "gryffindor", "phoenix"};
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  ArtifactService artifactService;
+
+  @Autowired
+  ArtifactRepository artifactRepository;
+
+  @Autowired
+  ArtifactSearchIndex artifactSearchIndex;
+
+  @Test
+  void benchmarkSearchByNameAndDescription() {
+    int artifactCount = Integer.getInteger("benchmark.artifacts", 1_000_000);
+    insertArtifacts(artifactCount);
+
+    long start = System.nanoTime();
+    this.artifactSearchIndex.rebuild();
+    System.out.printf("index build: %d artifacts in %d ms%n", artifactCount, (System.nanoTime() - start) / 1_000_000);
+
+    List<Map<String, String>> queries = List.of(
+            Map.of("name", "horcrux phoenix"),
+            Map.of("name", "diadem ring"),
+            Map.of("description", "locket elder sword"),
+            Map.of("name", "cloak", "description", "resurrection map"));
+
+    for (Map<String, String> criteria : queries) {
+      PageRequest pageable = PageRequest.of(0, 20);
+
+      //the like path, exactly what runs when the index is disabled
+      long sqlStart = System.nanoTime();
+      Page<Artifact> sqlPage = this.artifactRepository.findAll(likeSpecification(criteria), pageable);
+      long sqlNanos = System.nanoTime() - sqlStart;
+
+      long indexStart = System.nanoTime();
+      Page<Artifact> indexPage = this.artifactService.findByCriteria(criteria, pageable);
+      long indexNanos = System.nanoTime() - indexStart;
+
+      System.out.printf("%s: sql %d ms, index %d ms, %d matches%n",
+              criteria, sqlNanos / 1_000_000, indexNanos / 1_000_000, sqlPage.getTotalElements());
+      assertThat(indexPage.getTotalElements()).isEqualTo(sqlPage.getTotalElements());
+    }
+  }
+
+  private static Specification<Artifact> likeSpecification(Map<String, String> criteria) {
+    Specification<Artifact> spec = Specification.where(null);
+    if (criteria.containsKey("name")) {
+      spec = spec.and(ArtifactSpecs.containsName(criteria.get("name")));
+    }
+    if (criteria.containsKey("description")) {
+      spec = spec.and(ArtifactSpecs.containsDescription(criteria.get("description")));
+    }
+    return spec;
+  }
+
+  private void insertArtifacts(int artifactCount) {
+    Random random = new Random(7);
+    List<Object[]> batch = new ArrayList<>(10_000);
+    for (int i = 0; i < artifactCount; i++) {
+      batch.add(new Object[]{String.valueOf(200_000_000_000_000_000L + i), words(random, 2), words(random, 8), "ImageUrl"});
+      if (batch.size() == 10_000) {
+        this.jdbcTemplate.batchUpdate("insert into artifact (id, name, description, image_url) values (?, ?, ?, ?)", batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      this.jdbcTemplate.batchUpdate("insert into artifact (id, name, description, image_url) values (?, ?, ?, ?)", batch);
+    }
+  }
+
+  private static String words(Random random, int count) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      builder.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    return builder.toString();
+  }
+}
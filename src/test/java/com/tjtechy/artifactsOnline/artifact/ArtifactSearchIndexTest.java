@@ -0,0 +1,215 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ArtifactSearchIndexTest {
+
+  @Mock
+  ArtifactRepository artifactRepository;
+
+  ArtifactSearchIndex artifactSearchIndex;
+
+  List<Artifact> artifacts;
+
+  @BeforeEach
+  void setUp() {
+    //an empty table, searches fall back to SQL until the first build
+    given(this.artifactRepository.findBy(any(Specification.class), any())).willReturn(List.of());
+    this.artifactSearchIndex = new ArtifactSearchIndex(this.artifactRepository, true, 1000, true);
+    this.artifactSearchIndex.rebuild();
+    this.artifacts = new ArrayList<>();
+    this.artifacts.add(artifact("125080601744904191", "Deluminator", "A deluminator is a device invented by Albus Dumbledore that resembles"));
+    this.artifacts.add(artifact("125080601744904192", "Invisibility Cloak", "A Invisibility cloak is to make the wearer invisible"));
+    this.artifacts.add(artifact("125080601744904193", "Elder Wand", "The elder wand is know as Deathstick"));
+    this.artifacts.add(artifact("125080601744904194", "The Marauder's Map", "The magical map is created by Remus Lupin"));
+    this.artifacts.add(artifact("125080601744904195", "The sword of Gryffindor", "The globin made sword adorned with large rubies on"));
+    this.artifacts.add(artifact("125080601744904196", "Resurrection stone", "The Resurrection stone allow the holders"));
+    this.artifacts.forEach(this.artifactSearchIndex::index);
+  }
+
+  @Test
+  void testFindIdsByNameMatchesLikeQuery() {
+    for (String name : List.of("wand", "WAND", "the", "ion", "cloak", "marauder's", "xyz", "Deluminator")) {
+      assertThat(this.artifactSearchIndex.findIdsByName(name)).contains(likeMatches(name, Artifact::getName));
+    }
+  }
+
+  @Test
+  void testFindIdsByDescriptionMatchesLikeQuery() {
+    for (String description : List.of("invisible", "the ", "DUMBLEDORE", "stone allow", "nothing here")) {
+      assertThat(this.artifactSearchIndex.findIdsByDescription(description)).contains(likeMatches(description, Artifact::getDescription));
+    }
+  }
+
+  @Test
+  void testUpdateAndRemoveAreReflected() {
+    //When
+    this.artifactSearchIndex.index(artifact("125080601744904193", "Blunt Stick", "The elder wand is know as Deathstick"));
+    this.artifactSearchIndex.remove("125080601744904196");
+
+    //Then
+    assertThat(this.artifactSearchIndex.findIdsByName("wand")).contains(Set.of());
+    assertThat(this.artifactSearchIndex.findIdsByName("stick")).contains(Set.of("125080601744904193"));
+    assertThat(this.artifactSearchIndex.findIdsByName("stone")).contains(Set.of());
+  }
+
+  @Test
+  void testUnanswerableTextFallsBackToSql() {
+    //shorter than a trigram, or containing like wildcards
+    assertThat(this.artifactSearchIndex.findIdsByName("wa")).isEmpty();
+    assertThat(this.artifactSearchIndex.findIdsByName("el%er")).isEmpty();
+    assertThat(this.artifactSearchIndex.findIdsByName("el_er")).isEmpty();
+  }
+
+  @Test
+  void testDisabledIndexAlwaysFallsBackToSql() {
+    ArtifactSearchIndex disabledIndex = new ArtifactSearchIndex(this.artifactRepository, false, 1000, true);
+    this.artifacts.forEach(disabledIndex::index);
+
+    assertThat(disabledIndex.findIdsByName("wand")).isEqualTo(Optional.empty());
+  }
+
+  @Test
+  void testSearchFallsBackToSqlUntilBuilt() {
+    //Given
+    ArtifactSearchIndex unbuiltIndex = new ArtifactSearchIndex(this.artifactRepository, true, 1000, true);
+    this.artifacts.forEach(unbuiltIndex::index);
+
+    //When and Then
+    assertThat(unbuiltIndex.findIdsByName("wand")).isEqualTo(Optional.empty());
+    unbuiltIndex.rebuild();
+    assertThat(unbuiltIndex.findIdsByName("wand")).isEqualTo(Optional.of(Set.of()));
+  }
+
+  @Test
+  void testRefreshPicksUpWritesCommittedOnOtherNodes() {
+    //Given
+    ArtifactSearchIndex sharedIndex = new ArtifactSearchIndex(this.artifactRepository, true, 1000, false);
+    sharedIndex.rebuild();
+    //another node inserted a row, this node never indexed it
+    given(this.artifactRepository.findBy(any(Specification.class), any())).willReturn(List.of(this.artifacts.get(2)));
+    assertThat(sharedIndex.findIdsByName("wand")).contains(Set.of());
+
+    //When
+    sharedIndex.refresh();
+
+    //Then
+    assertThat(sharedIndex.findIdsByName("wand")).contains(Set.of("125080601744904193"));
+  }
+
+  @Test
+  void testSingleNodeIndexIsNotRefreshed() {
+    //When
+    this.artifactSearchIndex.refresh();
+
+    //Then
+    //only the build in setUp read the table
+    verify(this.artifactRepository, times(1)).findBy(any(Specification.class), any());
+  }
+
+  @Test
+  void testChangeCommittedDuringRebuildIsNotOverwritten() {
+    //Given
+    //the build reads the old row, then the rename commits before the build is swapped in
+    given(this.artifactRepository.findBy(any(Specification.class), any())).willAnswer(invocation -> {
+      this.artifactSearchIndex.index(artifact("125080601744904193", "Blunt Stick", "The elder wand is know as Deathstick"));
+      return List.of(this.artifacts.get(2));
+    });
+
+    //When
+    this.artifactSearchIndex.rebuild();
+
+    //Then
+    assertThat(this.artifactSearchIndex.findIdsByName("wand")).contains(Set.of());
+    assertThat(this.artifactSearchIndex.findIdsByName("stick")).contains(Set.of("125080601744904193"));
+  }
+
+  @Test
+  void testCompactionDropsStalePostings() {
+    //Given
+    ArtifactSearchIndex.TrigramIndex index = new ArtifactSearchIndex.TrigramIndex();
+    index.put("1", "Elder Wand");
+    index.put("2", "Invisibility Cloak");
+    index.put("1", "Blunt Stick");
+    index.remove("2");
+
+    //When
+    ArtifactSearchIndex.TrigramIndex compactedIndex = index.compacted();
+
+    //Then
+    assertThat(index.needsCompaction()).isTrue();
+    assertThat(compactedIndex.needsCompaction()).isFalse();
+    assertThat(compactedIndex.search("stick", 1000)).contains(Set.of("1"));
+    assertThat(compactedIndex.search("wand", 1000)).contains(Set.of());
+    assertThat(compactedIndex.search("cloak", 1000)).contains(Set.of());
+  }
+
+  @Test
+  void testRandomTextMatchesLikeQuery() {
+    //Given
+    //a small alphabet produces many overlapping trigrams, which is the hard case for candidate verification
+    ArtifactSearchIndex unboundedIndex = new ArtifactSearchIndex(this.artifactRepository, true, Integer.MAX_VALUE, true);
+    unboundedIndex.rebuild();
+    Random random = new Random(42);
+    String alphabet = "abcdE ";
+    this.artifacts.clear();
+    for (int i = 0; i < 2_000; i++) {
+      Artifact artifact = artifact("id-" + i, randomText(random, alphabet, 12), randomText(random, alphabet, 30));
+      this.artifacts.add(artifact);
+      unboundedIndex.index(artifact);
+    }
+
+    //When and Then
+    for (int i = 0; i < 200; i++) {
+      String text = randomText(random, alphabet, 3 + random.nextInt(3));
+      assertThat(unboundedIndex.findIdsByName(text)).contains(likeMatches(text, Artifact::getName));
+      assertThat(unboundedIndex.findIdsByDescription(text)).contains(likeMatches(text, Artifact::getDescription));
+    }
+  }
+
+  private Set<String> likeMatches(String text, Function<Artifact, String> column) {
+    //same semantics as lower(column) like '%' + lower(text) + '%'
+    return this.artifacts.stream()
+            .filter(artifact -> column.apply(artifact).toLowerCase(Locale.ROOT).contains(text.toLowerCase(Locale.ROOT)))
+            .map(Artifact::getId)
+            .collect(Collectors.toSet());
+  }
+
+  private static String randomText(Random random, String alphabet, int length) {
+    StringBuilder builder = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return builder.toString();
+  }
+
+  private static Artifact artifact(String id, String name, String description) {
+    Artifact artifact = new Artifact();
+    artifact.setId(id);
+    artifact.setName(name);
+    artifact.setDescription(description);
+    artifact.setImageUrl("ImageUrl");
+    return artifact;
+  }
+}
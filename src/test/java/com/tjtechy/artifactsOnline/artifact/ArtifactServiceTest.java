@@ -1,16 +1,14 @@
 package com.tjtechy.artifactsOnline.artifact;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tjtechy.artifactsOnline.artifact.dto.ArtifactDto;
 import com.tjtechy.artifactsOnline.artifact.utils.IdWorker;
-import com.tjtechy.artifactsOnline.client.ai.chat.ChatClient;
-import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatRequest;
-import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatResponse;
-import com.tjtechy.artifactsOnline.client.ai.chat.dto.Choice;
-import com.tjtechy.artifactsOnline.client.ai.chat.dto.Message;
+import com.tjtechy.artifactsOnline.system.CursorPage;
+import com.tjtechy.artifactsOnline.system.cache.CacheConfiguration;
+import com.tjtechy.artifactsOnline.system.exception.InvalidCursorException;
 import com.tjtechy.artifactsOnline.system.exception.ObjectNotFoundException;
 import com.tjtechy.artifactsOnline.wizard.Wizard;
+import com.tjtechy.artifactsOnline.wizard.WizardRepository;
 import com.tjtechy.artifactsOnline.wizard.dto.WizardDto;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -19,11 +17,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
@@ -44,7 +46,20 @@ class ArtifactServiceTest {
   IdWorker idWorker;
 
   @Mock
-  ChatClient chatClient;
+  ArtifactSummarizer artifactSummarizer;
+
+  @Mock
+  ArtifactSearchIndex artifactSearchIndex;
+
+  @Mock
+  ArtifactCatalogVersion artifactCatalogVersion;
+
+  @Mock
+  WizardRepository wizardRepository;
+
+  @Spy
+  ArtifactCache artifactCache = new ArtifactCache(
+          new ConcurrentMapCacheManager(CacheConfiguration.ARTIFACT_CACHE, CacheConfiguration.ARTIFACT_OWNER_CACHE));
 
   @InjectMocks //injects both mocks into the artifactService
   ArtifactService artifactService;
@@ -116,6 +131,98 @@ class ArtifactServiceTest {
     verify(artifactRepository, times(1)).findById("1250808601744904192");
   }
 
+  @Test
+  void testFindByIdServesACachedArtifactAndOwnerWithoutTheRepositories(){
+    //Given
+    Artifact artifact = new Artifact();
+    artifact.setId("1250808601744904192");
+    artifact.setName("Invisibility Cloak");
+
+    Wizard wizard = new Wizard();
+    wizard.setId(2);
+    wizard.setName("Harry Potter");
+    wizard.addArtifact(artifact);
+
+    given(artifactRepository.findById("1250808601744904192")).willReturn(Optional.of(artifact));
+
+    //When
+    artifactService.findById("1250808601744904192");
+    Artifact cachedArtifact = artifactService.findById("1250808601744904192");
+
+    //Then
+    assertThat(cachedArtifact.getName()).isEqualTo("Invisibility Cloak");
+    assertThat(cachedArtifact.getOwner().getName()).isEqualTo("Harry Potter");
+    assertThat(cachedArtifact.getOwner().getNumberOfArtifacts()).isEqualTo(1);
+    verify(artifactRepository, times(1)).findById("1250808601744904192");
+    verify(wizardRepository, never()).findById(Mockito.anyInt());
+  }
+
+  @Test
+  void testFindByIdReadsTheOwnerAgainOnceItIsEvicted(){
+    //Given
+    Artifact artifact = new Artifact();
+    artifact.setId("1250808601744904192");
+    artifact.setName("Invisibility Cloak");
+
+    Wizard wizard = new Wizard();
+    wizard.setId(2);
+    wizard.setName("Harry Potter");
+    artifact.setOwner(wizard);
+
+    Wizard renamedWizard = new Wizard();
+    renamedWizard.setId(2);
+    renamedWizard.setName("Harry James Potter");
+
+    given(artifactRepository.findById("1250808601744904192")).willReturn(Optional.of(artifact));
+    given(wizardRepository.findById(2)).willReturn(Optional.of(renamedWizard));
+
+    //When
+    artifactService.findById("1250808601744904192");
+    artifactCache.evictOwner(2);//what WizardService.update does
+    Artifact cachedArtifact = artifactService.findById("1250808601744904192");
+
+    //Then
+    assertThat(cachedArtifact.getName()).isEqualTo("Invisibility Cloak");
+    assertThat(cachedArtifact.getOwner().getName()).isEqualTo("Harry James Potter");
+    verify(artifactRepository, times(1)).findById("1250808601744904192");
+    verify(wizardRepository, times(1)).findById(2);
+  }
+
+  @Test
+  void testFindByIdDoesNotCacheARowReadBeforeAConcurrentUpdate(){
+    //Given
+    Artifact staleArtifact = new Artifact();
+    staleArtifact.setId("1250808601744904192");
+    staleArtifact.setName("Invisibility Cloak");
+
+    Artifact storedArtifact = new Artifact();
+    storedArtifact.setId("1250808601744904192");
+    storedArtifact.setName("Invisibility Cloak");
+
+    Artifact update = new Artifact();
+    update.setName("Cloak of Invisibility");
+
+    int[] reads = {0};
+    given(artifactRepository.findById("1250808601744904192")).willAnswer(invocation -> {
+      reads[0]++;
+      if (reads[0] == 1) {
+        //the miss read the old row, then an update commits before the miss puts it
+        artifactService.update("1250808601744904192", update);
+        return Optional.of(staleArtifact);
+      }
+      return Optional.of(storedArtifact);
+    });
+    given(artifactRepository.save(storedArtifact)).willReturn(storedArtifact);
+
+    //When
+    Artifact missedArtifact = artifactService.findById("1250808601744904192");
+    Artifact nextArtifact = artifactService.findById("1250808601744904192");
+
+    //Then
+    assertThat(missedArtifact.getName()).isEqualTo("Invisibility Cloak");
+    assertThat(nextArtifact.getName()).isEqualTo("Cloak of Invisibility");
+  }
+
   //negative scenario
   @Test
   void testFindByIdNotFound(){
@@ -151,6 +258,51 @@ class ArtifactServiceTest {
 
   }
 
+  //keyset paging
+  @Test
+  void testFindAllWithCursorReturnsNextCursor(){
+    //Given
+    //the repository is asked for one row more than the page size
+    Artifact artifact3 = new Artifact();
+    artifact3.setId("1250808601744904193");
+    artifact3.setName("Elder Wand");
+    List<Artifact> rows = new ArrayList<>(this.artifacts);
+    rows.add(artifact3);
+    given(artifactRepository.findBy(Mockito.<Specification<Artifact>>any(), Mockito.any())).willReturn(rows);
+
+    //When
+    CursorPage<Artifact> firstPage = artifactService.findAll("", 2);
+
+    //Then
+    assertThat(firstPage.content().size()).isEqualTo(2);
+    assertThat(firstPage.hasNext()).isTrue();
+    assertThat(CursorPage.decodeCursor(firstPage.nextCursor())).isEqualTo("1250808601744904192");
+  }
+
+  @Test
+  void testFindAllWithCursorOnLastPage(){
+    //Given
+    given(artifactRepository.findBy(Mockito.<Specification<Artifact>>any(), Mockito.any())).willReturn(this.artifacts);
+
+    //When
+    CursorPage<Artifact> lastPage = artifactService.findByCriteria(Map.of("name", "cloak"),
+            CursorPage.encodeCursor("1250808601744904190"), 20);
+
+    //Then
+    assertThat(lastPage.content().size()).isEqualTo(2);
+    assertThat(lastPage.hasNext()).isFalse();
+    assertThat(lastPage.nextCursor()).isNull();
+  }
+
+  @Test
+  void testFindAllWithInvalidCursor(){
+    //When
+    Throwable thrown = catchThrowable(() -> artifactService.findAll("not a cursor!", 20));
+
+    //Then
+    assertThat(thrown).isInstanceOf(InvalidCursorException.class);
+  }
+
   //3. create artifacts
 
   //positive scenario
@@ -174,6 +326,7 @@ class ArtifactServiceTest {
     assertThat(savedArtifact.getDescription()).isEqualTo(newArtifact.getDescription());
     assertThat(savedArtifact.getImageUrl()).isEqualTo(newArtifact.getImageUrl());
     verify(artifactRepository, times(1)).save(newArtifact);
+    verify(artifactCatalogVersion, times(1)).bump();
 
   }
 
@@ -209,6 +362,7 @@ class ArtifactServiceTest {
     assertThat(updatedArtifact.getDescription()).isEqualTo(update.getDescription());
     verify(artifactRepository, times(1)).findById("1250808601744904192");
     verify(artifactRepository, times(1)).save(oldArtifact);
+    verify(artifactCatalogVersion, times(1)).bump();
 
     /*update is a little tricky:
     //1. we find artifact by id
@@ -260,6 +414,31 @@ class ArtifactServiceTest {
     //Then
     //we only need to verify that the action is called once in the repository
     verify(artifactRepository, times(1)).deleteById("1250808601744904192");
+    verify(artifactCatalogVersion, times(1)).bump();
+  }
+
+  @Test
+  void testDeleteDecrementsOwnerArtifactCount(){
+    //Given
+    Artifact artifact = new Artifact();
+    artifact.setId("1250808601744904192");
+    artifact.setName("Invisibility Cloak");
+
+    Wizard wizard = new Wizard();
+    wizard.setId(2);
+    wizard.setName("Harry Potter");
+    wizard.addArtifact(artifact);
+    wizard.addArtifact(this.artifacts.get(0));
+
+    given(artifactRepository.findById("1250808601744904192")).willReturn(Optional.of(artifact));
+
+    //When
+    artifactService.delete("1250808601744904192");
+
+    //Then
+    assertThat(wizard.getNumberOfArtifacts()).isEqualTo(1);
+    verify(wizardRepository, times(1)).changeNumberOfArtifacts(2, -1);
+    verify(artifactRepository, times(1)).deleteById("1250808601744904192");
   }
 
   //negative scenario
@@ -276,7 +455,7 @@ class ArtifactServiceTest {
     verify(artifactRepository, times(1)).findById("1250808601744904192");
   }
 
-  //define a test method for summarize
+  //define a test method for summarize, the prompts are tested in ArtifactSummarizerTest
   @Test
   void testSummarizeSuccess() throws JsonProcessingException {
     //Given
@@ -289,32 +468,14 @@ class ArtifactServiceTest {
             new ArtifactDto("1250808601744904193", "Elder Wand", "The Elder Wand, known as Deathstick or Wand of ...", "ImageUrl", wizardDto)
     );
 
-    //define the behavior of chat client
-    //create list of messages
-
-    //prepare chatRequest
-    ObjectMapper objectMapper = new ObjectMapper();
-    String jsonArray = objectMapper.writeValueAsString(artifactDtos);
-    List<Message> messages = List.of(
-            new Message("system", "Your task is to generate a short summary of a given JSON array in at most 100 words. The summary must include the number of artifacts, each artifact's description and the ownership information. Don't mention that the summary is from a given JSON array."),
-            new Message("user", jsonArray)
-    );
-
-    ChatRequest chatRequest = new ChatRequest("gpt-3.5-turbo", messages);
-
-    //prepare chatResponse
-    ChatResponse chatResponse = new ChatResponse(List.of(new
-            Choice(0, new Message("assistant", "A summary of two artifacts owned by Albus Dumbledor."))));
-
-    given(this.chatClient.generate(chatRequest)).willReturn(chatResponse);
-
+    given(this.artifactSummarizer.summarize(artifactDtos)).willReturn("A summary of two artifacts owned by Albus Dumbledor.");
 
     //When
     String summary = this.artifactService.summarize(artifactDtos);
 
     //Then
     assertThat(summary).isEqualTo("A summary of two artifacts owned by Albus Dumbledor.");
-    verify(this.chatClient, times(1)).generate(chatRequest);
+    verify(this.artifactSummarizer, times(1)).summarize(artifactDtos);
 
   }
 
@@ -0,0 +1,179 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tjtechy.artifactsOnline.artifact.dto.ArtifactDto;
+import com.tjtechy.artifactsOnline.client.ai.chat.ChatClient;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatRequest;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatResponse;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.Choice;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.Message;
+import com.tjtechy.artifactsOnline.wizard.dto.WizardDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ArtifactSummarizerTest {
+
+  //roughly 5 artifacts per chunk
+  private static final int CHUNK_TOKENS = 200;
+
+  private static final int MAX_CONCURRENCY = 3;
+
+  @Mock
+  ChatClient chatClient;
+
+  ArtifactSummarizer artifactSummarizer;
+
+  @AfterEach
+  void tearDown() {
+    if (this.artifactSummarizer != null) {
+      this.artifactSummarizer.shutdown();
+    }
+  }
+
+  @Test
+  void testSmallCatalogIsSummarizedWithOneCall() throws JsonProcessingException {
+    //Given
+    this.artifactSummarizer = new ArtifactSummarizer(this.chatClient, new SimpleMeterRegistry(), 3000, MAX_CONCURRENCY, 1000);
+    WizardDto wizardDto = new WizardDto(1, "Albus Dombledore", 2);
+    List<ArtifactDto> artifactDtos = List.of(
+            new ArtifactDto("1250808601744904191", "Deluminator", "An Deluminator is a device invented by Albus Dumbledor...", "ImageUrl", wizardDto),
+            new ArtifactDto("1250808601744904193", "Elder Wand", "The Elder Wand, known as Deathstick or Wand of ...", "ImageUrl", wizardDto)
+    );
+
+    //prepare chatRequest
+    ObjectMapper objectMapper = new ObjectMapper();
+    String jsonArray = objectMapper.writeValueAsString(artifactDtos);
+    List<Message> messages = List.of(
+            new Message("system", "Your task is to generate a short summary of a given JSON array in at most 100 words. The summary must include the number of artifacts, each artifact's description and the ownership information. Don't mention that the summary is from a given JSON array."),
+            new Message("user", jsonArray)
+    );
+    ChatRequest chatRequest = new ChatRequest("gpt-3.5-turbo", messages);
+    ChatResponse chatResponse = new ChatResponse(List.of(new
+            Choice(0, new Message("assistant", "A summary of two artifacts owned by Albus Dumbledor."))));
+    given(this.chatClient.generate(chatRequest)).willReturn(chatResponse);
+
+    //When
+    String summary = this.artifactSummarizer.summarize(artifactDtos);
+
+    //Then
+    assertThat(summary).isEqualTo("A summary of two artifacts owned by Albus Dumbledor.");
+    verify(this.chatClient, times(1)).generate(chatRequest);
+  }
+
+  @Test
+  void testLargeCatalogIsSummarizedPerChunkAndCombined() throws JsonProcessingException {
+    //Given
+    this.artifactSummarizer = new ArtifactSummarizer(this.chatClient, new SimpleMeterRegistry(), CHUNK_TOKENS, MAX_CONCURRENCY, 1000);
+    List<ArtifactDto> artifactDtos = artifacts(40);
+    given(this.chatClient.generate(Mockito.any())).willAnswer(invocation -> answer("A partial summary."));
+    int chunks = this.artifactSummarizer.chunk(artifactDtos).size();
+
+    //When
+    String summary = this.artifactSummarizer.summarize(artifactDtos);
+
+    //Then
+    assertThat(chunks).isGreaterThan(1);
+    assertThat(summary).isEqualTo("A partial summary.");
+    ArgumentCaptor<ChatRequest> chatRequests = ArgumentCaptor.forClass(ChatRequest.class);
+    verify(this.chatClient, times(chunks + 1)).generate(chatRequests.capture());
+    //every prompt stays within the budget (plus the system prompt)
+    for (ChatRequest chatRequest : chatRequests.getAllValues()) {
+      assertThat(chatRequest.messages().get(1).content().length()).isLessThanOrEqualTo(CHUNK_TOKENS * 4);
+    }
+    ChatRequest combine = chatRequests.getAllValues().get(chunks);
+    assertThat(combine.messages().get(0).content()).isEqualTo(ArtifactSummarizer.COMBINE_PROMPT);
+    assertThat(combine.messages().get(1).content()).startsWith("Total number of artifacts: 40");
+  }
+
+  @Test
+  void testChangedArtifactOnlyResummarizesItsChunk() throws JsonProcessingException {
+    //Given
+    this.artifactSummarizer = new ArtifactSummarizer(this.chatClient, new SimpleMeterRegistry(), CHUNK_TOKENS, MAX_CONCURRENCY, 1000);
+    List<ArtifactDto> artifactDtos = new ArrayList<>(artifacts(40));
+    given(this.chatClient.generate(Mockito.any())).willAnswer(invocation -> answer(
+            "Summary of " + ((ChatRequest) invocation.getArgument(0)).messages().get(1).content().hashCode()));
+    int chunks = this.artifactSummarizer.chunk(artifactDtos).size();
+    this.artifactSummarizer.summarize(artifactDtos);
+
+    //When, one artifact in the middle changes and one is added at the end
+    ArtifactDto changed = artifactDtos.get(20);
+    artifactDtos.set(20, new ArtifactDto(changed.id(), changed.name(), "A new description.", changed.imageUrl(), changed.owner()));
+    artifactDtos.add(new ArtifactDto("1250808601744904240", "Artifact 40", "Description of artifact 40.", "ImageUrl", null));
+    Mockito.clearInvocations(this.chatClient);
+    this.artifactSummarizer.summarize(artifactDtos);
+
+    //Then, the changed chunk, the last chunk and the combining call, not all of them again
+    ArgumentCaptor<ChatRequest> chatRequests = ArgumentCaptor.forClass(ChatRequest.class);
+    verify(this.chatClient, Mockito.atMost(3)).generate(chatRequests.capture());
+    assertThat(chatRequests.getAllValues()).hasSizeLessThan(chunks);
+  }
+
+  @Test
+  void testChunksAreSummarizedWithBoundedConcurrency() throws JsonProcessingException {
+    //Given
+    this.artifactSummarizer = new ArtifactSummarizer(this.chatClient, new SimpleMeterRegistry(), CHUNK_TOKENS, MAX_CONCURRENCY, 1000);
+    List<ArtifactDto> artifactDtos = artifacts(80);
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger peakInFlight = new AtomicInteger();
+    given(this.chatClient.generate(Mockito.any())).willAnswer(invocation -> {
+      peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(50);
+        return answer("A partial summary.");
+      } finally {
+        inFlight.decrementAndGet();
+      }
+    });
+
+    //When
+    this.artifactSummarizer.summarize(artifactDtos);
+
+    //Then
+    assertThat(peakInFlight.get()).isGreaterThan(1).isLessThanOrEqualTo(MAX_CONCURRENCY);
+  }
+
+  @Test
+  void testFailedChunkFailsTheSummary() {
+    //Given
+    this.artifactSummarizer = new ArtifactSummarizer(this.chatClient, new SimpleMeterRegistry(), CHUNK_TOKENS, MAX_CONCURRENCY, 1000);
+    given(this.chatClient.generate(Mockito.any())).willThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+    //When and Then
+    assertThatThrownBy(() -> this.artifactSummarizer.summarize(artifacts(40))).isInstanceOf(HttpServerErrorException.class);
+  }
+
+  private static List<ArtifactDto> artifacts(int count) {
+    WizardDto wizardDto = new WizardDto(1, "Albus Dombledore", count);
+    List<ArtifactDto> artifactDtos = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      artifactDtos.add(new ArtifactDto(String.valueOf(1250808601744904200L + i), "Artifact " + i,
+              "Description of artifact " + i + ".", "ImageUrl", wizardDto));
+    }
+    return artifactDtos;
+  }
+
+  private static ChatResponse answer(String content) {
+
+    return new ChatResponse(List.of(new Choice(0, new Message("assistant", content))));
+  }
+}
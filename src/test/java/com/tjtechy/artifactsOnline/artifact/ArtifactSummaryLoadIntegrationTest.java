@@ -0,0 +1,107 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import com.tjtechy.artifactsOnline.client.ai.chat.StubOpenAiServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 500 GET /artifacts/summary requests at once against a real Tomcat running on virtual threads, with the AI endpoint
+ * replaced by a local stub that answers after SLOW_RESPONSE and the summary caches off, so every request calls it.
+ * On platform threads at most server.tomcat.threads.max (200) summaries can wait on the AI at the same time, the rest
+ * queue; on virtual threads all of them are in flight together. The transport's per-host bulkhead is raised and the
+ * AI client's concurrency limit is off to let them. Connecting to the stub can take longer than the default
+ * connect-timeout while 500 requests share a small machine, so it is raised too.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.threads.virtual.enabled=true", "artifact.summary.max-age=0",
+                "artifact.summary.chunk-cache-size=0", "http-client.bulkhead.max-concurrent-calls=1000",
+                "ai.chat.resilience.enabled=false", "http-client.connect-timeout=60s",
+                "spring.datasource.url=jdbc:h2:mem:artifact-summary-load"})
+@DisplayName("Load test for Artifact summary on virtual threads")
+@Tag("integration")
+@ActiveProfiles(value = "development")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class ArtifactSummaryLoadIntegrationTest {
+
+  private static final int REQUESTS = 500;
+
+  private static final Duration SLOW_RESPONSE = Duration.ofSeconds(2);
+
+  private static StubOpenAiServer slowAiServer;
+
+  @LocalServerPort
+  int port;
+
+  @Value("${api.endpoint.base-url}")
+  String baseUrl;
+
+  @DynamicPropertySource
+  static void slowAiEndpoint(DynamicPropertyRegistry registry) throws IOException {
+    slowAiServer = StubOpenAiServer.start(List.of("A short summary."), SLOW_RESPONSE, Duration.ZERO);
+    registry.add("ai.openai.endpoint", slowAiServer::endpoint);
+  }
+
+  @AfterAll
+  static void stopSlowAiServer() {
+    slowAiServer.close();
+  }
+
+  @Test
+  @DisplayName("Check summarizeArtifacts (GET): 500 slow summaries are in flight together")
+  void testSlowSummariesRunConcurrently() {
+    //Given
+    HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + this.port + this.baseUrl + "/artifacts/summary"))
+            .timeout(Duration.ofSeconds(60))
+            .GET()
+            .build();
+
+    //When
+    long start = System.nanoTime();
+    List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+    for (int i = 0; i < REQUESTS; i++) {
+      responses.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+    }
+    CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).join();
+    Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+    //Then
+    for (CompletableFuture<HttpResponse<String>> response : responses) {
+      assertThat(response.join().statusCode()).as(response.join().body()).isEqualTo(200);
+      assertThat(response.join().body()).contains("Summarize Success");
+    }
+    //more slow calls waiting at once than Tomcat has platform threads
+    assertThat(slowAiServer.peakInFlight()).isGreaterThan(200);
+    //platform threads need at least 3 rounds of SLOW_RESPONSE for 500 requests; the wall clock only shows it with
+    //cores to spare, on one or two the requests' own CPU work (and the JIT warming up) outlasts the AI
+    if (Runtime.getRuntime().availableProcessors() >= 4) {
+      assertThat(elapsed).isLessThan(SLOW_RESPONSE.multipliedBy(3));
+    }
+    System.out.printf("%d summaries in %d ms, %d AI calls in flight at peak%n", REQUESTS, elapsed.toMillis(), slowAiServer.peakInFlight());
+  }
+}
@@ -0,0 +1,278 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.tjtechy.artifactsOnline.artifact.converter.ArtifactToArtifactDtoConverter;
+import com.tjtechy.artifactsOnline.client.ai.chat.ChatClientUnavailableException;
+import com.tjtechy.artifactsOnline.wizard.converter.WizardToWizardDtoConverter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ArtifactSummaryServiceTest {
+
+  @Mock
+  ArtifactService artifactService;
+
+  ArtifactCatalogVersion artifactCatalogVersion;
+
+  MeterRegistry meterRegistry;
+
+  MutableClock clock;
+
+  //refreshes run on the caller's thread until a test starts queueing them
+  boolean queueRefreshes;
+
+  List<Runnable> queuedRefreshes;
+
+  List<Artifact> artifacts;
+
+  @BeforeEach
+  void setUp() {
+    this.artifactCatalogVersion = new ArtifactCatalogVersion();
+    this.meterRegistry = new SimpleMeterRegistry();
+    this.clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+    this.queuedRefreshes = new ArrayList<>();
+
+    Artifact a1 = new Artifact();
+    a1.setId("1250808601744904191");
+    a1.setName("Deluminator");
+    a1.setDescription("A Deluminator is a device invented by Albus Dumbledore that resembles a cigarette lighter.");
+    a1.setImageUrl("ImageUrl");
+    this.artifacts = new ArrayList<>(List.of(a1));
+  }
+
+  @Test
+  void testSummaryIsCachedWhileTheCatalogIsUnchanged() throws JsonProcessingException {
+    //Given
+    given(this.artifactService.findAll()).willReturn(this.artifacts);
+    given(this.artifactService.summarize(Mockito.anyList())).willReturn("One artifact.");
+    ArtifactSummaryService artifactSummaryService = this.summaryService(Runnable::run, Duration.ofHours(1));
+
+    //When
+    String first = artifactSummaryService.summarize();
+    String second = artifactSummaryService.summarize();
+
+    //Then
+    assertThat(first).isEqualTo("One artifact.");
+    assertThat(second).isEqualTo("One artifact.");
+    verify(this.artifactService, times(1)).findAll();
+    verify(this.artifactService, times(1)).summarize(Mockito.anyList());
+  }
+
+  @Test
+  void testChangedCatalogServesStaleSummaryWhileOneRefreshRuns() throws JsonProcessingException {
+    //Given
+    given(this.artifactService.findAll()).willReturn(this.artifacts);
+    given(this.artifactService.summarize(Mockito.anyList())).willReturn("One artifact.", "Two artifacts.");
+    ArtifactSummaryService artifactSummaryService = this.summaryService(this::refresh, Duration.ofHours(1));
+    assertThat(artifactSummaryService.summarize()).isEqualTo("One artifact.");
+
+    Artifact a2 = new Artifact();
+    a2.setId("1250808601744904192");
+    a2.setName("Invisibility Cloak");
+    a2.setDescription("An invisibility cloak is used to make the wearer invisible.");
+    a2.setImageUrl("ImageUrl");
+    this.artifacts.add(a2);
+    this.artifactCatalogVersion.bump();
+    this.queueRefreshes = true;
+
+    //When
+    List<String> whileRefreshing = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      whileRefreshing.add(artifactSummaryService.summarize());
+    }
+
+    //Then
+    assertThat(whileRefreshing).containsOnly("One artifact.");
+    //single flight: five readers, one refresh
+    assertThat(this.queuedRefreshes).hasSize(1);
+    this.queuedRefreshes.remove(0).run();
+    assertThat(artifactSummaryService.summarize()).isEqualTo("Two artifacts.");
+    assertThat(this.queuedRefreshes).isEmpty();
+    verify(this.artifactService, times(2)).summarize(Mockito.anyList());
+  }
+
+  @Test
+  void testUnchangedContentReusesSummaryWithoutCallingTheAi() throws JsonProcessingException {
+    //Given
+    given(this.artifactService.findAll()).willReturn(this.artifacts);
+    given(this.artifactService.summarize(Mockito.anyList())).willReturn("One artifact.");
+    ArtifactSummaryService artifactSummaryService = this.summaryService(Runnable::run, Duration.ofHours(1));
+    artifactSummaryService.summarize();
+
+    //When, a write that leaves the catalog as it was (e.g. renamed back)
+    this.artifactCatalogVersion.bump();
+    artifactSummaryService.summarize();
+
+    //Then
+    verify(this.artifactService, times(2)).findAll();
+    verify(this.artifactService, times(1)).summarize(Mockito.anyList());
+    assertThat(this.meterRegistry.get("artifact.summary.refreshes").tag("result", "reused").counter().count()).isEqualTo(1);
+    assertThat(this.meterRegistry.get("artifact.summary.refreshes").tag("result", "generated").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  void testSummaryOlderThanMaxAgeIsRefreshed() throws JsonProcessingException {
+    //Given
+    given(this.artifactService.findAll()).willReturn(this.artifacts);
+    given(this.artifactService.summarize(Mockito.anyList())).willReturn("One artifact.");
+    ArtifactSummaryService artifactSummaryService = this.summaryService(Runnable::run, Duration.ofHours(1));
+    artifactSummaryService.summarize();
+
+    //When
+    this.clock.advance(Duration.ofMinutes(61));
+    artifactSummaryService.summarize();
+    artifactSummaryService.summarize();
+
+    //Then, reloaded once, the unchanged content needs no AI call
+    verify(this.artifactService, times(2)).findAll();
+    verify(this.artifactService, times(1)).summarize(Mockito.anyList());
+  }
+
+  @Test
+  void testFailedFirstSummaryIsThrownAndRetried() throws JsonProcessingException {
+    //Given
+    given(this.artifactService.findAll()).willReturn(this.artifacts);
+    given(this.artifactService.summarize(Mockito.anyList()))
+            .willThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE))
+            .willReturn("One artifact.");
+    ArtifactSummaryService artifactSummaryService = this.summaryService(Runnable::run, Duration.ofHours(1));
+
+    //When and Then
+    assertThatThrownBy(artifactSummaryService::summarize).isInstanceOf(HttpServerErrorException.class);
+    assertThat(artifactSummaryService.summarize()).isEqualTo("One artifact.");
+  }
+
+  @Test
+  void testZeroMaxAgeCallsTheAiEveryTime() throws JsonProcessingException {
+    //Given
+    given(this.artifactService.findAll()).willReturn(this.artifacts);
+    given(this.artifactService.summarize(Mockito.anyList())).willReturn("One artifact.");
+    ArtifactSummaryService artifactSummaryService = this.summaryService(Runnable::run, Duration.ZERO);
+
+    //When
+    artifactSummaryService.summarize();
+    artifactSummaryService.summarize();
+
+    //Then
+    verify(this.artifactService, times(2)).summarize(Mockito.anyList());
+  }
+
+  @Test
+  void testStreamSendsCurrentSummaryOrStreamsANewOne() throws JsonProcessingException {
+    //Given
+    given(this.artifactService.findAll()).willReturn(this.artifacts);
+    given(this.artifactService.summarize(Mockito.anyList())).willReturn("One artifact.");
+    given(this.artifactService.summarize(Mockito.anyList(), Mockito.any())).willAnswer(invocation -> {
+      Consumer<String> onContent = invocation.getArgument(1);
+      onContent.accept("Two ");
+      onContent.accept("artifacts.");
+      return "Two artifacts.";
+    });
+    ArtifactSummaryService artifactSummaryService = this.summaryService(Runnable::run, Duration.ofHours(1));
+    artifactSummaryService.summarize();
+
+    //When
+    List<String> current = new ArrayList<>();
+    artifactSummaryService.stream(current::add).join();
+    this.artifacts.add(new Artifact());
+    this.artifactCatalogVersion.bump();
+    List<String> streamed = new ArrayList<>();
+    artifactSummaryService.stream(streamed::add).join();
+
+    //Then
+    assertThat(current).containsExactly("One artifact.");
+    assertThat(streamed).containsExactly("Two ", "artifacts.");
+    //the streamed summary is cached like a refreshed one
+    assertThat(artifactSummaryService.summarize()).isEqualTo("Two artifacts.");
+  }
+
+  @Test
+  void testStreamFallsBackToStaleSummaryWhileTheAiIsUnavailable() throws JsonProcessingException {
+    //Given
+    given(this.artifactService.findAll()).willReturn(this.artifacts);
+    given(this.artifactService.summarize(Mockito.anyList())).willReturn("One artifact.");
+    given(this.artifactService.summarize(Mockito.anyList(), Mockito.any()))
+            .willThrow(new ChatClientUnavailableException("The openAiChatClient circuit breaker is open", Duration.ofSeconds(30)));
+    ArtifactSummaryService artifactSummaryService = this.summaryService(Runnable::run, Duration.ofHours(1));
+
+    //When, nothing to fall back to yet
+    assertThatThrownBy(() -> artifactSummaryService.stream(content -> { }).join())
+            .hasCauseInstanceOf(ChatClientUnavailableException.class);
+    artifactSummaryService.summarize();
+    this.artifacts.add(new Artifact());
+    this.artifactCatalogVersion.bump();
+    List<String> streamed = new ArrayList<>();
+    artifactSummaryService.stream(streamed::add).join();
+
+    //Then
+    assertThat(streamed).containsExactly("One artifact.");
+  }
+
+  private ArtifactSummaryService summaryService(Executor executor, Duration maxAge) {
+
+    return new ArtifactSummaryService(this.artifactService,
+            new ArtifactToArtifactDtoConverter(new WizardToWizardDtoConverter()),
+            this.artifactCatalogVersion, executor, this.meterRegistry, maxAge, this.clock);
+  }
+
+  private void refresh(Runnable refresh) {
+    if (this.queueRefreshes) {
+      this.queuedRefreshes.add(refresh);
+    } else {
+      refresh.run();
+    }
+  }
+
+  private static class MutableClock extends Clock {
+
+    private Instant instant;
+
+    private MutableClock(Instant instant) {
+      this.instant = instant;
+    }
+
+    void advance(Duration duration) {
+      this.instant = this.instant.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return this.instant;
+    }
+  }
+}
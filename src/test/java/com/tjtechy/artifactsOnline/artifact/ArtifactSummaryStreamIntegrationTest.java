@@ -0,0 +1,105 @@
+package com.tjtechy.artifactsOnline.artifact;
+
+import com.tjtechy.artifactsOnline.client.ai.chat.StubOpenAiServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GET /artifacts/summary/stream against a real Tomcat, with the AI endpoint replaced by a local stub that sends
+ * the completion in pieces PIECE_DELAY apart. The pieces have to reach the client as the stub sends them.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.datasource.url=jdbc:h2:mem:artifact-summary-stream")
+@DisplayName("Integration test for Artifact summary stream")
+@Tag("integration")
+@ActiveProfiles(value = "development")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class ArtifactSummaryStreamIntegrationTest {
+
+  private static final Duration PIECE_DELAY = Duration.ofMillis(300);
+
+  private static final List<String> PIECES = List.of("The summary ", "includes six artifacts, ", "owned by ", "three wizards.");
+
+  private static StubOpenAiServer stubOpenAiServer;
+
+  @LocalServerPort
+  int port;
+
+  @Value("${api.endpoint.base-url}")
+  String baseUrl;
+
+  @DynamicPropertySource
+  static void stubAiEndpoint(DynamicPropertyRegistry registry) throws IOException {
+    stubOpenAiServer = StubOpenAiServer.start(PIECES, PIECE_DELAY, PIECE_DELAY);
+    registry.add("ai.openai.endpoint", stubOpenAiServer::endpoint);
+  }
+
+  @AfterAll
+  static void stopStubAiServer() {
+    stubOpenAiServer.close();
+  }
+
+  @Test
+  @DisplayName("Check streamArtifactSummary (GET): summary pieces arrive as server-sent events while generated")
+  void testSummaryIsStreamedAsGenerated() throws IOException, InterruptedException {
+    //Given
+    HttpClient httpClient = HttpClient.newHttpClient();
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + this.port + this.baseUrl + "/artifacts/summary/stream"))
+            .header("Accept", "text/event-stream")
+            .timeout(Duration.ofSeconds(30))
+            .GET()
+            .build();
+
+    //When
+    long start = System.nanoTime();
+    HttpResponse<Stream<String>> response = httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+    List<String> events = new ArrayList<>();
+    List<String> data = new ArrayList<>();
+    long firstSummaryMillis = -1;
+    try (Stream<String> lines = response.body()) {
+      for (String line : (Iterable<String>) lines::iterator) {
+        if (line.startsWith("event:")) {
+          events.add(line.substring("event:".length()).trim());
+          if (firstSummaryMillis < 0 && line.endsWith("summary")) {
+            firstSummaryMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+          }
+        } else if (line.startsWith("data:")) {
+          data.add(line.substring("data:".length()));
+        }
+      }
+    }
+    long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+    //Then
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.headers().firstValue("Content-Type")).hasValueSatisfying(
+            contentType -> assertThat(contentType).startsWith("text/event-stream"));
+    assertThat(events).containsExactly("summary", "summary", "summary", "summary", "done");
+    for (int i = 0; i < PIECES.size(); i++) {
+      assertThat(data.get(i)).contains(PIECES.get(i));
+    }
+    assertThat(data.get(PIECES.size())).contains("Summarize Success");
+    //the first piece was forwarded before the stub had sent the rest
+    assertThat(firstSummaryMillis).isLessThan(elapsedMillis - PIECE_DELAY.toMillis() * 2);
+  }
+}
@@ -0,0 +1,84 @@
+package com.tjtechy.artifactsOnline.artifact.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HeavyHittersSketchTest {
+
+  @Test
+  void testTopReturnsMostFrequentKeysFirst() {
+    //Given
+    HeavyHittersSketch sketch = new HeavyHittersSketch(4, 1024, 8);
+
+    //When
+    for (int i = 0; i < 100; i++) {
+      sketch.add("1250808601744904191");
+    }
+    for (int i = 0; i < 50; i++) {
+      sketch.add("1250808601744904192");
+    }
+    //a long tail of ids requested once each must not push out the heavy hitters
+    for (int i = 0; i < 10_000; i++) {
+      sketch.add("tail-" + i);
+    }
+
+    //Then
+    List<Map.Entry<String, Long>> top = sketch.top(2);
+    assertThat(top).hasSize(2);
+    assertThat(top.get(0).getKey()).isEqualTo("1250808601744904191");
+    assertThat(top.get(1).getKey()).isEqualTo("1250808601744904192");
+    assertThat(top.get(0).getValue()).isGreaterThanOrEqualTo(100L);
+  }
+
+  @Test
+  void testEstimateNeverUnderCounts() {
+    //Given
+    HeavyHittersSketch sketch = new HeavyHittersSketch(4, 64, 4);
+
+    //When
+    for (int i = 0; i < 1_000; i++) {
+      sketch.add("key-" + (i % 200));
+    }
+
+    //Then
+    for (int i = 0; i < 200; i++) {
+      assertThat(sketch.estimate("key-" + i)).isGreaterThanOrEqualTo(5L);
+    }
+  }
+
+  @Test
+  void testConcurrentAddsAreNotLost() throws InterruptedException {
+    //Given
+    HeavyHittersSketch sketch = new HeavyHittersSketch(4, 1024, 8);
+    ExecutorService executorService = Executors.newFixedThreadPool(8);
+
+    //When
+    for (int thread = 0; thread < 8; thread++) {
+      executorService.submit(() -> {
+        for (int i = 0; i < 10_000; i++) {
+          sketch.add("1250808601744904191");
+        }
+      });
+    }
+    executorService.shutdown();
+    assertThat(executorService.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+    //Then
+    assertThat(sketch.estimate("1250808601744904191")).isEqualTo(80_000L);
+    assertThat(sketch.top(1).get(0).getKey()).isEqualTo("1250808601744904191");
+  }
+
+  @Test
+  void testInvalidSizeIsRejected() {
+
+    assertThrows(IllegalArgumentException.class, () -> new HeavyHittersSketch(0, 1024, 8));
+  }
+}
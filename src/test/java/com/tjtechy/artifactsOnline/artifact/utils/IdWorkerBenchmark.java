@@ -0,0 +1,101 @@
+package com.tjtechy.artifactsOnline.artifact.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the CAS based IdWorker against the previous synchronized implementation, 1 to 64 threads.
+ * Run with:
+ * ./mvnw test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *   -Dexec.args="-cp %classpath com.tjtechy.artifactsOnline.artifact.utils.IdWorkerBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdWorkerBenchmark {
+
+  private final IdWorker idWorker = new IdWorker(1, 1);
+
+  private final SynchronizedIdWorker synchronizedIdWorker = new SynchronizedIdWorker(1, 1);
+
+  @Benchmark
+  public long casNextId() {
+    return this.idWorker.nextId();
+  }
+
+  @Benchmark
+  public long[] casNextIdsBlockOf100() {
+    return this.idWorker.nextIds(100);
+  }
+
+  @Benchmark
+  public long synchronizedNextId() {
+    return this.synchronizedIdWorker.nextId();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    for (int threads : new int[]{1, 2, 4, 8, 16, 32, 64}) {
+      Options options = new OptionsBuilder()
+              .include(IdWorkerBenchmark.class.getSimpleName())
+              .threads(threads)
+              .build();
+      new Runner(options).run();
+    }
+  }
+
+  //the previous implementation, kept only as the baseline of this benchmark
+  static class SynchronizedIdWorker {
+
+    private final static long twepoch = 1288834974657L;
+
+    private final static long sequenceMask = -1L ^ (-1L << 12L);
+
+    private static long lastTimestamp = -1L;
+
+    private long sequence = 0L;
+
+    private final long workerId;
+
+    private final long datacenterId;
+
+    SynchronizedIdWorker(long workerId, long datacenterId) {
+      this.workerId = workerId;
+      this.datacenterId = datacenterId;
+    }
+
+    synchronized long nextId() {
+      long timestamp = System.currentTimeMillis();
+      if (timestamp < lastTimestamp) {
+        throw new RuntimeException("Clock moved backwards");
+      }
+      if (lastTimestamp == timestamp) {
+        sequence = (sequence + 1) & sequenceMask;
+        if (sequence == 0) {
+          while (timestamp <= lastTimestamp) {
+            timestamp = System.currentTimeMillis();
+          }
+        }
+      } else {
+        sequence = 0L;
+      }
+      lastTimestamp = timestamp;
+      return ((timestamp - twepoch) << 22) | (datacenterId << 17) | (workerId << 12) | sequence;
+    }
+  }
+}
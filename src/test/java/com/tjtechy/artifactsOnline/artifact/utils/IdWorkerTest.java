@@ -0,0 +1,93 @@
+package com.tjtechy.artifactsOnline.artifact.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdWorkerTest {
+
+  @Test
+  void testNextIdIsIncreasing() {
+    IdWorker idWorker = new IdWorker(1, 1);
+
+    //more than 4096 ids, so the sequence overflows within a millisecond
+    long previousId = idWorker.nextId();
+    for (int i = 0; i < 100_000; i++) {
+      long id = idWorker.nextId();
+      assertThat(id).isGreaterThan(previousId);
+      previousId = id;
+    }
+  }
+
+  @Test
+  void testNextIdNeverRunsAheadOfTheClock() {
+    IdWorker idWorker = new IdWorker(1, 1);
+
+    //the sequence overflows many times, its ids have to wait for the clock instead of borrowing the next millisecond
+    for (int i = 0; i < 100_000; i++) {
+      long id = idWorker.nextId();
+      assertThat((id >> 22) + 1288834974657L).isLessThanOrEqualTo(System.currentTimeMillis());
+    }
+    long[] ids = idWorker.nextIds(10_000);
+    assertThat((ids[ids.length - 1] >> 22) + 1288834974657L).isLessThanOrEqualTo(System.currentTimeMillis());
+  }
+
+  @Test
+  void testNextIdIsUniqueAcrossThreads() throws InterruptedException {
+    IdWorker idWorker = new IdWorker(1, 1);
+    Set<Long> ids = ConcurrentHashMap.newKeySet();
+    ExecutorService executorService = Executors.newFixedThreadPool(16);
+
+    for (int thread = 0; thread < 16; thread++) {
+      executorService.submit(() -> {
+        for (int i = 0; i < 20_000; i++) {
+          ids.add(idWorker.nextId());
+        }
+        for (long id : idWorker.nextIds(1_000)) {
+          ids.add(id);
+        }
+      });
+    }
+    executorService.shutdown();
+    assertThat(executorService.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(ids).hasSize(16 * 21_000);
+  }
+
+  @Test
+  void testNextIdsReservesConsecutiveBlock() {
+    IdWorker idWorker = new IdWorker(3, 7);
+
+    long[] ids = idWorker.nextIds(10_000);
+    long nextId = idWorker.nextId();
+
+    for (int i = 1; i < ids.length; i++) {
+      assertThat(ids[i]).isGreaterThan(ids[i - 1]);
+    }
+    assertThat(nextId).isGreaterThan(ids[ids.length - 1]);
+    //worker and datacenter ids are encoded in every id
+    assertThat((ids[0] >> 12) & 0x1F).isEqualTo(3L);
+    assertThat((ids[0] >> 17) & 0x1F).isEqualTo(7L);
+  }
+
+  @Test
+  void testWorkersDoNotCollide() {
+    IdWorker idWorker1 = new IdWorker(1, 1);
+    IdWorker idWorker2 = new IdWorker(2, 1);
+
+    assertThat(idWorker1.nextIds(5_000)).doesNotContain(idWorker2.nextIds(5_000));
+  }
+
+  @Test
+  void testInvalidWorkerIdIsRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new IdWorker(32, 1));
+    assertThrows(IllegalArgumentException.class, () -> new IdWorker(1, -1));
+  }
+}
@@ -0,0 +1,222 @@
+package com.tjtechy.artifactsOnline.client.ai.chat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatRequest;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatResponse;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.Choice;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.Message;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CachingChatClientTest {
+
+  @Mock
+  ChatClient delegate;
+
+  @TempDir
+  Path directory;
+
+  MeterRegistry meterRegistry;
+
+  MutableClock clock;
+
+  ObjectMapper objectMapper;
+
+  ChatRequest chatRequest;
+
+  ChatResponse chatResponse;
+
+  @BeforeEach
+  void setUp() {
+    this.meterRegistry = new SimpleMeterRegistry();
+    this.clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+    //the application's ObjectMapper (java.time support)
+    this.objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    this.chatRequest = chatRequest("A json Array.");
+    this.chatResponse = new ChatResponse(List.of(new Choice(0, new Message("assistant", "The summary includes six artifacts."))));
+  }
+
+  @Test
+  void testRepeatedRequestIsAnsweredFromMemory() {
+    //Given
+    given(this.delegate.generate(this.chatRequest)).willReturn(this.chatResponse);
+    CachingChatClient cachingChatClient = this.cachingChatClient(null);
+
+    //When, an equal request built separately
+    cachingChatClient.generate(this.chatRequest);
+    ChatResponse cached = cachingChatClient.generate(chatRequest("A json Array."));
+
+    //Then
+    assertThat(cached).isEqualTo(this.chatResponse);
+    verify(this.delegate, times(1)).generate(Mockito.any());
+    assertThat(this.requests("hit", "memory")).isEqualTo(1);
+    assertThat(this.requests("miss", "none")).isEqualTo(1);
+    assertThat(this.meterRegistry.get("ai.chat.cache.saved").tag("model", "gpt-3.5-turbo").timer().count()).isEqualTo(1);
+  }
+
+  @Test
+  void testDifferentMessagesAreDifferentEntries() {
+    //Given
+    given(this.delegate.generate(Mockito.any())).willReturn(this.chatResponse);
+    CachingChatClient cachingChatClient = this.cachingChatClient(null);
+
+    //When, the same characters split differently between the messages
+    cachingChatClient.generate(new ChatRequest("gpt-3.5-turbo", List.of(new Message("system", "ab"), new Message("user", "c"))));
+    cachingChatClient.generate(new ChatRequest("gpt-3.5-turbo", List.of(new Message("system", "a"), new Message("user", "bc"))));
+    cachingChatClient.generate(new ChatRequest("gpt-4", List.of(new Message("system", "ab"), new Message("user", "c"))));
+
+    //Then
+    verify(this.delegate, times(3)).generate(Mockito.any());
+  }
+
+  @Test
+  void testExpiredEntryIsGeneratedAgain() {
+    //Given
+    given(this.delegate.generate(this.chatRequest)).willReturn(this.chatResponse);
+    CachingChatClient cachingChatClient = this.cachingChatClient(this.fileCache(100));
+    cachingChatClient.generate(this.chatRequest);
+
+    //When
+    this.clock.advance(Duration.ofHours(2));
+    cachingChatClient.generate(this.chatRequest);
+
+    //Then
+    verify(this.delegate, times(2)).generate(this.chatRequest);
+  }
+
+  @Test
+  void testFileTierOutlivesTheMemoryTier() {
+    //Given
+    given(this.delegate.generate(this.chatRequest)).willReturn(this.chatResponse);
+    this.cachingChatClient(this.fileCache(100)).generate(this.chatRequest);
+
+    //When, e.g. after a restart
+    ChatResponse cached = this.cachingChatClient(this.fileCache(100)).generate(this.chatRequest);
+
+    //Then
+    assertThat(cached).isEqualTo(this.chatResponse);
+    verify(this.delegate, times(1)).generate(this.chatRequest);
+    assertThat(this.requests("hit", "file")).isEqualTo(1);
+  }
+
+  @Test
+  void testFileTierKeepsAtMostMaximumEntries() throws IOException {
+    //Given
+    given(this.delegate.generate(Mockito.any())).willReturn(this.chatResponse);
+    CachingChatClient cachingChatClient = this.cachingChatClient(this.fileCache(3));
+
+    //When
+    for (int i = 0; i < 10; i++) {
+      cachingChatClient.generate(chatRequest("A json Array " + i));
+    }
+
+    //Then
+    try (Stream<Path> files = Files.list(this.directory)) {
+      assertThat(files.filter(file -> file.toString().endsWith(".json")).count()).isLessThanOrEqualTo(3);
+    }
+  }
+
+  @Test
+  void testStreamedMissIsCachedAndHitIsHandedOverInOnePiece() {
+    //Given
+    Mockito.doAnswer(invocation -> {
+      Consumer<String> onContent = invocation.getArgument(1);
+      onContent.accept("The summary ");
+      onContent.accept("includes six artifacts.");
+      return null;
+    }).when(this.delegate).stream(Mockito.eq(this.chatRequest), Mockito.any());
+    CachingChatClient cachingChatClient = this.cachingChatClient(null);
+
+    //When
+    List<String> streamed = new ArrayList<>();
+    cachingChatClient.stream(this.chatRequest, streamed::add);
+    List<String> cached = new ArrayList<>();
+    cachingChatClient.stream(this.chatRequest, cached::add);
+
+    //Then
+    assertThat(streamed).containsExactly("The summary ", "includes six artifacts.");
+    assertThat(cached).containsExactly("The summary includes six artifacts.");
+    assertThat(cachingChatClient.generate(this.chatRequest)).isEqualTo(this.chatResponse);
+    verify(this.delegate, times(1)).stream(Mockito.any(), Mockito.any());
+    verify(this.delegate, Mockito.never()).generate(Mockito.any());
+  }
+
+  private CachingChatClient cachingChatClient(ChatResponseFileCache file) {
+
+    return new CachingChatClient(this.delegate, this.meterRegistry, Duration.ofHours(1), 100, file, this.clock);
+  }
+
+  private ChatResponseFileCache fileCache(long maximumEntries) {
+
+    return new ChatResponseFileCache(this.directory, maximumEntries, this.objectMapper);
+  }
+
+  private double requests(String result, String tier) {
+
+    return this.meterRegistry.get("ai.chat.cache.requests")
+            .tag("model", "gpt-3.5-turbo").tag("result", result).tag("tier", tier)
+            .counter().count();
+  }
+
+  private static ChatRequest chatRequest(String userContent) {
+
+    return new ChatRequest("gpt-3.5-turbo", List.of(
+            new Message("system", "Your task is to generate a short summary of a given JSON array in at most 100 words."),
+            new Message("user", userContent)));
+  }
+
+  private static class MutableClock extends Clock {
+
+    private Instant instant;
+
+    private MutableClock(Instant instant) {
+      this.instant = instant;
+    }
+
+    void advance(Duration duration) {
+      this.instant = this.instant.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return this.instant;
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.tjtechy.artifactsOnline.client.ai.chat;
+
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatRequest;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * OpenAiChatClient.stream against StubOpenAiServer, which sends every piece of the completion PIECE_DELAY apart.
+ */
+class OpenAiChatClientStreamTest {
+
+  private static final Duration PIECE_DELAY = Duration.ofMillis(200);
+
+  private static final List<String> PIECES = List.of("The summary ", "includes six artifacts, ", "owned by ", "three wizards.");
+
+  private StubOpenAiServer stubOpenAiServer;
+
+  private OpenAiChatClient openAiChatClient;
+
+  private final ChatRequest chatRequest = new ChatRequest("gpt-3.5-turbo", List.of(
+          new Message("system", "Your task is to generate a short summary of a given JSON array in at most 100 words."),
+          new Message("user", "A json Array.")));
+
+  private void startStub() throws IOException {
+    this.stubOpenAiServer = StubOpenAiServer.start(PIECES, PIECE_DELAY, PIECE_DELAY);
+    //the application's ObjectMapper, which ignores the chunk fields ChatResponseChunk doesn't map
+    this.openAiChatClient = new OpenAiChatClient(this.stubOpenAiServer.endpoint(), "test-api-key",
+            RestClient.builder(), Jackson2ObjectMapperBuilder.json().build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (this.stubOpenAiServer != null) {
+      this.stubOpenAiServer.close();
+    }
+  }
+
+  @Test
+  void testStreamHandsOverPiecesAsTheyArrive() throws IOException {
+    //Given
+    this.startStub();
+    List<String> received = new ArrayList<>();
+    List<Long> receivedAtMillis = new ArrayList<>();
+    long start = System.nanoTime();
+
+    //When
+    this.openAiChatClient.stream(this.chatRequest, content -> {
+      received.add(content);
+      receivedAtMillis.add(Duration.ofNanos(System.nanoTime() - start).toMillis());
+    });
+    long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+    //Then
+    assertThat(received).containsExactlyElementsOf(PIECES);
+    //the first piece came well before the completion was done
+    assertThat(receivedAtMillis.get(0)).isLessThan(elapsedMillis - PIECE_DELAY.toMillis() * 2);
+    assertThat(this.stubOpenAiServer.requests()).isEqualTo(1);
+  }
+
+  @Test
+  void testGenerateStillReturnsTheWholeCompletion() throws IOException {
+    //Given
+    this.startStub();
+
+    //When and Then
+    assertThat(this.openAiChatClient.generate(this.chatRequest).choices().get(0).message().content())
+            .isEqualTo(String.join("", PIECES));
+  }
+
+  @Test
+  void testStreamThrowsOnServerError() throws IOException {
+    //Given
+    this.startStub();
+    this.stubOpenAiServer.respondWith(503);
+
+    //When and Then
+    assertThatThrownBy(() -> this.openAiChatClient.stream(this.chatRequest, content -> {
+    })).isInstanceOf(HttpServerErrorException.class);
+  }
+}
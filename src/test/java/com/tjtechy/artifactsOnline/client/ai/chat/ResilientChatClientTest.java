@@ -0,0 +1,171 @@
+package com.tjtechy.artifactsOnline.client.ai.chat;
+
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.ChatRequest;
+import com.tjtechy.artifactsOnline.client.ai.chat.dto.Message;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ResilientChatClient around an OpenAiChatClient talking to StubOpenAiServer, which injects error statuses and latency.
+ * The circuit breaker runs on a fake clock, so open-duration passes without waiting.
+ */
+class ResilientChatClientTest {
+
+  private static final String CLIENT = "openAiChatClient";
+
+  private final ChatRequest chatRequest = new ChatRequest("gpt-3.5-turbo", List.of(
+          new Message("system", "Your task is to generate a short summary of a given JSON array in at most 100 words."),
+          new Message("user", "A json Array.")));
+
+  private StubOpenAiServer stubOpenAiServer;
+
+  private MeterRegistry meterRegistry;
+
+  private AtomicLong nanoTime;
+
+  private ExecutorService executorService;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    this.stubOpenAiServer = StubOpenAiServer.start(List.of("The summary includes six artifacts."), Duration.ZERO, Duration.ZERO);
+    this.meterRegistry = new SimpleMeterRegistry();
+    this.nanoTime = new AtomicLong();
+    this.executorService = Executors.newVirtualThreadPerTaskExecutor();
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.executorService.shutdownNow();
+    this.stubOpenAiServer.close();
+  }
+
+  @Test
+  void testFailuresOpenTheBreakerAndTrialCallsCloseIt() {
+    //Given
+    ResilientChatClient resilientChatClient = this.resilientChatClient(new AdaptiveConcurrencyLimit(10, 1, 100, 0.5, Duration.ofSeconds(10)), Duration.ZERO);
+    this.stubOpenAiServer.respondWith(503);
+
+    //When
+    for (int i = 0; i < 5; i++) {
+      assertThatThrownBy(() -> resilientChatClient.generate(this.chatRequest)).isInstanceOf(HttpServerErrorException.class);
+    }
+
+    //Then, refused without calling the model
+    assertThatThrownBy(() -> resilientChatClient.generate(this.chatRequest))
+            .isInstanceOf(ChatClientUnavailableException.class)
+            .satisfies(e -> assertThat(((ChatClientUnavailableException) e).getRetryAfter()).isEqualTo(Duration.ofSeconds(30)));
+    assertThat(this.stubOpenAiServer.requests()).isEqualTo(5);
+    assertThat(this.state("open")).isEqualTo(1);
+    assertThat(this.calls("not_permitted")).isEqualTo(1);
+
+    //When, the model recovers and open-duration has passed
+    this.stubOpenAiServer.respondWith(200);
+    this.nanoTime.addAndGet(Duration.ofSeconds(30).toNanos());
+    resilientChatClient.generate(this.chatRequest);
+    assertThat(this.state("half_open")).isEqualTo(1);
+    resilientChatClient.generate(this.chatRequest);
+
+    //Then
+    assertThat(this.state("closed")).isEqualTo(1);
+    assertThat(this.calls("success")).isEqualTo(2);
+  }
+
+  @Test
+  void testClientErrorsDoNotOpenTheBreaker() {
+    //Given
+    ResilientChatClient resilientChatClient = this.resilientChatClient(new AdaptiveConcurrencyLimit(10, 1, 100, 0.5, Duration.ofSeconds(10)), Duration.ZERO);
+    this.stubOpenAiServer.respondWith(401);
+
+    //When
+    for (int i = 0; i < 10; i++) {
+      assertThatThrownBy(() -> resilientChatClient.generate(this.chatRequest)).isInstanceOf(HttpClientErrorException.Unauthorized.class);
+    }
+
+    //Then
+    assertThat(this.state("closed")).isEqualTo(1);
+    assertThat(this.calls("ignored")).isEqualTo(10);
+    assertThat(this.stubOpenAiServer.requests()).isEqualTo(10);
+  }
+
+  @Test
+  void testSlowCallsShrinkTheLimit() {
+    //Given
+    //a threshold well above the first call on a cold client (connection, Jackson), which isn't a slow model
+    ResilientChatClient resilientChatClient = this.resilientChatClient(new AdaptiveConcurrencyLimit(8, 1, 100, 0.5, Duration.ofSeconds(1)), Duration.ZERO);
+    resilientChatClient.generate(this.chatRequest);
+    assertThat(this.limit()).isEqualTo(8);
+
+    //When
+    this.stubOpenAiServer.slowDownBy(Duration.ofMillis(1100));
+    for (int i = 0; i < 3; i++) {
+      resilientChatClient.generate(this.chatRequest);
+    }
+
+    //Then, 8 * 0.5 * 0.5 * 0.5
+    assertThat(this.limit()).isEqualTo(1);
+  }
+
+  @Test
+  void testCallsOverTheLimitFailFast() throws InterruptedException {
+    //Given
+    ResilientChatClient resilientChatClient = this.resilientChatClient(new AdaptiveConcurrencyLimit(1, 1, 1, 0.5, Duration.ofSeconds(10)), Duration.ZERO);
+    this.stubOpenAiServer.slowDownBy(Duration.ofMillis(500));
+    CompletableFuture<?> first = CompletableFuture.runAsync(() -> resilientChatClient.generate(this.chatRequest), this.executorService);
+    while (this.stubOpenAiServer.requests() == 0) {
+      Thread.sleep(10);
+    }
+
+    //When
+    long start = System.nanoTime();
+    assertThatThrownBy(() -> resilientChatClient.generate(this.chatRequest)).isInstanceOf(ChatClientUnavailableException.class);
+
+    //Then
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(250));
+    first.join();
+    assertThat(this.calls("limited")).isEqualTo(1);
+    assertThat(this.stubOpenAiServer.requests()).isEqualTo(1);
+    assertThat(this.meterRegistry.get("ai.chat.concurrency.in-flight").tag("client", CLIENT).gauge().value()).isZero();
+  }
+
+  private ResilientChatClient resilientChatClient(AdaptiveConcurrencyLimit concurrencyLimit, Duration maxWait) {
+    OpenAiChatClient openAiChatClient = new OpenAiChatClient(this.stubOpenAiServer.endpoint(), "test-api-key",
+            RestClient.builder(), Jackson2ObjectMapperBuilder.json().build());
+    //opens when half of at least 5 of the last 10 calls failed, or all of them took 10s
+    ChatCircuitBreaker circuitBreaker = new ChatCircuitBreaker(10, 5, 50, 100, Duration.ofSeconds(10),
+            Duration.ofSeconds(30), 2, this.nanoTime::get);
+    return new ResilientChatClient(CLIENT, openAiChatClient, circuitBreaker, concurrencyLimit, maxWait, this.meterRegistry);
+  }
+
+  private double state(String state) {
+
+    return this.meterRegistry.get("ai.chat.circuit-breaker.state").tag("client", CLIENT).tag("state", state).gauge().value();
+  }
+
+  private double calls(String outcome) {
+
+    return this.meterRegistry.get("ai.chat.calls").tag("client", CLIENT).tag("outcome", outcome).counter().count();
+  }
+
+  private double limit() {
+
+    return this.meterRegistry.get("ai.chat.concurrency.limit").tag("client", CLIENT).gauge().value();
+  }
+}
@@ -0,0 +1,158 @@
+package com.tjtechy.artifactsOnline.client.ai.chat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local stand-in for the OpenAI chat completions endpoint. Every completion is the given pieces: the first one
+ * after firstPieceDelay, each next one pieceDelay later. Requests with "stream": true get them as server-sent
+ * events as they are due, other requests get the whole completion as JSON once the last piece is due.
+ * Faults are injected with respondWith (an error status) and slowDownBy (extra latency).
+ */
+public class StubOpenAiServer implements AutoCloseable {
+
+  public static final String PATH = "/v1/chat/completions";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final HttpServer httpServer;
+
+  private final List<String> pieces;
+
+  private final Duration firstPieceDelay;
+
+  private final Duration pieceDelay;
+
+  private final AtomicInteger requests = new AtomicInteger();
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private final AtomicInteger peakInFlight = new AtomicInteger();
+
+  private volatile int status = 200;
+
+  private volatile Duration extraDelay = Duration.ZERO;
+
+  private StubOpenAiServer(List<String> pieces, Duration firstPieceDelay, Duration pieceDelay) throws IOException {
+    this.pieces = pieces;
+    this.firstPieceDelay = firstPieceDelay;
+    this.pieceDelay = pieceDelay;
+    this.httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 1000);
+    //platform threads: the JDK server reads request bodies under a monitor, which pins a virtual thread's carrier,
+    //and with few cores the pinned handlers starve the virtual threads of the client sending those bodies
+    this.httpServer.setExecutor(Executors.newCachedThreadPool());
+    this.httpServer.createContext(PATH, this::handle);
+    this.httpServer.start();
+  }
+
+  public static StubOpenAiServer start(List<String> pieces, Duration firstPieceDelay, Duration pieceDelay) throws IOException {
+
+    return new StubOpenAiServer(pieces, firstPieceDelay, pieceDelay);
+  }
+
+  public String endpoint() {
+
+    return "http://localhost:" + this.httpServer.getAddress().getPort() + PATH;
+  }
+
+  //answers every following request with this status and an OpenAI style error body
+  public void respondWith(int status) {
+
+    this.status = status;
+  }
+
+  //answers every following request this much later, on top of the piece delays
+  public void slowDownBy(Duration extraDelay) {
+
+    this.extraDelay = extraDelay;
+  }
+
+  public int requests() {
+
+    return this.requests.get();
+  }
+
+  public int peakInFlight() {
+
+    return this.peakInFlight.get();
+  }
+
+  @Override
+  public void close() {
+
+    this.httpServer.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    this.requests.incrementAndGet();
+    this.peakInFlight.accumulateAndGet(this.inFlight.incrementAndGet(), Math::max);
+    try {
+      Map<?, ?> chatRequest = this.objectMapper.readValue(exchange.getRequestBody(), Map.class);
+      sleep(this.extraDelay);
+      if (this.status != 200) {
+        this.send(exchange, this.status, Map.of("error", Map.of("message", "stubbed failure", "type", "server_error")));
+      } else if (Boolean.TRUE.equals(chatRequest.get("stream"))) {
+        this.stream(exchange);
+      } else {
+        sleep(this.firstPieceDelay.plus(this.pieceDelay.multipliedBy(Math.max(this.pieces.size() - 1, 0))));
+        this.send(exchange, 200, Map.of("id", "chatcmpl-stub", "object", "chat.completion",
+                "choices", List.of(Map.of("index", 0, "finish_reason", "stop",
+                        "message", Map.of("role", "assistant", "content", String.join("", this.pieces))))));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      this.inFlight.decrementAndGet();
+      exchange.close();
+    }
+  }
+
+  private void stream(HttpExchange exchange) throws IOException, InterruptedException {
+    exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+    //0: chunked, every flush reaches the client right away
+    exchange.sendResponseHeaders(200, 0);
+    OutputStream body = exchange.getResponseBody();
+    this.event(body, Map.of("role", "assistant"), null);
+    for (int i = 0; i < this.pieces.size(); i++) {
+      sleep(i == 0 ? this.firstPieceDelay : this.pieceDelay);
+      this.event(body, Map.of("content", this.pieces.get(i)), null);
+    }
+    this.event(body, Map.of(), "stop");
+    body.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+    body.flush();
+  }
+
+  private void event(OutputStream body, Map<String, String> delta, String finishReason) throws IOException {
+    Map<String, Object> choice = new HashMap<>(Map.of("index", 0, "delta", delta));
+    choice.put("finish_reason", finishReason);
+    String chunk = this.objectMapper.writeValueAsString(Map.of("id", "chatcmpl-stub", "object", "chat.completion.chunk",
+            "choices", List.of(choice)));
+    body.write(("data: " + chunk + "\n\n").getBytes(StandardCharsets.UTF_8));
+    body.flush();
+  }
+
+  private void send(HttpExchange exchange, int status, Object json) throws IOException {
+    byte[] body = this.objectMapper.writeValueAsBytes(json);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, body.length);
+    exchange.getResponseBody().write(body);
+  }
+
+  private static void sleep(Duration duration) throws InterruptedException {
+    if (!duration.isZero()) {
+      Thread.sleep(duration.toMillis());
+    }
+  }
+}
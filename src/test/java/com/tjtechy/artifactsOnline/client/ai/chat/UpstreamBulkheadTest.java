@@ -0,0 +1,128 @@
+package com.tjtechy.artifactsOnline.client.ai.chat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * UpstreamBulkhead and the read timeout in front of StubOpenAiServer, which answers RESPONSE_DELAY after a request.
+ */
+class UpstreamBulkheadTest {
+
+  private static final Duration RESPONSE_DELAY = Duration.ofMillis(300);
+
+  private StubOpenAiServer stubOpenAiServer;
+
+  private MeterRegistry meterRegistry;
+
+  private ExecutorService executorService;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    this.stubOpenAiServer = StubOpenAiServer.start(List.of("The summary includes six artifacts."), RESPONSE_DELAY, Duration.ZERO);
+    this.meterRegistry = new SimpleMeterRegistry();
+    this.executorService = Executors.newVirtualThreadPerTaskExecutor();
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.executorService.shutdownNow();
+    this.stubOpenAiServer.close();
+  }
+
+  @Test
+  void testCallsOverTheLimitWaitForASlot() {
+    //Given
+    RestClient restClient = this.restClient(new UpstreamBulkhead(2, Duration.ofSeconds(10), this.meterRegistry), Duration.ofSeconds(10));
+
+    //When
+    List<CompletableFuture<String>> calls = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      calls.add(CompletableFuture.supplyAsync(() -> this.call(restClient), this.executorService));
+    }
+
+    //Then
+    assertThat(calls).allSatisfy(call -> assertThat(call.join()).contains("six artifacts"));
+    assertThat(this.stubOpenAiServer.peakInFlight()).isBetween(1, 2);
+    assertThat(this.inFlight()).isZero();
+  }
+
+  @Test
+  void testCallOverTheLimitIsRejectedAfterMaxWait() throws InterruptedException {
+    //Given
+    RestClient restClient = this.restClient(new UpstreamBulkhead(1, Duration.ofMillis(50), this.meterRegistry), Duration.ofSeconds(10));
+    CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> this.call(restClient), this.executorService);
+    while (this.stubOpenAiServer.requests() == 0) {
+      Thread.sleep(10);
+    }
+
+    //When and Then
+    assertThatThrownBy(() -> this.call(restClient))
+            .isInstanceOf(ResourceAccessException.class)
+            .hasCauseInstanceOf(UpstreamBulkhead.UpstreamBulkheadFullException.class);
+    assertThat(first.join()).contains("six artifacts");
+    assertThat(this.meterRegistry.get("http.client.bulkhead.rejected").tag("host", this.host()).counter().count()).isEqualTo(1);
+    assertThat(this.stubOpenAiServer.requests()).isEqualTo(1);
+  }
+
+  @Test
+  void testSlowResponseTimesOutAndGivesItsSlotBack() {
+    //Given
+    RestClient restClient = this.restClient(new UpstreamBulkhead(1, Duration.ZERO, this.meterRegistry), Duration.ofMillis(100));
+
+    //When and Then
+    assertThatThrownBy(() -> this.call(restClient)).isInstanceOf(ResourceAccessException.class);
+    assertThat(this.inFlight()).isZero();
+  }
+
+  private RestClient restClient(UpstreamBulkhead upstreamBulkhead, Duration readTimeout) {
+    JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build());
+    requestFactory.setReadTimeout(readTimeout);
+    return RestClient.builder()
+            .baseUrl(this.stubOpenAiServer.endpoint())
+            .requestFactory(requestFactory)
+            .requestInterceptor(upstreamBulkhead)
+            .build();
+  }
+
+  private String call(RestClient restClient) {
+
+    return restClient.post()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(Map.of("model", "gpt-3.5-turbo", "messages", List.of()))
+            .retrieve()
+            .body(String.class);
+  }
+
+  private double inFlight() {
+
+    return this.meterRegistry.get("http.client.bulkhead.in-flight").tag("host", this.host()).gauge().value();
+  }
+
+  private String host() {
+    URI endpoint = URI.create(this.stubOpenAiServer.endpoint());
+    return endpoint.getScheme() + "://" + endpoint.getHost() + ":" + endpoint.getPort();
+  }
+}
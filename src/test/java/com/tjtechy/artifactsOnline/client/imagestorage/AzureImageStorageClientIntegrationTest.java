@@ -0,0 +1,146 @@
+package com.tjtechy.artifactsOnline.client.imagestorage;
+
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.BlobServiceClient;
+import com.azure.storage.blob.BlobServiceClientBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Uploads 2MB to 100MB images to the Azurite emulator (docker run -p 10000:10000 mcr.microsoft.com/azure-storage/azurite
+ * azurite-blob --blobHost 0.0.0.0), once block by block and once with the configured parallel block upload,
+ * and prints the throughput of both, then uploads images again to show they are not stored twice.
+ * Skipped when Azurite isn't listening on 127.0.0.1:10000.
+ */
+@DisplayName("Integration test for AzureImageStorageClient against Azurite")
+@Tag("integration")
+class AzureImageStorageClientIntegrationTest {
+
+  //the emulator's well known development account
+  private static final String AZURITE_CONNECTION_STRING = "DefaultEndpointsProtocol=http;AccountName=devstoreaccount1;"
+          + "AccountKey=Eby8vdM02xNOcqFlqUwJPLlmEtlCDXJ1OUzFT50uSRZ6IFsuFq2UVErCz4I6tq/K1SZFPTOtr/KBHBeksoGMGw==;"
+          + "BlobEndpoint=http://127.0.0.1:10000/devstoreaccount1;";
+
+  private static final DataSize BLOCK_SIZE = DataSize.ofMegabytes(4);
+
+  private static byte[] image;
+
+  private static BlobServiceClient blobServiceClient;
+
+  private static BlobContainerClient blobContainerClient;
+
+  @BeforeAll
+  static void createContainer() {
+    assumeTrue(azuriteIsRunning(), "Azurite is not listening on 127.0.0.1:10000");
+    image = new byte[(int) DataSize.ofMegabytes(100).toBytes()];
+    new Random(42).nextBytes(image);
+    blobServiceClient = new BlobServiceClientBuilder().connectionString(AZURITE_CONNECTION_STRING).buildClient();
+    blobContainerClient = blobServiceClient.createBlobContainer("images-" + UUID.randomUUID());
+  }
+
+  @AfterAll
+  static void deleteContainer() {
+    if (blobContainerClient != null) {
+      blobContainerClient.delete();
+    }
+  }
+
+  @ParameterizedTest(name = "{0}MB")
+  @ValueSource(ints = {2, 10, 50, 100})
+  @DisplayName("Check uploadImage: the whole image is stored, in parallel blocks")
+  void testImageIsUploadedInParallelBlocks(int megabytes) throws IOException {
+    //Given
+    long length = DataSize.ofMegabytes(megabytes).toBytes();
+    ImageStorageClient sequential = imageStorageClient(1);
+    ImageStorageClient parallel = imageStorageClient(4);
+
+    //When
+    Upload sequentialUpload = upload(sequential, length);
+    Upload parallelUpload = upload(parallel, length);
+
+    //Then
+    for (Upload upload : new Upload[]{sequentialUpload, parallelUpload}) {
+      String blobName = upload.url().substring(upload.url().lastIndexOf('/') + 1);
+      assertThat(blobName).matches("[0-9a-f]{64}\\.png");
+      assertThat(blobContainerClient.getBlobClient(blobName).getProperties().getBlobSize()).isEqualTo(length);
+    }
+    System.out.printf("%dMB: %.1f MB/s block by block, %.1f MB/s in parallel blocks%n",
+            megabytes, megabytesPerSecond(megabytes, sequentialUpload.elapsed()), megabytesPerSecond(megabytes, parallelUpload.elapsed()));
+  }
+
+  @ParameterizedTest(name = "{0}MB")
+  @ValueSource(ints = {2, 50})
+  @DisplayName("Check uploadImage: an image uploaded again is not stored again")
+  void testRepeatedImageIsNotUploadedAgain(int megabytes) throws IOException {
+    //Given
+    long length = DataSize.ofMegabytes(megabytes).toBytes();
+    ImageStorageClient imageStorageClient = imageStorageClient(4);
+    Upload first = upload(imageStorageClient, length);
+
+    //When, the same bytes
+    Upload repeated;
+    try (InputStream data = new ByteArrayInputStream(image, 0, (int) length)) {
+      long start = System.nanoTime();
+      String url = imageStorageClient.uploadImage(blobContainerClient.getBlobContainerName(), "another-name.png", data, length);
+      repeated = new Upload(url, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    //Then
+    assertThat(repeated.url()).isEqualTo(first.url());
+    assertThat(blobContainerClient.listBlobs().stream()
+            .filter(blob -> blob.getName().startsWith("staging/"))).isEmpty();
+    System.out.printf("%dMB: %d ms to upload, %d ms to upload again%n",
+            megabytes, first.elapsed().toMillis(), repeated.elapsed().toMillis());
+  }
+
+  private static ImageStorageClient imageStorageClient(int maxConcurrency) {
+
+    return new AzureImageStorageClient(blobServiceClient, BLOCK_SIZE, maxConcurrency, BLOCK_SIZE,
+            1000, Duration.ofHours(1), new SimpleMeterRegistry());
+  }
+
+  //every upload gets different content, so none of them is skipped as a repeat of an earlier one
+  private static Upload upload(ImageStorageClient imageStorageClient, long length) throws IOException {
+    image[0]++;
+    try (InputStream data = new ByteArrayInputStream(image, 0, (int) length)) {
+      long start = System.nanoTime();
+      String url = imageStorageClient.uploadImage(blobContainerClient.getBlobContainerName(), "artifact.png", data, length);
+      return new Upload(url, Duration.ofNanos(System.nanoTime() - start));
+    }
+  }
+
+  private static double megabytesPerSecond(int megabytes, Duration elapsed) {
+
+    return megabytes / (elapsed.toNanos() / 1e9);
+  }
+
+  private static boolean azuriteIsRunning() {
+    try (Socket socket = new Socket()) {
+      socket.connect(new InetSocketAddress("127.0.0.1", 10000), 500);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private record Upload(String url, Duration elapsed) {
+  }
+}
@@ -0,0 +1,206 @@
+package com.tjtechy.artifactsOnline.client.imagestorage;
+
+import com.azure.core.util.Context;
+import com.azure.core.util.polling.SyncPoller;
+import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.BlobServiceClient;
+import com.azure.storage.blob.models.BlobCopyInfo;
+import com.azure.storage.blob.options.BlobParallelUploadOptions;
+import com.tjtechy.artifactsOnline.system.exception.InvalidImageHashException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AzureImageStorageClientTest {
+
+  @Mock
+  BlobServiceClient blobServiceClient;
+
+  @Mock
+  BlobContainerClient blobContainerClient;
+
+  MeterRegistry meterRegistry;
+
+  //one mock per blob name, created as the client asks for them
+  Map<String, BlobClient> blobClients;
+
+  byte[] image;
+
+  @BeforeEach
+  void setUp() {
+    this.meterRegistry = new SimpleMeterRegistry();
+    this.blobClients = new HashMap<>();
+    this.image = "an artifact image, longer than the 16 bytes single put size".getBytes(StandardCharsets.UTF_8);
+    given(this.blobServiceClient.getBlobContainerClient("images")).willReturn(this.blobContainerClient);
+    Mockito.lenient().when(this.blobContainerClient.getBlobContainerName()).thenReturn("images");
+    given(this.blobContainerClient.getBlobClient(Mockito.anyString())).willAnswer(invocation -> this.blobClient(invocation.getArgument(0)));
+  }
+
+  @Test
+  void testRepeatedImageIsUploadedOnceAndLookedUpOnce() throws IOException {
+    //Given
+    AzureImageStorageClient azureImageStorageClient = this.azureImageStorageClient(DataSize.ofMegabytes(4));
+
+    //When, the same bytes under two names
+    String first = azureImageStorageClient.uploadImage("images", "wand.png", new ByteArrayInputStream(this.image), this.image.length);
+    String repeated = azureImageStorageClient.uploadImage("images", "wand-copy.png", new ByteArrayInputStream(this.image), this.image.length);
+
+    //Then
+    String blobName = sha256(this.image) + ".png";
+    assertThat(first).isEqualTo("http://127.0.0.1:10000/devstoreaccount1/images/" + blobName);
+    assertThat(repeated).isEqualTo(first);
+    BlobClient blobClient = this.blobClients.get(blobName);
+    verify(blobClient, times(1)).uploadWithResponse(Mockito.any(BlobParallelUploadOptions.class), Mockito.isNull(), Mockito.eq(Context.NONE));
+    //the repeat was recognised from the index, not the storage account
+    verify(blobClient, times(1)).exists();
+    assertThat(this.uploads("uploaded")).isEqualTo(1);
+    assertThat(this.uploads("deduplicated")).isEqualTo(1);
+  }
+
+  @Test
+  void testImageStoredByAnotherNodeIsNotUploaded() throws IOException {
+    //Given
+    String blobName = sha256(this.image) + ".png";
+    given(this.blobClient(blobName).exists()).willReturn(true);
+    AzureImageStorageClient azureImageStorageClient = this.azureImageStorageClient(DataSize.ofMegabytes(4));
+
+    //When
+    String url = azureImageStorageClient.uploadImage("images", "wand.png", new ByteArrayInputStream(this.image), this.image.length);
+
+    //Then
+    assertThat(url).endsWith(blobName);
+    verify(this.blobClients.get(blobName), never()).uploadWithResponse(Mockito.any(BlobParallelUploadOptions.class), Mockito.any(), Mockito.any());
+    assertThat(this.uploads("deduplicated")).isEqualTo(1);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testLargeImageIsStagedAndCopiedToItsContentName() throws IOException {
+    //Given, images over 16 bytes are staged
+    String blobName = sha256(this.image) + ".png";
+    SyncPoller<BlobCopyInfo, Void> copy = Mockito.mock(SyncPoller.class);
+    given(this.blobClient(blobName).beginCopy(Mockito.anyString(), Mockito.any(Duration.class))).willReturn(copy);
+    AzureImageStorageClient azureImageStorageClient = this.azureImageStorageClient(DataSize.ofBytes(16));
+
+    //When
+    String url = azureImageStorageClient.uploadImage("images", "wand.png", new ByteArrayInputStream(this.image), this.image.length);
+
+    //Then
+    assertThat(url).endsWith(blobName);
+    BlobClient staging = this.blobClients.entrySet().stream()
+            .filter(entry -> entry.getKey().startsWith("staging/"))
+            .map(Map.Entry::getValue)
+            .findFirst().orElseThrow();
+    verify(staging).uploadWithResponse(Mockito.any(BlobParallelUploadOptions.class), Mockito.isNull(), Mockito.eq(Context.NONE));
+    verify(this.blobClients.get(blobName)).beginCopy(Mockito.eq(staging.getBlobUrl()), Mockito.any(Duration.class));
+    verify(copy).waitForCompletion();
+    verify(staging).deleteIfExists();
+    assertThat(this.meterRegistry.get("image.storage.upload.bytes").tag("outcome", "uploaded").counter().count())
+            .isEqualTo(this.image.length);
+  }
+
+  @Test
+  void testLargeImageStoredUnderItsSha256IsNotRead() throws IOException {
+    //Given
+    String blobName = sha256(this.image) + ".png";
+    given(this.blobClient(blobName).exists()).willReturn(true);
+    AzureImageStorageClient azureImageStorageClient = this.azureImageStorageClient(DataSize.ofBytes(16));
+    InputStream data = Mockito.mock(InputStream.class);
+
+    //When
+    String url = azureImageStorageClient.uploadImage("images", "wand.png", data, this.image.length, sha256(this.image).toUpperCase());
+
+    //Then, nothing was received, staged or copied
+    assertThat(url).endsWith(blobName);
+    Mockito.verifyNoInteractions(data);
+    assertThat(this.blobClients.keySet()).noneMatch(name -> name.startsWith("staging/"));
+    assertThat(this.uploads("deduplicated")).isEqualTo(1);
+  }
+
+  @Test
+  void testLargeImageNotMatchingItsSha256IsNotStored() {
+    //Given
+    String otherSha256 = sha256("another image".getBytes(StandardCharsets.UTF_8));
+    AzureImageStorageClient azureImageStorageClient = this.azureImageStorageClient(DataSize.ofBytes(16));
+
+    //When, Then
+    assertThatThrownBy(() -> azureImageStorageClient.uploadImage("images", "wand.png", new ByteArrayInputStream(this.image),
+            this.image.length, otherSha256))
+            .isInstanceOf(InvalidImageHashException.class);
+    BlobClient staging = this.blobClients.entrySet().stream()
+            .filter(entry -> entry.getKey().startsWith("staging/"))
+            .map(Map.Entry::getValue)
+            .findFirst().orElseThrow();
+    verify(staging).deleteIfExists();
+    //the image was never copied to a content name
+    assertThat(this.blobClients).doesNotContainKey(sha256(this.image) + ".png");
+    assertThat(this.meterRegistry.find("image.storage.uploads").counter()).isNull();
+  }
+
+  private AzureImageStorageClient azureImageStorageClient(DataSize maxSingleUploadSize) {
+
+    return new AzureImageStorageClient(this.blobServiceClient, DataSize.ofMegabytes(4), 4, maxSingleUploadSize,
+            1000, Duration.ofHours(1), this.meterRegistry);
+  }
+
+  private BlobClient blobClient(String blobName) {
+
+    return this.blobClients.computeIfAbsent(blobName, name -> {
+      BlobClient blobClient = Mockito.mock(BlobClient.class, Mockito.withSettings().strictness(Strictness.LENIENT));
+      Mockito.when(blobClient.getBlobName()).thenReturn(name);
+      Mockito.when(blobClient.getBlobUrl()).thenReturn("http://127.0.0.1:10000/devstoreaccount1/images/" + name);
+      //a staged upload reads the whole stream, as the SDK does
+      Mockito.when(blobClient.uploadWithResponse(Mockito.any(BlobParallelUploadOptions.class), Mockito.any(), Mockito.any()))
+              .thenAnswer(invocation -> {
+                BlobParallelUploadOptions options = invocation.getArgument(0);
+                if (name.startsWith("staging/") && options.getDataStream() != null) {
+                  options.getDataStream().readAllBytes();
+                } else if (name.startsWith("staging/")) {
+                  options.getDataFlux().blockLast();
+                }
+                return null;
+              });
+      return blobClient;
+    });
+  }
+
+  private double uploads(String outcome) {
+
+    return this.meterRegistry.get("image.storage.uploads").tag("outcome", outcome).counter().count();
+  }
+
+  private static String sha256(byte[] bytes) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
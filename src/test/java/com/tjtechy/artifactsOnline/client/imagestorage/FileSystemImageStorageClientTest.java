@@ -0,0 +1,110 @@
+package com.tjtechy.artifactsOnline.client.imagestorage;
+
+import com.tjtechy.artifactsOnline.system.exception.InvalidImageHashException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileSystemImageStorageClientTest {
+
+  @TempDir
+  Path directory;
+
+  FileSystemImageStorageClient fileSystemImageStorageClient;
+
+  byte[] image;
+
+  @BeforeEach
+  void setUp() {
+    this.fileSystemImageStorageClient = new FileSystemImageStorageClient(this.directory, "/api/v1");
+    //a few transferFrom steps long
+    this.image = new byte[3 * 1024 * 1024 + 17];
+    new Random(42).nextBytes(this.image);
+  }
+
+  @Test
+  void testImageIsStoredUnderItsHashPrefix() throws IOException {
+    //When
+    String url = this.fileSystemImageStorageClient.uploadImage("images", "wand.png", new ByteArrayInputStream(this.image), this.image.length);
+
+    //Then
+    String hash = sha256(this.image);
+    assertThat(url).isEqualTo("/api/v1/artifacts/images/images/" + hash + ".png");
+    Path stored = this.directory.resolve("images").resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + ".png");
+    assertThat(stored).hasBinaryContent(this.image);
+    assertThat(this.fileSystemImageStorageClient.findImage("images", hash + ".png")).contains(stored);
+  }
+
+  @Test
+  void testRepeatedImageIsStoredOnce() throws IOException {
+    //When, the same bytes under two names and of unknown length the second time
+    String first = this.fileSystemImageStorageClient.uploadImage("images", "wand.png", new ByteArrayInputStream(this.image), this.image.length);
+    String repeated = this.fileSystemImageStorageClient.uploadImage("images", "wand-copy.png", new ByteArrayInputStream(this.image), -1);
+
+    //Then
+    assertThat(repeated).isEqualTo(first);
+    assertThat(this.images()).isEqualTo(1);
+  }
+
+  @Test
+  void testImageNotMatchingItsSha256IsNotStored() {
+    //When, Then
+    String otherSha256 = sha256(new byte[]{1, 2, 3});
+    assertThatThrownBy(() -> this.fileSystemImageStorageClient.uploadImage("images", "wand.png",
+            new ByteArrayInputStream(this.image), this.image.length, otherSha256))
+            .isInstanceOf(InvalidImageHashException.class);
+    assertThat(this.images()).isZero();
+  }
+
+  @Test
+  void testTruncatedImageIsNotStored() {
+    //When, Then
+    assertThatThrownBy(() -> this.fileSystemImageStorageClient.uploadImage("images", "wand.png",
+            new ByteArrayInputStream(this.image, 0, 1024), this.image.length))
+            .isInstanceOf(IOException.class)
+            .hasMessage("Image ended after 1024 of " + this.image.length + " bytes");
+    assertThat(this.images()).isZero();
+  }
+
+  @Test
+  void testNamesOutsideTheDirectoryAreRejected() throws IOException {
+    //Given
+    Files.writeString(this.directory.resolve("secret.txt"), "secret");
+
+    //When, Then
+    assertThatThrownBy(() -> this.fileSystemImageStorageClient.uploadImage("../images", "wand.png", new ByteArrayInputStream(this.image), this.image.length))
+            .isInstanceOf(IllegalArgumentException.class);
+    assertThat(this.fileSystemImageStorageClient.findImage("images", "../../../secret.txt")).isEmpty();
+    assertThat(this.fileSystemImageStorageClient.findImage("..", "secret.txt")).isEmpty();
+  }
+
+  //every regular file, staging included
+  private long images() {
+    try (Stream<Path> files = Files.walk(this.directory)) {
+      return files.filter(Files::isRegularFile).count();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String sha256(byte[] bytes) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package com.tjtechy.artifactsOnline.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class BoundedPasswordEncoderTest {
+
+  @Test
+  void testEncodeAndMatchesOnPool() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 10,
+            Duration.ofSeconds(5), meterRegistry)) {
+
+      String encoded = encoder.encode("123456");
+
+      assertThat(encoder.matches("123456", encoded)).isTrue();
+      assertThat(encoder.matches("654321", encoded)).isFalse();
+      assertThat(meterRegistry.find("executor.active").tag("name", "password-encoder").gauge()).isNotNull();
+    }
+  }
+
+  @Test
+  void testSaturatedPoolFailsFast() throws Exception {
+    //one worker, no queue: while the worker is blocked every other check is refused
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    PasswordEncoder blockingEncoder = new PasswordEncoder() {
+      @Override
+      public String encode(CharSequence rawPassword) {
+        return rawPassword.toString();
+      }
+
+      @Override
+      public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return true;
+      }
+    };
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ExecutorService caller = Executors.newFixedThreadPool(2);
+    try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(blockingEncoder, 1, 1, Duration.ofSeconds(5), meterRegistry)) {
+      caller.submit(() -> encoder.matches("a", "a"));
+      assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+      //fills the only queue slot
+      caller.submit(() -> encoder.encode("b"));
+      while (meterRegistry.get("executor.queued").tag("name", "password-encoder").gauge().value() < 1) {
+        Thread.onSpinWait();
+      }
+
+      Throwable thrown = catchThrowable(() -> encoder.matches("c", "c"));
+
+      assertThat(thrown).isInstanceOf(PasswordEncoderBusyException.class);
+      assertThat(((PasswordEncoderBusyException) thrown).getRetryAfter()).isEqualTo(Duration.ofSeconds(5));
+      assertThat(meterRegistry.get("security.password.encoder.rejected").counter().count()).isEqualTo(1.0);
+    } finally {
+      release.countDown();
+      caller.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package com.tjtechy.artifactsOnline.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CachingAuthenticationProviderTest {
+
+  @Mock
+  AuthenticationProvider delegate;
+
+  SimpleMeterRegistry meterRegistry;
+
+  VerifiedCredentialCache verifiedCredentialCache;
+
+  CachingAuthenticationProvider cachingAuthenticationProvider;
+
+  @BeforeEach
+  void setUp() {
+    this.meterRegistry = new SimpleMeterRegistry();
+    this.verifiedCredentialCache = new VerifiedCredentialCache(this.meterRegistry, true, 100, Duration.ofMinutes(1));
+    this.cachingAuthenticationProvider = new CachingAuthenticationProvider(this.delegate, this.verifiedCredentialCache);
+  }
+
+  @Test
+  void testRepeatedLoginIsServedFromCache() {
+    //Given
+    given(this.delegate.authenticate(any())).willReturn(authenticated("john"));
+
+    //When
+    Authentication first = this.cachingAuthenticationProvider.authenticate(login("john", "123456"));
+    Authentication second = this.cachingAuthenticationProvider.authenticate(login("john", "123456"));
+
+    //Then
+    assertThat(second.isAuthenticated()).isTrue();
+    assertThat(second.getPrincipal()).isEqualTo(first.getPrincipal());
+    assertThat(second.getAuthorities()).isEqualTo(first.getAuthorities());
+    verify(this.delegate, times(1)).authenticate(any());
+    assertThat(this.meterRegistry.get("cache.gets").tag("cache", "credentials").tag("result", "hit")
+            .functionCounter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void testOtherPasswordIsNotServedFromCache() {
+    //Given
+    given(this.delegate.authenticate(any()))
+            .willReturn(authenticated("john"))
+            .willThrow(new BadCredentialsException("Bad credentials"));
+    this.cachingAuthenticationProvider.authenticate(login("john", "123456"));
+
+    //When
+    Throwable thrown = catchThrowable(() -> this.cachingAuthenticationProvider.authenticate(login("john", "wrong")));
+
+    //Then
+    assertThat(thrown).isInstanceOf(BadCredentialsException.class);
+    verify(this.delegate, times(2)).authenticate(any());
+  }
+
+  @Test
+  void testInvalidateForcesFullCheck() {
+    //Given
+    given(this.delegate.authenticate(any())).willReturn(authenticated("john"));
+    this.cachingAuthenticationProvider.authenticate(login("john", "123456"));
+
+    //When
+    this.verifiedCredentialCache.invalidate("john");
+    this.cachingAuthenticationProvider.authenticate(login("john", "123456"));
+
+    //Then
+    verify(this.delegate, times(2)).authenticate(any());
+  }
+
+  @Test
+  void testDisabledCacheAlwaysDelegates() {
+    //Given
+    VerifiedCredentialCache disabledCache = new VerifiedCredentialCache(this.meterRegistry, false, 100, Duration.ofMinutes(1));
+    CachingAuthenticationProvider provider = new CachingAuthenticationProvider(this.delegate, disabledCache);
+    given(this.delegate.authenticate(any())).willReturn(authenticated("john"));
+
+    //When
+    provider.authenticate(login("john", "123456"));
+    provider.authenticate(login("john", "123456"));
+
+    //Then
+    verify(this.delegate, times(2)).authenticate(any());
+  }
+
+  private static Authentication login(String username, String password) {
+
+    return UsernamePasswordAuthenticationToken.unauthenticated(username, password);
+  }
+
+  private static Authentication authenticated(String username) {
+
+    return UsernamePasswordAuthenticationToken.authenticated(username, null, AuthorityUtils.createAuthorityList("ROLE_admin"));
+  }
+}
@@ -0,0 +1,55 @@
+package com.tjtechy.artifactsOnline.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSObject;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * security.jwt.algorithm=EdDSA end to end: the login token is signed by Ed25519JwtEncoder with a generated Ed25519 key
+ * and verified by the application's own jwtDecoder bean on the next request.
+ */
+@SpringBootTest(properties = {"security.jwt.algorithm=EdDSA", "spring.datasource.url=jdbc:h2:mem:eddsa-jwt"})
+@AutoConfigureMockMvc
+@DisplayName("Integration tests for EdDSA signed tokens")
+@Tag("integration")
+@ActiveProfiles(value = "development")
+class EdDsaJwtIntegrationTest {
+
+  @Autowired
+  MockMvc mockMvc;
+
+  @Value("${api.endpoint.base-url}")
+  String baseUrl;
+
+  @Test
+  @DisplayName("Check findAllUsers (GET) with an EdDSA login token")
+  void testEdDsaLoginTokenIsAccepted() throws Exception {
+    //Given
+    MvcResult mvcResult = this.mockMvc.perform(post(this.baseUrl + "/users/login").with(httpBasic("john", "123456"))).andReturn();
+    String token = new JSONObject(mvcResult.getResponse().getContentAsString()).getJSONObject("data").getString("token");
+    assertThat(JWSObject.parse(token).getHeader().getAlgorithm()).isEqualTo(JWSAlgorithm.EdDSA);
+
+    //When, Then
+    this.mockMvc.perform(get(this.baseUrl + "/users").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.flag").value(true));
+  }
+}
@@ -0,0 +1,48 @@
+package com.tjtechy.artifactsOnline.security;
+
+import com.nimbusds.jose.JWSObject;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DisplayName("Integration tests for the JWK set endpoint")
+@Tag("integration")
+@ActiveProfiles(value = "development")
+class JwksControllerIntegrationTest {
+
+  @Autowired
+  MockMvc mockMvc;
+
+  @Value("${api.endpoint.base-url}")
+  String baseUrl;
+
+  @Test
+  @DisplayName("Check jwks (GET): publishes the key that signed the login token")
+  void testJwksPublishesSigningKey() throws Exception {
+    MvcResult mvcResult = this.mockMvc.perform(post(this.baseUrl + "/users/login").with(httpBasic("john", "123456"))).andReturn();
+    String token = new JSONObject(mvcResult.getResponse().getContentAsString()).getJSONObject("data").getString("token");
+    String kid = JWSObject.parse(token).getHeader().getKeyID();
+
+    this.mockMvc.perform(get("/.well-known/jwks.json"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.keys[*].kid", hasItem(kid)))
+            .andExpect(jsonPath("$.keys[0].d").doesNotExist());
+  }
+}
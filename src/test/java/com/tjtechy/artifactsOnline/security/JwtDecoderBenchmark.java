@@ -0,0 +1,121 @@
+package com.tjtechy.artifactsOnline.security;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bearer authentications per second (decode + authority conversion, what the resource server does
+ * per request) with the plain NimbusJwtDecoder against the VerifiedJwtCache wrappers.
+ * Run with:
+ * ./mvnw test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *   -Dexec.args="-cp %classpath com.tjtechy.artifactsOnline.security.JwtDecoderBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtDecoderBenchmark {
+
+  private String token;
+
+  private JwtDecoder nimbusJwtDecoder;
+
+  private JwtAuthenticationConverter nimbusJwtAuthenticationConverter;
+
+  private JwtDecoder cachingJwtDecoder;
+
+  private UserJwtAuthenticationConverter cachingJwtAuthenticationConverter;
+
+  @Setup
+  public void setUp() throws NoSuchAlgorithmException {
+    KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+    keyPairGenerator.initialize(2048);
+    KeyPair keyPair = keyPairGenerator.generateKeyPair();
+    RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+    RSAKey rsaKey = new RSAKey.Builder(publicKey).privateKey((RSAPrivateKey) keyPair.getPrivate()).build();
+
+    //same claims as JwtProvider.createToken
+    Instant now = Instant.now();
+    JwtClaimsSet claims = JwtClaimsSet.builder()
+            .issuer("self")
+            .issuedAt(now)
+            .expiresAt(now.plus(2, ChronoUnit.HOURS))
+            .subject("john")
+            .claim("userId", 1)
+            .claim("authorities", "ROLE_admin ROLE_user")
+            .build();
+    this.token = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(rsaKey)))
+            .encode(JwtEncoderParameters.from(claims)).getTokenValue();
+
+    VerifiedJwtCache verifiedJwtCache = new VerifiedJwtCache(new SimpleMeterRegistry(), 10_000, Duration.ofMinutes(10));
+    this.nimbusJwtDecoder = NimbusJwtDecoder.withPublicKey(publicKey).build();
+    this.nimbusJwtAuthenticationConverter = new JwtAuthenticationConverter();
+    this.nimbusJwtAuthenticationConverter.setJwtGrantedAuthoritiesConverter(jwtGrantedAuthoritiesConverter());
+    this.cachingJwtDecoder = new CachingJwtDecoder(NimbusJwtDecoder.withPublicKey(publicKey).build(), verifiedJwtCache);
+    this.cachingJwtAuthenticationConverter = new UserJwtAuthenticationConverter(jwtGrantedAuthoritiesConverter(), verifiedJwtCache);
+  }
+
+  @Benchmark
+  public AbstractAuthenticationToken nimbus() {
+    return this.nimbusJwtAuthenticationConverter.convert(this.nimbusJwtDecoder.decode(this.token));
+  }
+
+  @Benchmark
+  public AbstractAuthenticationToken cached() {
+    return this.cachingJwtAuthenticationConverter.convert(this.cachingJwtDecoder.decode(this.token));
+  }
+
+  //the authorities converter configured in SecurityConfiguration
+  private static JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter() {
+    JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+    jwtGrantedAuthoritiesConverter.setAuthoritiesClaimName("authorities");
+    jwtGrantedAuthoritiesConverter.setAuthorityPrefix("");
+    return jwtGrantedAuthoritiesConverter;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    for (int threads : new int[]{1, 4, 16}) {
+      Options options = new OptionsBuilder()
+              .include(JwtDecoderBenchmark.class.getSimpleName())
+              .threads(threads)
+              .build();
+      new Runner(options).run();
+    }
+  }
+}
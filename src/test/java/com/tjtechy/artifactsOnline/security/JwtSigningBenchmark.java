@@ -0,0 +1,97 @@
+package com.tjtechy.artifactsOnline.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens issued (JwtProvider.createToken's encode) and verified (the uncached decode a new token costs)
+ * per second for each security.jwt.algorithm.
+ * Run with:
+ * ./mvnw test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *   -Dexec.args="-cp %classpath com.tjtechy.artifactsOnline.security.JwtSigningBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtSigningBenchmark {
+
+  @Param({"RS256", "ES256", "EdDSA"})
+  public String algorithm;
+
+  private JwtEncoder jwtEncoder;
+
+  private JwtDecoder jwtDecoder;
+
+  private JwtEncoderParameters parameters;
+
+  private String token;
+
+  @Setup
+  public void setUp() {
+    JwtSigningKeys jwtSigningKeys = new JwtSigningKeys(this.algorithm, "", "PKCS12", "", Duration.ZERO, Duration.ofHours(3),
+            Duration.ZERO, Clock.systemUTC());
+    this.jwtEncoder = SecurityConfiguration.jwtEncoder(jwtSigningKeys);
+
+    //same wiring as SecurityConfiguration.jwtDecoder without the cache
+    this.jwtDecoder = new NimbusJwtDecoder(SecurityConfiguration.jwtProcessor(jwtSigningKeys.verificationKeySource()));
+
+    //same claims as JwtProvider.createToken
+    Instant now = Instant.now();
+    JwtClaimsSet claims = JwtClaimsSet.builder()
+            .issuer("self")
+            .issuedAt(now)
+            .expiresAt(now.plus(2, ChronoUnit.HOURS))
+            .subject("john")
+            .claim("userId", 1)
+            .claim("authorities", "ROLE_admin ROLE_user")
+            .build();
+    this.parameters = JwtEncoderParameters.from(JwsHeader.with(jwtSigningKeys.jwsAlgorithm()).type("JWT").build(), claims);
+    this.token = this.jwtEncoder.encode(this.parameters).getTokenValue();
+  }
+
+  @Benchmark
+  public Jwt issue() {
+    return this.jwtEncoder.encode(this.parameters);
+  }
+
+  @Benchmark
+  public Jwt verify() {
+    return this.jwtDecoder.decode(this.token);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+            .include(JwtSigningBenchmark.class.getSimpleName())
+            .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,287 @@
+package com.tjtechy.artifactsOnline.security;
+
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.util.JSONObjectUtils;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class JwtSigningKeysTest {
+
+  @Test
+  void testGeneratedKeyIsStableWithoutRotation() {
+    MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+    JwtSigningKeys jwtSigningKeys = generated(Duration.ZERO, clock);
+    String kid = jwtSigningKeys.activeKey().getKeyID();
+
+    clock.advance(Duration.ofDays(30));
+    jwtSigningKeys.refresh();
+
+    assertThat(jwtSigningKeys.activeKey().getKeyID()).isEqualTo(kid);
+    assertThat(jwtSigningKeys.publicJwkSet().getKeys()).hasSize(1);
+    assertThat(jwtSigningKeys.publicJwkSet().getKeys().get(0).isPrivate()).isFalse();
+  }
+
+  @Test
+  void testRotationKeepsOldKeyForOverlap() {
+    //Given
+    MutableClock clock = new MutableClock(Instant.now());
+    JwtSigningKeys jwtSigningKeys = generated(Duration.ofHours(1), clock);
+    JwtDecoder jwtDecoder = decoder(jwtSigningKeys);
+    String oldKid = jwtSigningKeys.activeKey().getKeyID();
+    String oldToken = token(jwtSigningKeys, clock.instant());
+
+    //When, rotated
+    clock.advance(Duration.ofHours(1));
+    jwtSigningKeys.refresh();
+
+    //Then, new tokens use the new key, old tokens still verify
+    assertThat(jwtSigningKeys.activeKey().getKeyID()).isNotEqualTo(oldKid);
+    assertThat(jwtSigningKeys.publicJwkSet().getKeys()).hasSize(2);
+    assertThat(jwtDecoder.decode(oldToken).getSubject()).isEqualTo("john");
+
+    //When, overlap is over
+    clock.advance(Duration.ofHours(3));
+    jwtSigningKeys.refresh();
+
+    //Then, the old key is gone (a third key was rotated in meanwhile)
+    assertThat(jwtSigningKeys.publicJwkSet().getKeyByKeyId(oldKid)).isNull();
+    Throwable thrown = catchThrowable(() -> jwtDecoder.decode(oldToken));
+    assertThat(thrown).isInstanceOf(JwtException.class);
+  }
+
+  @Test
+  void testTokenFromOneNodeValidatesOnAnother(@TempDir Path tempDir) throws Exception {
+    //Given, two nodes reading the same JWK set file
+    Path keyFile = tempDir.resolve("jwt-signing.json");
+    RSAKey rsaKey = new RSAKeyGenerator(2048).keyID("2024-01").generate();
+    Files.writeString(keyFile, jwkSet(Map.of(rsaKey, Instant.parse("2024-01-01T00:00:00Z"))));
+    JwtSigningKeys nodeA = fromFile(keyFile);
+    JwtSigningKeys nodeB = fromFile(keyFile);
+
+    //When
+    String token = token(nodeA, Instant.now());
+
+    //Then
+    assertThat(decoder(nodeB).decode(token).getSubject()).isEqualTo("john");
+  }
+
+  @Test
+  void testKeyAddedToFileActivatesAfterDelay(@TempDir Path tempDir) throws Exception {
+    //Given
+    MutableClock clock = new MutableClock(Instant.parse("2024-06-01T00:00:00Z"));
+    Path keyFile = tempDir.resolve("jwt-signing.json");
+    RSAKey first = new RSAKeyGenerator(2048).keyID("2024-01").generate();
+    Files.writeString(keyFile, jwkSet(Map.of(first, Instant.parse("2024-01-01T00:00:00Z"))));
+    JwtSigningKeys jwtSigningKeys = new JwtSigningKeys("RS256", "file:" + keyFile, "JWKS", "", Duration.ZERO,
+            Duration.ofHours(3), Duration.ofMinutes(10), clock);
+
+    //When, a second key is added to the file
+    RSAKey second = new RSAKeyGenerator(2048).keyID("2024-06").generate();
+    Files.writeString(keyFile, jwkSet(Map.of(first, Instant.parse("2024-01-01T00:00:00Z"), second, clock.instant())));
+    jwtSigningKeys.refresh();
+
+    //Then, published at once but only signing after the activation delay
+    assertThat(jwtSigningKeys.publicJwkSet().getKeyByKeyId("2024-06")).isNotNull();
+    assertThat(jwtSigningKeys.activeKey().getKeyID()).isEqualTo("2024-01");
+    clock.advance(Duration.ofMinutes(10));
+    assertThat(jwtSigningKeys.activeKey().getKeyID()).isEqualTo("2024-06");
+  }
+
+  @Test
+  void testUnreadableFileKeepsCurrentKeys(@TempDir Path tempDir) throws Exception {
+    Path keyFile = tempDir.resolve("jwt-signing.json");
+    RSAKey rsaKey = new RSAKeyGenerator(2048).keyID("2024-01").generate();
+    Files.writeString(keyFile, new JWKSet(rsaKey).toString(false));
+    JwtSigningKeys jwtSigningKeys = fromFile(keyFile);
+
+    Files.writeString(keyFile, "{ half written");
+    jwtSigningKeys.refresh();
+
+    assertThat(jwtSigningKeys.activeKey().getKeyID()).isEqualTo("2024-01");
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"RS256", "ES256", "EdDSA"})
+  void testIssuedTokenVerifiesWithConfiguredAlgorithm(String algorithm) {
+    JwtSigningKeys jwtSigningKeys = new JwtSigningKeys(algorithm, "", "PKCS12", "", Duration.ZERO, Duration.ofHours(3),
+            Duration.ZERO, Clock.systemUTC());
+
+    String token = token(jwtSigningKeys, Instant.now());
+
+    Jwt jwt = decoder(jwtSigningKeys).decode(token);
+    assertThat(jwt.getHeaders()).containsEntry("alg", algorithm).containsEntry("kid", jwtSigningKeys.activeKey().getKeyID());
+    assertThat(jwt.getSubject()).isEqualTo("john");
+  }
+
+  @Test
+  void testTamperedEdDsaTokenIsRejected() {
+    JwtSigningKeys jwtSigningKeys = new JwtSigningKeys("EdDSA", "", "PKCS12", "", Duration.ZERO, Duration.ofHours(3),
+            Duration.ZERO, Clock.systemUTC());
+    String[] parts = token(jwtSigningKeys, Instant.now()).split("\\.");
+    String otherPayload = token(jwtSigningKeys, Instant.now().minusSeconds(60)).split("\\.")[1];
+
+    Throwable thrown = catchThrowable(() -> decoder(jwtSigningKeys).decode(parts[0] + "." + otherPayload + "." + parts[2]));
+
+    assertThat(thrown).isInstanceOf(JwtException.class);
+  }
+
+  @Test
+  void testEdDsaTokenVerifiesThroughTheRemoteKeySetDecoder() throws Exception {
+    //Given, the issuing node's JWK set served over http, and a node configured with its jwk-set-uri
+    JwtSigningKeys issuer = new JwtSigningKeys("EdDSA", "", "PKCS12", "", Duration.ZERO, Duration.ofHours(3),
+            Duration.ZERO, Clock.systemUTC());
+    HttpServer jwksServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    jwksServer.createContext("/.well-known/jwks.json", exchange -> {
+      byte[] body = issuer.publicJwkSet().toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream outputStream = exchange.getResponseBody()) {
+        outputStream.write(body);
+      }
+    });
+    jwksServer.start();
+    try {
+      String jwkSetUri = "http://127.0.0.1:" + jwksServer.getAddress().getPort() + "/.well-known/jwks.json";
+      JwtDecoder jwtDecoder = new SecurityConfiguration(null, null, null, null, issuer)
+              .jwtDecoder(new VerifiedJwtCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10)), jwkSetUri);
+
+      //When
+      Jwt jwt = jwtDecoder.decode(token(issuer, Instant.now()));
+
+      //Then
+      assertThat(jwt.getHeaders()).containsEntry("alg", "EdDSA");
+      assertThat(jwt.getSubject()).isEqualTo("john");
+    } finally {
+      jwksServer.stop(0);
+    }
+  }
+
+  @Test
+  void testSwitchingAlgorithmKeepsOtherKeysPublished(@TempDir Path tempDir) throws Exception {
+    //Given, the shared file holds the old RSA key and a new EC key
+    Path keyFile = tempDir.resolve("jwt-signing.json");
+    RSAKey rsaKey = new RSAKeyGenerator(2048).keyID("rsa").generate();
+    ECKey ecKey = new ECKeyGenerator(Curve.P_256).keyID("ec").generate();
+    Files.writeString(keyFile, jwkSet(Map.of(rsaKey, Instant.now().minusSeconds(60), ecKey, Instant.now())));
+    JwtSigningKeys rsaNode = new JwtSigningKeys("RS256", "file:" + keyFile, "JWKS", "", Duration.ZERO, Duration.ofHours(3),
+            Duration.ZERO, Clock.systemUTC());
+    JwtSigningKeys ecNode = new JwtSigningKeys("ES256", "file:" + keyFile, "JWKS", "", Duration.ZERO, Duration.ofHours(3),
+            Duration.ZERO, Clock.systemUTC());
+
+    //Then, each node signs with its own kind and accepts the other's tokens
+    assertThat(rsaNode.activeKey().getKeyID()).isEqualTo("rsa");
+    assertThat(ecNode.activeKey().getKeyID()).isEqualTo("ec");
+    assertThat(decoder(ecNode).decode(token(rsaNode, Instant.now())).getSubject()).isEqualTo("john");
+    assertThat(decoder(rsaNode).decode(token(ecNode, Instant.now())).getSubject()).isEqualTo("john");
+  }
+
+  @Test
+  void testUnsupportedAlgorithm() {
+    Throwable thrown = catchThrowable(() -> new JwtSigningKeys("HS256", "", "PKCS12", "", Duration.ZERO, Duration.ofHours(3),
+            Duration.ZERO, Clock.systemUTC()));
+
+    assertThat(thrown).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  //a JWK set file as an operator writes it, every key with its iat
+  private static String jwkSet(Map<JWK, Instant> keys) {
+    List<Map<String, Object>> members = new ArrayList<>();
+    keys.forEach((jwk, created) -> {
+      Map<String, Object> member = jwk.toJSONObject();
+      member.put("iat", created.getEpochSecond());
+      members.add(member);
+    });
+    return JSONObjectUtils.toJSONString(Map.of("keys", members));
+  }
+
+  private static JwtSigningKeys generated(Duration rotationInterval, Clock clock) {
+
+    return new JwtSigningKeys("RS256", "", "PKCS12", "", rotationInterval, Duration.ofHours(3), Duration.ZERO, clock);
+  }
+
+  private static JwtSigningKeys fromFile(Path keyFile) {
+
+    return new JwtSigningKeys("RS256", "file:" + keyFile, "JWKS", "", Duration.ZERO, Duration.ofHours(3), Duration.ZERO,
+            Clock.systemUTC());
+  }
+
+  //same wiring as SecurityConfiguration.jwtDecoder without the cache
+  private static JwtDecoder decoder(JwtSigningKeys jwtSigningKeys) {
+
+    return new NimbusJwtDecoder(SecurityConfiguration.jwtProcessor(jwtSigningKeys.verificationKeySource()));
+  }
+
+  private static String token(JwtSigningKeys jwtSigningKeys, Instant issuedAt) {
+    JwtClaimsSet claims = JwtClaimsSet.builder()
+            .issuer("self")
+            .issuedAt(issuedAt)
+            .expiresAt(Instant.now().plus(2, ChronoUnit.HOURS))
+            .subject("john")
+            .build();
+    JwsHeader jwsHeader = JwsHeader.with(jwtSigningKeys.jwsAlgorithm()).build();
+    return SecurityConfiguration.jwtEncoder(jwtSigningKeys).encode(JwtEncoderParameters.from(jwsHeader, claims)).getTokenValue();
+  }
+
+  private static class MutableClock extends Clock {
+
+    private Instant instant;
+
+    private MutableClock(Instant instant) {
+      this.instant = instant;
+    }
+
+    void advance(Duration duration) {
+      this.instant = this.instant.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return this.instant;
+    }
+  }
+}
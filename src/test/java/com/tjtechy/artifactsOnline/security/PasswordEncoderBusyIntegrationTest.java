@@ -0,0 +1,62 @@
+package com.tjtechy.artifactsOnline.security;
+
+import com.tjtechy.artifactsOnline.system.StatusCode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * A password check the bounded encoder refuses is answered with 503 and Retry-After, not with the 401 of bad credentials.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:password-encoder-busy")
+@AutoConfigureMockMvc
+@DisplayName("Integration tests for a saturated password encoder")
+@Tag("integration")
+@ActiveProfiles(value = "development")
+class PasswordEncoderBusyIntegrationTest {
+
+  @Autowired
+  MockMvc mockMvc;
+
+  @SpyBean
+  PasswordEncoder passwordEncoder;
+
+  @Value("${api.endpoint.base-url}")
+  String baseUrl;
+
+  @Test
+  @DisplayName("Check login (POST) while the password encoder is saturated")
+  void testLoginWhilePasswordEncoderIsSaturated() throws Exception {
+    //Given
+    doThrow(new PasswordEncoderBusyException("Too many password checks in progress, try again later", Duration.ofMillis(1500), null))
+            .when(this.passwordEncoder).matches(any(), anyString());
+
+    //When, Then
+    this.mockMvc.perform(post(this.baseUrl + "/users/login").with(httpBasic("john", "123456")))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"))
+            .andExpect(jsonPath("$.flag").value(false))
+            .andExpect(jsonPath("$.code").value(StatusCode.SERVICE_UNAVAILABLE))
+            .andExpect(jsonPath("$.data").value("Too many password checks in progress, try again later"));
+  }
+}
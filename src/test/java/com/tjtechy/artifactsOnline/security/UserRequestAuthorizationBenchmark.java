@@ -0,0 +1,102 @@
+package com.tjtechy.artifactsOnline.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.web.util.UriTemplate;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * One GET /users/{userId} authorization for a ROLE_user accessing their own info, the former
+ * UriTemplate/stream implementation against UserRequestAuthorizationManager.
+ * Compare gc.alloc.rate.norm (bytes per request) in the GC profiler output.
+ * Run with:
+ * ./mvnw test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *   -Dexec.args="-cp %classpath com.tjtechy.artifactsOnline.security.UserRequestAuthorizationBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserRequestAuthorizationBenchmark {
+
+  private static final UriTemplate USER_URI_TEMPLATE = new UriTemplate("/users/{userId}");
+
+  private final UserRequestAuthorizationManager userRequestAuthorizationManager = new UserRequestAuthorizationManager();
+
+  private Authentication authentication;
+
+  private RequestAuthorizationContext context;
+
+  @Setup
+  public void setUp() {
+    Jwt jwt = Jwt.withTokenValue("token")
+            .header("alg", "RS256")
+            .subject("eric")
+            .issuedAt(Instant.now())
+            .expiresAt(Instant.now().plusSeconds(7200))
+            .claim("userId", 2L)
+            .claim("authorities", "ROLE_user")
+            .build();
+    //what UserJwtAuthenticationConverter builds from a cached token
+    this.authentication = new UserJwtAuthenticationToken(jwt, UserAuthorities.of(jwt, AuthorityUtils.createAuthorityList("ROLE_user")));
+    this.context = new RequestAuthorizationContext(new MockHttpServletRequest("GET", "/api/v1/users/2"));
+  }
+
+  @Benchmark
+  public AuthorizationDecision uriTemplate() {
+    return legacyCheck(() -> this.authentication, this.context);
+  }
+
+  @Benchmark
+  public AuthorizationDecision precomputed() {
+    return this.userRequestAuthorizationManager.check(() -> this.authentication, this.context);
+  }
+
+  //the check before UserAuthorities
+  private static AuthorizationDecision legacyCheck(Supplier<Authentication> authenticationSupplier,
+                                                   RequestAuthorizationContext context) {
+    Map<String, String> uriVariables = USER_URI_TEMPLATE.match(context.getRequest().getRequestURI());
+    String userIdFromRequestUri = uriVariables.get("userId");
+    var authentication = authenticationSupplier.get();
+    String userIdFromJwt = ((Jwt) authentication.getPrincipal()).getClaim("userId").toString();
+    boolean hasUserRole = authentication.getAuthorities().stream()
+            .anyMatch(grantedAuthority -> grantedAuthority.getAuthority().equals("ROLE_user"));
+    boolean hasAdminRole = authentication.getAuthorities().stream()
+            .anyMatch(grantedAuthority -> grantedAuthority.getAuthority().equals("ROLE_admin"));
+    boolean userIdMatch = userIdFromRequestUri != null && userIdFromRequestUri.equals(userIdFromJwt);
+    return new AuthorizationDecision(hasAdminRole || (hasUserRole && userIdMatch));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+            .include(UserRequestAuthorizationBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,80 @@
+package com.tjtechy.artifactsOnline.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserRequestAuthorizationManagerTest {
+
+  UserRequestAuthorizationManager userRequestAuthorizationManager = new UserRequestAuthorizationManager();
+
+  @Test
+  void testAdminAccessesAnyUser() {
+    assertThat(this.granted(token(1, "ROLE_admin ROLE_user"), "/api/v1/users/2")).isTrue();
+  }
+
+  @Test
+  void testUserAccessesOwnInfo() {
+    assertThat(this.granted(token(2, "ROLE_user"), "/api/v1/users/2")).isTrue();
+  }
+
+  @Test
+  void testUserDeniedOtherUsersInfo() {
+    assertThat(this.granted(token(2, "ROLE_user"), "/api/v1/users/3")).isFalse();
+    assertThat(this.granted(token(2, "ROLE_user"), "/api/v1/users/22")).isFalse();
+    assertThat(this.granted(token(22, "ROLE_user"), "/api/v1/users/2")).isFalse();
+    assertThat(this.granted(token(2, "ROLE_user"), "/api/v1/users/2/")).isFalse();
+    assertThat(this.granted(token(2, "ROLE_user"), "/api/v1/users")).isFalse();
+  }
+
+  @Test
+  void testWithoutUserRoleDenied() {
+    assertThat(this.granted(token(2, "ROLE_guest"), "/api/v1/users/2")).isFalse();
+  }
+
+  @Test
+  void testPlainJwtAuthenticationToken() {
+    Jwt jwt = jwt(2, "ROLE_user");
+    var authentication = new JwtAuthenticationToken(jwt, AuthorityUtils.createAuthorityList("ROLE_user"));
+
+    assertThat(this.granted(authentication, "/api/v1/users/2")).isTrue();
+    assertThat(this.granted(authentication, "/api/v1/users/3")).isFalse();
+  }
+
+  @Test
+  void testBasicAuthenticationUserDenied() {
+    var authentication = UsernamePasswordAuthenticationToken.authenticated("eric", null, AuthorityUtils.createAuthorityList("ROLE_user"));
+
+    assertThat(this.granted(authentication, "/api/v1/users/2")).isFalse();
+  }
+
+  private boolean granted(Authentication authentication, String requestUri) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", requestUri);
+    return this.userRequestAuthorizationManager.check(() -> authentication, new RequestAuthorizationContext(request)).isGranted();
+  }
+
+  private static UserJwtAuthenticationToken token(long userId, String authorities) {
+    Jwt jwt = jwt(userId, authorities);
+    return new UserJwtAuthenticationToken(jwt, UserAuthorities.of(jwt, AuthorityUtils.createAuthorityList(authorities.split(" "))));
+  }
+
+  private static Jwt jwt(long userId, String authorities) {
+    return Jwt.withTokenValue("token")
+            .header("alg", "RS256")
+            .subject("john")
+            .issuedAt(Instant.now())
+            .expiresAt(Instant.now().plusSeconds(7200))
+            .claim("userId", userId)
+            .claim("authorities", authorities)
+            .build();
+  }
+}
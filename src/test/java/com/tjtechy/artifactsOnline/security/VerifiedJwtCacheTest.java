@@ -0,0 +1,151 @@
+package com.tjtechy.artifactsOnline.security;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class VerifiedJwtCacheTest {
+
+  JwtEncoder jwtEncoder;
+
+  JwtDecoder nimbusJwtDecoder;
+
+  SimpleMeterRegistry meterRegistry;
+
+  VerifiedJwtCache verifiedJwtCache;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+    keyPairGenerator.initialize(2048);
+    KeyPair keyPair = keyPairGenerator.generateKeyPair();
+    RSAKey rsaKey = new RSAKey.Builder((RSAPublicKey) keyPair.getPublic()).privateKey((RSAPrivateKey) keyPair.getPrivate()).build();
+    this.jwtEncoder = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(rsaKey)));
+    this.nimbusJwtDecoder = NimbusJwtDecoder.withPublicKey((RSAPublicKey) keyPair.getPublic()).build();
+
+    this.meterRegistry = new SimpleMeterRegistry();
+    this.verifiedJwtCache = new VerifiedJwtCache(this.meterRegistry, 100, Duration.ofMinutes(10));
+  }
+
+  @Test
+  void testTokenIsVerifiedOnce() {
+    //Given
+    String token = this.token(Instant.now().plus(2, ChronoUnit.HOURS));
+    AtomicInteger verifications = new AtomicInteger();
+    JwtDecoder countingDecoder = value -> {
+      verifications.incrementAndGet();
+      return this.nimbusJwtDecoder.decode(value);
+    };
+
+    //When
+    Jwt first = this.verifiedJwtCache.decode(token, countingDecoder);
+    Jwt second = this.verifiedJwtCache.decode(token, countingDecoder);
+
+    //Then
+    assertThat(second).isSameAs(first);
+    assertThat(verifications.get()).isEqualTo(1);
+    assertThat(this.meterRegistry.get("cache.gets").tag("cache", "jwt").tag("result", "hit")
+            .functionCounter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void testUserAuthoritiesAreConvertedOnce() {
+    //Given
+    String token = this.token(Instant.now().plus(2, ChronoUnit.HOURS));
+    Jwt jwt = this.verifiedJwtCache.decode(token, this.nimbusJwtDecoder);
+    JwtGrantedAuthoritiesConverter authoritiesConverter = new JwtGrantedAuthoritiesConverter();
+    authoritiesConverter.setAuthoritiesClaimName("authorities");
+    authoritiesConverter.setAuthorityPrefix("");
+    AtomicInteger conversions = new AtomicInteger();
+    Converter<Jwt, Collection<GrantedAuthority>> countingConverter = value -> {
+      conversions.incrementAndGet();
+      return authoritiesConverter.convert(value);
+    };
+
+    //When
+    UserAuthorities first = this.verifiedJwtCache.userAuthorities(jwt, countingConverter);
+    UserAuthorities second = this.verifiedJwtCache.userAuthorities(jwt, countingConverter);
+
+    //Then
+    assertThat(second).isSameAs(first);
+    assertThat(first.authorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_admin", "ROLE_user");
+    assertThat(first.roles()).isEqualTo(UserAuthorities.ROLE_ADMIN | UserAuthorities.ROLE_USER);
+    assertThat(first.userId()).isEqualTo("1");
+    assertThat(conversions.get()).isEqualTo(1);
+  }
+
+  @Test
+  void testInvalidTokenIsNotCached() {
+    //Given
+    String token = this.token(Instant.now().plus(2, ChronoUnit.HOURS));
+    String tampered = token.substring(0, token.length() - 4) + "AAAA";
+
+    //When
+    Throwable first = catchThrowable(() -> this.verifiedJwtCache.decode(tampered, this.nimbusJwtDecoder));
+    Throwable second = catchThrowable(() -> this.verifiedJwtCache.decode(tampered, this.nimbusJwtDecoder));
+
+    //Then
+    assertThat(first).isInstanceOf(JwtException.class);
+    assertThat(second).isInstanceOf(JwtException.class);
+  }
+
+  @Test
+  void testEntryExpiresWithToken() throws InterruptedException {
+    //Given
+    //a token that is still valid for a moment (the decoder allows 60s clock skew after exp), exp on the next whole
+    //second because iat and exp are encoded in seconds and exp has to stay after iat
+    String token = this.token(Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1));
+    AtomicInteger verifications = new AtomicInteger();
+    JwtDecoder countingDecoder = value -> {
+      verifications.incrementAndGet();
+      return this.nimbusJwtDecoder.decode(value);
+    };
+    this.verifiedJwtCache.decode(token, countingDecoder);
+
+    //When
+    Thread.sleep(1000);
+    this.verifiedJwtCache.decode(token, countingDecoder);
+
+    //Then
+    assertThat(verifications.get()).isEqualTo(2);
+  }
+
+  private String token(Instant expiresAt) {
+    JwtClaimsSet claims = JwtClaimsSet.builder()
+            .issuer("self")
+            .issuedAt(Instant.now())
+            .expiresAt(expiresAt)
+            .subject("john")
+            .claim("userId", 1)
+            .claim("authorities", "ROLE_admin ROLE_user")
+            .build();
+    return this.jwtEncoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
+  }
+}
@@ -1,5 +1,6 @@
 package com.tjtechy.artifactsOnline.tjtechyuser;
 
+import com.tjtechy.artifactsOnline.security.VerifiedCredentialCache;
 import com.tjtechy.artifactsOnline.system.exception.ObjectNotFoundException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,6 +15,8 @@ import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -36,6 +39,9 @@ class UserServiceTest {
   @Mock
   PasswordEncoder passwordEncoder;
 
+  @Mock
+  VerifiedCredentialCache verifiedCredentialCache;
+
   @InjectMocks
   UserService userService;
 
@@ -205,6 +211,8 @@ class UserServiceTest {
     assertThat(updatedUser.getUsername()).isEqualTo(update.getUsername());
     verify(this.userRepository, times(1)).findById(2);
     verify(this.userRepository, times(1)).save(oldUser);
+    //credentials cached under the old name must stop working
+    verify(this.verifiedCredentialCache, times(1)).invalidate("eric");
   }
 
   @Test
@@ -279,6 +287,29 @@ class UserServiceTest {
 
     //Then
     verify(this.userRepository, times(1)).deleteById(1);
+    verify(this.verifiedCredentialCache, times(1)).invalidate("john");
+  }
+
+  @Test
+  void testDeleteInvalidatesCachedCredentialsAfterCommit(){
+    //Given
+    TJUser user = new TJUser();
+    user.setId(1);
+    user.setUsername("john");
+    given(userRepository.findById(1)).willReturn(Optional.of(user));
+    TransactionSynchronizationManager.initSynchronization();
+
+    try {
+      //When
+      userService.delete(1);
+
+      //Then, a login before the commit would still find the user in the db
+      verify(this.verifiedCredentialCache, never()).invalidate("john");
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+      verify(this.verifiedCredentialCache, times(1)).invalidate("john");
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
   }
 
   //negative scenario
@@ -3,6 +3,7 @@ package com.tjtechy.artifactsOnline.wizard;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tjtechy.artifactsOnline.artifact.Artifact;
+import com.tjtechy.artifactsOnline.system.CursorPage;
 import com.tjtechy.artifactsOnline.system.StatusCode;
 import com.tjtechy.artifactsOnline.system.exception.ObjectNotFoundException;
 import com.tjtechy.artifactsOnline.wizard.dto.WizardDto;
@@ -16,9 +17,13 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.mockito.Mockito;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -29,7 +34,9 @@ import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc(addFilters = false)//turn off spring security
@@ -132,17 +139,55 @@ class WizardControllerTest {
   @Test
   void testFindAllWizardsSuccess() throws Exception {
     //Given
-    given(this.wizardService.findAll()).willReturn(this.wizards);
+    Pageable pageable = PageRequest.of(0, 20);
+    PageImpl<Wizard> wizardPage = new PageImpl<>(this.wizards, pageable, this.wizards.size());
+    given(this.wizardService.findAll(Mockito.any(Pageable.class))).willReturn(wizardPage);
     //When and Then
     this.mockMvc.perform(get(this.baseUrl + "/wizards").accept(MediaType.APPLICATION_JSON))
             .andExpect(jsonPath("$.flag").value(true))
             .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
             .andExpect(jsonPath("$.message").value("Find All Success"))
-            .andExpect(jsonPath("$.data", Matchers.hasSize(this.wizards.size())))
-            .andExpect(jsonPath("$.data[0].id").value(1))
-            .andExpect(jsonPath("$.data[0].name").value("Albus Dumbledore"))
-            .andExpect(jsonPath("$.data[1].id").value(2))
-            .andExpect(jsonPath("$.data[1].name").value("Harry Potter"));
+            .andExpect(jsonPath("$.data.content", Matchers.hasSize(this.wizards.size())))
+            .andExpect(jsonPath("$.data.content[0].id").value(1))
+            .andExpect(jsonPath("$.data.content[0].name").value("Albus Dumbledore"))
+            .andExpect(jsonPath("$.data.content[0].numberOfArtifacts").value(2))
+            .andExpect(jsonPath("$.data.content[1].id").value(2))
+            .andExpect(jsonPath("$.data.content[1].name").value("Harry Potter"));
+  }
+
+  @Test
+  void testFindAllWizardsWithCursorSuccess() throws Exception {
+    //Given
+    CursorPage<Wizard> wizardCursorPage = new CursorPage<>(this.wizards.subList(0, 2), 2, CursorPage.encodeCursor("2"));
+    given(this.wizardService.findAll("", 2)).willReturn(wizardCursorPage);
+
+    //When and Then
+    this.mockMvc.perform(get(this.baseUrl + "/wizards").accept(MediaType.APPLICATION_JSON)
+                    .param("cursor", "").param("size", "2"))
+            .andExpect(jsonPath("$.flag").value(true))
+            .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+            .andExpect(jsonPath("$.message").value("Find All Success"))
+            .andExpect(jsonPath("$.data.content", Matchers.hasSize(2)))
+            .andExpect(jsonPath("$.data.content[1].id").value(2))
+            .andExpect(jsonPath("$.data.nextCursor").value(CursorPage.encodeCursor("2")))
+            .andExpect(jsonPath("$.data.totalElements").doesNotExist());
+  }
+
+  @Test
+  void testExportWizardsSuccess() throws Exception {
+    //the export reads the (seeded) db directly, one json object per line
+    MvcResult mvcResult = this.mockMvc.perform(get(this.baseUrl + "/wizards/export"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+            .andReturn();
+
+    String[] lines = mvcResult.getResponse().getContentAsString().split("\n");
+    assertTrue(lines.length > 0);
+    for (String line : lines) {
+      WizardDto wizardDto = this.objectMapper.readValue(line, WizardDto.class);
+      assertNotNull(wizardDto.id());
+      assertNotNull(wizardDto.numberOfArtifacts());
+    }
   }
 
   //3. create wizard
@@ -1,7 +1,11 @@
 package com.tjtechy.artifactsOnline.wizard;
 
 import com.tjtechy.artifactsOnline.artifact.Artifact;
+import com.tjtechy.artifactsOnline.artifact.ArtifactCache;
+import com.tjtechy.artifactsOnline.artifact.ArtifactCatalogVersion;
 import com.tjtechy.artifactsOnline.artifact.ArtifactRepository;
+import com.tjtechy.artifactsOnline.system.CursorPage;
+import com.tjtechy.artifactsOnline.system.exception.InvalidCursorException;
 import com.tjtechy.artifactsOnline.system.exception.ObjectNotFoundException;
 
 import org.junit.jupiter.api.AfterEach;
@@ -12,6 +16,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ActiveProfiles;
 
 
@@ -37,6 +46,12 @@ class WizardServiceTest {
   @Mock
   ArtifactRepository artifactRepository;
 
+  @Mock
+  ArtifactCache artifactCache;
+
+  @Mock
+  ArtifactCatalogVersion artifactCatalogVersion;
+
   @InjectMocks
   WizardService wizardService;
 
@@ -121,6 +136,60 @@ class WizardServiceTest {
     verify(wizardRepository, times(1)).findAll();
   }
 
+  @Test
+  void testFindAllPageSuccess(){
+    //Given
+    Pageable pageable = PageRequest.of(0, 2);
+    given(wizardRepository.findAll(pageable)).willReturn(new PageImpl<>(this.wizards.subList(0, 2), pageable, this.wizards.size()));
+
+    //When
+    Page<Wizard> wizardPage = wizardService.findAll(pageable);
+
+    //Then
+    assertEquals(2, wizardPage.getContent().size());
+    assertEquals(this.wizards.size(), wizardPage.getTotalElements());
+  }
+
+  //keyset paging
+  @Test
+  void testFindAllWithCursorReturnsNextCursor(){
+    //Given
+    //the repository is asked for one row more than the page size
+    given(wizardRepository.findByIdGreaterThanOrderByIdAsc(Integer.MIN_VALUE, Limit.of(3)))
+            .willReturn(this.wizards.subList(0, 3));
+
+    //When
+    CursorPage<Wizard> firstPage = wizardService.findAll("", 2);
+
+    //Then
+    assertEquals(2, firstPage.content().size());
+    assertTrue(firstPage.hasNext());
+    assertEquals(String.valueOf(this.wizards.get(1).getId()), CursorPage.decodeCursor(firstPage.nextCursor()));
+  }
+
+  @Test
+  void testFindAllWithCursorOnLastPage(){
+    //Given
+    given(wizardRepository.findByIdGreaterThanOrderByIdAsc(1, Limit.of(21)))
+            .willReturn(this.wizards.subList(1, this.wizards.size()));
+
+    //When
+    CursorPage<Wizard> lastPage = wizardService.findAll(CursorPage.encodeCursor("1"), 20);
+
+    //Then
+    assertEquals(this.wizards.size() - 1, lastPage.content().size());
+    assertNull(lastPage.nextCursor());
+  }
+
+  @Test
+  void testFindAllWithNonNumericCursor(){
+    //When
+    Throwable thrown = catchThrowable(() -> wizardService.findAll(CursorPage.encodeCursor("abc"), 20));
+
+    //Then
+    assertThat(thrown).isInstanceOf(InvalidCursorException.class);
+  }
+
   //3. create wizard
   //positive scenario
   @Test
@@ -246,6 +315,98 @@ class WizardServiceTest {
     assertThat(wizard3.getArtifacts()).isEqualToComparingOnlyGivenFields(artifact);
   }
 
+  @Test
+  void testAssignArtifactEvictsOnlyTheMovedArtifact(){
+    //Given
+    //cached artifacts hold their owner's id only, so the owners' other artifacts stay cached
+    Artifact artifact = new Artifact();
+    artifact.setId("1250808601744904192");
+    artifact.setName("Invisibility Cloak");
+
+    Artifact siblingArtifact = new Artifact();
+    siblingArtifact.setId("1250808601744904193");
+    siblingArtifact.setName("Elder Wand");
+
+    Wizard wizard2 = new Wizard();
+    wizard2.setId(2);
+    wizard2.setName("Harry Porter");
+    wizard2.addArtifact(artifact);
+    wizard2.addArtifact(siblingArtifact);
+
+    Wizard wizard3 = new Wizard();
+    wizard3.setId(3);
+    wizard3.setName("Neville Longbottom");
+
+    given(this.artifactRepository.findById("1250808601744904192")).willReturn(Optional.of(artifact));
+    given(this.wizardRepository.findById(3)).willReturn(Optional.of(wizard3));
+
+    //When
+    this.wizardService.assignArtifact(3, "1250808601744904192");
+
+    //Then
+    verify(this.artifactCache, times(1)).evictArtifact("1250808601744904192");
+    verify(this.artifactCache, never()).evictArtifact("1250808601744904193");
+    //both owners' counts changed
+    verify(this.artifactCache, times(1)).evictOwner(2);
+    verify(this.artifactCache, times(1)).evictOwner(3);
+  }
+
+  @Test
+  void testAssignArtifactKeepsArtifactCountsInStep(){
+    //Given
+    Artifact artifact = new Artifact();
+    artifact.setId("1250808601744904192");
+    artifact.setName("Invisibility Cloak");
+
+    Wizard wizard2 = new Wizard();
+    wizard2.setId(2);
+    wizard2.setName("Harry Porter");
+    wizard2.addArtifact(artifact);
+
+    Wizard wizard3 = new Wizard();
+    wizard3.setId(3);
+    wizard3.setName("Neville Longbottom");
+
+    given(this.artifactRepository.findById("1250808601744904192")).willReturn(Optional.of(artifact));
+    given(this.wizardRepository.findById(3)).willReturn(Optional.of(wizard3));
+
+    //When
+    this.wizardService.assignArtifact(3, "1250808601744904192");
+
+    //Then
+    assertEquals(0, wizard2.getNumberOfArtifacts());
+    assertEquals(1, wizard3.getNumberOfArtifacts());
+    verify(this.wizardRepository, times(1)).changeNumberOfArtifacts(2, -1);
+    verify(this.wizardRepository, times(1)).changeNumberOfArtifacts(3, 1);
+  }
+
+  @Test
+  void testReconcileArtifactCountsEvictsCachedOwners(){
+    //Given
+    given(this.wizardRepository.reconcileNumberOfArtifacts()).willReturn(2);
+
+    //When
+    int fixedWizards = this.wizardService.reconcileArtifactCounts();
+
+    //Then
+    assertEquals(2, fixedWizards);
+    verify(this.artifactCatalogVersion, times(1)).bump();
+    verify(this.artifactCache, times(1)).evictAllOwners();
+  }
+
+  @Test
+  void testReconcileArtifactCountsWithoutDrift(){
+    //Given
+    given(this.wizardRepository.reconcileNumberOfArtifacts()).willReturn(0);
+
+    //When
+    int fixedWizards = this.wizardService.reconcileArtifactCounts();
+
+    //Then
+    assertEquals(0, fixedWizards);
+    verify(this.artifactCache, never()).evictAllOwners();
+  }
+
   //7. Assign artifact
   //negative scenario
   @Test